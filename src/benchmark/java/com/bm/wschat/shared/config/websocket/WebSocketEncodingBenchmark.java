@@ -0,0 +1,76 @@
+package com.bm.wschat.shared.config.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Сравнение JSON и CBOR на типичной смеси событий: размер на проводе (с
+ * permessage-deflate и без) и CPU сервера — сериализация JSON (делается
+ * всегда) и перекодирование JSON → CBOR для CBOR-сессий.
+ * Запускается только явно: gradle benchmark. Результаты пишутся в лог.
+ */
+@Slf4j
+class WebSocketEncodingBenchmark {
+
+    private static final int ITERATIONS = 2_000;
+
+    private final ObjectMapper jsonMapper = JsonMapper.builder().build();
+    private final CBORMapper cborMapper = CBORMapper.builder().build();
+
+    @Test
+    void jsonVersusCbor() {
+        List<Object> mix = WebSocketEventMix.events();
+        List<byte[]> json = mix.stream().map(jsonMapper::writeValueAsBytes).toList();
+        List<byte[]> cbor = json.stream().map(bytes -> cborMapper.writeValueAsBytes(jsonMapper.readTree(bytes))).toList();
+
+        long jsonBytes = total(json);
+        long cborBytes = total(cbor);
+        long jsonDeflated = json.stream().mapToLong(WebSocketEncodingBenchmark::deflatedSize).sum();
+        long cborDeflated = cbor.stream().mapToLong(WebSocketEncodingBenchmark::deflatedSize).sum();
+
+        long serializeNanos = measure(() -> mix.forEach(jsonMapper::writeValueAsBytes));
+        long transcodeNanos = measure(() -> json.forEach(bytes ->
+                cborMapper.writeValueAsBytes(jsonMapper.readTree(bytes))));
+
+        log.info("Event mix of {} frames", mix.size());
+        log.info("  bytes:            json={} cbor={} ({}%)", jsonBytes, cborBytes, 100 * cborBytes / jsonBytes);
+        log.info("  bytes (deflate):  json={} cbor={}", jsonDeflated, cborDeflated);
+        log.info("  cpu per mix:      json serialize={} us, json->cbor transcode={} us",
+                serializeNanos / ITERATIONS / 1000, transcodeNanos / ITERATIONS / 1000);
+    }
+
+    private static long measure(Runnable mix) {
+        for (int i = 0; i < ITERATIONS / 4; i++) {
+            mix.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            mix.run();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long total(List<byte[]> frames) {
+        return frames.stream().mapToLong(frame -> frame.length).sum();
+    }
+
+    private static long deflatedSize(byte[] frame) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(frame);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        return out.size();
+    }
+}
@@ -10,6 +10,7 @@ import com.bm.wschat.feature.user.dto.response.UserAuthResponse;
 import com.bm.wschat.feature.user.model.User;
 import com.bm.wschat.shared.common.ApiResponse;
 import com.bm.wschat.shared.security.events.UserLogoutEvent;
+import com.bm.wschat.shared.security.jwt.TokenRevocationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -31,6 +32,7 @@ public class AuthController {
     private final RefreshTokenService refreshTokenService;
     private final ApplicationEventPublisher eventPublisher;
     private final AuthMapper authMapper;
+    private final TokenRevocationService tokenRevocationService;
 
     @PostMapping("/login")
     @Operation(summary = "Аутентификация пользователя", description = "Принимает логин и пароль, возвращает access и refresh токены.")
@@ -47,9 +49,13 @@ public class AuthController {
     }
 
     @PostMapping("/logout")
-    @Operation(summary = "Выход из системы", description = "Осуществляет выход из системы, удаляя refresh токен пользователя.")
-    public ResponseEntity<ApiResponse<Void>> logout(@AuthenticationPrincipal User user) {
+    @Operation(summary = "Выход из системы", description = "Осуществляет выход из системы, удаляя refresh токен пользователя и отзывая текущий access токен.")
+    public ResponseEntity<ApiResponse<Void>> logout(@AuthenticationPrincipal User user,
+            @RequestHeader(value = "Authorization", required = false) String authHeader) {
         refreshTokenService.deleteByUserId(user.getId());
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            tokenRevocationService.revoke(authHeader.substring(7));
+        }
         // Записываем выход пользователя
         if (user.getId() != null && user.getUsername() != null) {
             log.debug("Записываем событие выхода: id={}, username={}", user.getId(), user.getUsername());
@@ -0,0 +1,182 @@
+package com.bm.wschat.feature.auth.service;
+
+import com.bm.wschat.feature.user.model.User;
+import com.bm.wschat.feature.user.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Principal для JWT-аутентификации без запроса в БД на каждый вызов API.
+ *
+ * Хранит короткоживущие (jwt.principal-cache-ttl-seconds) снимки
+ * пользователей и на каждый запрос собирает из снимка новый detached User —
+ * изменения principal в одном запросе не видны другим. Снимки сбрасываются
+ * целиком на каждом @CacheEvict кеша "users" (см. RedisCacheConfig) на этом
+ * инстансе; на остальных изменения ролей и профиля видны не позже TTL.
+ *
+ * Метрика servicedesk.auth.principal{source=cache|db}.
+ */
+@Slf4j
+@Component
+public class UserPrincipalCache {
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long ttlNanos;
+
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    /** Увеличивается при сбросе: загрузка, начатая до сброса, не кладёт устаревший снимок */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Counter cacheHits;
+    private final Counter databaseLoads;
+
+    public UserPrincipalCache(UserRepository userRepository,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${jwt.principal-cache-ttl-seconds:30}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+
+        this.cacheHits = source(meterRegistry, "cache");
+        this.databaseLoads = source(meterRegistry, "db");
+    }
+
+    /**
+     * Пользователь для SecurityContext по subject токена
+     *
+     * @throws UsernameNotFoundException пользователь удалён
+     */
+    public User load(String username) {
+        long now = System.nanoTime();
+        Snapshot snapshot = snapshots.get(username);
+        if (snapshot != null && now - snapshot.loadedAt() < ttlNanos) {
+            cacheHits.increment();
+            return snapshot.toUser();
+        }
+
+        long loadGeneration = generation.get();
+        User user = readOnlyTransaction.execute(status -> userRepository.findByUsername(username)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username)));
+        databaseLoads.increment();
+
+        Snapshot loaded = Snapshot.of(user, now);
+        snapshots.put(username, loaded);
+        if (generation.get() != loadGeneration) {
+            snapshots.remove(username, loaded);
+        }
+        return loaded.toUser();
+    }
+
+    /**
+     * Сбросить все снимки. Внутри транзакции — ещё раз после коммита, чтобы
+     * запрос, прочитавший старые данные до коммита, не оставил их в кеше.
+     */
+    public void invalidateAll() {
+        clear();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clear();
+                }
+            });
+        }
+    }
+
+    private void clear() {
+        generation.incrementAndGet();
+        snapshots.clear();
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    void evictExpired() {
+        long now = System.nanoTime();
+        snapshots.values().removeIf(snapshot -> now - snapshot.loadedAt() >= ttlNanos);
+    }
+
+    private static Counter source(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("servicedesk.auth.principal")
+                .description("Получение principal для JWT-аутентификации по источнику")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Неизменяемая копия полей User на момент загрузки
+     */
+    private record Snapshot(
+            Long id,
+            String username,
+            String password,
+            String fio,
+            String email,
+            Long telegramId,
+            String domainAccount,
+            String avatarUrl,
+            boolean specialist,
+            Set<String> roles,
+            boolean active,
+            Long version,
+            Instant createdAt,
+            Instant updatedAt,
+            long loadedAt) {
+
+        static Snapshot of(User user, long loadedAt) {
+            return new Snapshot(
+                    user.getId(),
+                    user.getUsername(),
+                    user.getPassword(),
+                    user.getFio(),
+                    user.getEmail(),
+                    user.getTelegramId(),
+                    user.getDomainAccount(),
+                    user.getAvatarUrl(),
+                    user.isSpecialist(),
+                    user.getRoles() != null ? Set.copyOf(user.getRoles()) : Set.of(),
+                    user.isActive(),
+                    user.getVersion(),
+                    user.getCreatedAt(),
+                    user.getUpdatedAt(),
+                    loadedAt);
+        }
+
+        User toUser() {
+            return User.builder()
+                    .id(id)
+                    .username(username)
+                    .password(password)
+                    .fio(fio)
+                    .email(email)
+                    .telegramId(telegramId)
+                    .domainAccount(domainAccount)
+                    .avatarUrl(avatarUrl)
+                    .specialist(specialist)
+                    .roles(new HashSet<>(roles))
+                    .active(active)
+                    .version(version)
+                    .createdAt(createdAt)
+                    .updatedAt(updatedAt)
+                    .build();
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.bm.wschat.feature.dm.dto.response.DirectMessageResponse;
 import com.bm.wschat.feature.dm.dto.websocket.DmTypingIndicator;
 import com.bm.wschat.feature.dm.service.DirectMessageService;
 import com.bm.wschat.feature.user.model.User;
+import com.bm.wschat.shared.service.TypingIndicatorService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -23,13 +24,14 @@ public class DirectMessageWebSocketController {
 
     private final SimpMessagingTemplate messagingTemplate;
     private final DirectMessageService dmService;
+    private final TypingIndicatorService typingIndicatorService;
 
     /**
      * Отправить личное сообщение через WebSocket
-     * Client sends to: /app/dm/send
+     * Client sends to: /app/dm.send
      * Delivers to: /user/{recipientId}/queue/private
      */
-    @MessageMapping("/dm/send")
+    @MessageMapping("dm.send")
     public void sendDirectMessage(
             @Payload SendDirectMessageRequest request,
             Principal principal) {
@@ -66,10 +68,12 @@ public class DirectMessageWebSocketController {
 
     /**
      * Отправить индикатор печати в личном чате
-     * Client sends to: /app/dm/typing
+     * Client sends to: /app/dm.typing
      * Delivers to: /user/{recipientId}/queue/dm-typing
+     * Рассылаются только смены состояния и редкие keep-alive (см.
+     * TypingIndicatorService)
      */
-    @MessageMapping("/dm/typing")
+    @MessageMapping("dm.typing")
     public void sendTypingIndicator(
             @Payload DmTypingIndicator indicator,
             Principal principal) {
@@ -82,19 +86,24 @@ public class DirectMessageWebSocketController {
         User sender = (User) ((org.springframework.security.authentication.UsernamePasswordAuthenticationToken) principal)
                 .getPrincipal();
 
-        // Отправить получателю индикатор печати
-        DmTypingIndicator outgoing = new DmTypingIndicator(
-                sender.getId(),
-                sender.getFio(),
-                indicator.recipientId(),
-                indicator.typing());
-
-        messagingTemplate.convertAndSendToUser(
-                indicator.recipientId().toString(),
-                "/queue/dm-typing",
-                outgoing);
+        if (indicator.recipientId() == null) {
+            return;
+        }
 
-        log.debug("Индикатор печати отправлен {} -> {}: {}",
-                sender.getId(), indicator.recipientId(), indicator.typing());
+        // Отправить получателю индикатор печати (только смена состояния / keep-alive)
+        typingIndicatorService.onTypingFrame("dm:" + indicator.recipientId(), sender.getId(), indicator.typing(),
+                typing -> {
+                    messagingTemplate.convertAndSendToUser(
+                            indicator.recipientId().toString(),
+                            "/queue/dm-typing",
+                            new DmTypingIndicator(
+                                    sender.getId(),
+                                    sender.getFio(),
+                                    indicator.recipientId(),
+                                    typing));
+
+                    log.debug("Индикатор печати отправлен {} -> {}: {}",
+                            sender.getId(), indicator.recipientId(), typing);
+                });
     }
 }
@@ -4,6 +4,7 @@ import com.bm.wschat.feature.message.dto.request.SendMessageRequest;
 import com.bm.wschat.feature.message.dto.websocket.TypingIndicator;
 import com.bm.wschat.feature.message.service.MessageService;
 import com.bm.wschat.feature.user.model.User;
+import com.bm.wschat.shared.service.TypingIndicatorService;
 
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
@@ -25,14 +26,15 @@ public class MessageWebSocketController {
 
     private final SimpMessagingTemplate messagingTemplate;
     private final MessageService messageService;
+    private final TypingIndicatorService typingIndicatorService;
 
     /**
      * Отправка сообщения в чат тикета через WebSocket.
-     * Клиент отправляет на: /app/ticket/{ticketId}/send
+     * Клиент отправляет на: /app/ticket.{ticketId}.send
      * Рассылка происходит через MessageService -> RabbitMQ -> TicketEventConsumer
-     * -> /topic/ticket/{ticketId}/messages
+     * -> /topic/ticket.{ticketId}.messages
      */
-    @MessageMapping("/ticket/{ticketId}/send")
+    @MessageMapping("ticket.{ticketId}.send")
     public void sendMessage(
             @DestinationVariable Long ticketId,
             @Payload SendMessageRequest request,
@@ -52,10 +54,12 @@ public class MessageWebSocketController {
 
     /**
      * Индикатор набора текста.
-     * Клиент отправляет на: /app/ticket/{ticketId}/typing
-     * Рассылка на: /topic/ticket/{ticketId}/typing
+     * Клиент отправляет на: /app/ticket.{ticketId}.typing
+     * Рассылка на: /topic/ticket.{ticketId}.typing
+     * Рассылаются только смены состояния и редкие keep-alive (см.
+     * TypingIndicatorService), а не каждый кадр клиента
      */
-    @MessageMapping("/ticket/{ticketId}/typing")
+    @MessageMapping("ticket.{ticketId}.typing")
     public void sendTypingIndicator(
             @DestinationVariable Long ticketId,
             @Payload TypingIndicator indicator,
@@ -67,15 +71,14 @@ public class MessageWebSocketController {
         User user = (User) ((UsernamePasswordAuthenticationToken) principal)
                 .getPrincipal();
 
-        TypingIndicator broadcastIndicator = new TypingIndicator(
-                ticketId,
-                user.getId(),
-                user.getUsername(),
-                user.getFio(),
-                indicator.typing());
-
-        messagingTemplate.convertAndSend(
-                "/topic/ticket/" + ticketId + "/typing",
-                broadcastIndicator);
+        typingIndicatorService.onTypingFrame("ticket:" + ticketId, user.getId(), indicator.typing(),
+                typing -> messagingTemplate.convertAndSend(
+                        "/topic/ticket." + ticketId + ".typing",
+                        new TypingIndicator(
+                                ticketId,
+                                user.getId(),
+                                user.getUsername(),
+                                user.getFio(),
+                                typing)));
     }
 }
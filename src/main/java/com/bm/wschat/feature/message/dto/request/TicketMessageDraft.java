@@ -0,0 +1,11 @@
+package com.bm.wschat.feature.message.dto.request;
+
+/**
+ * Сообщение в тикет из внешнего канала (Telegram), ещё не сохранённое.
+ * Отправитель уже сопоставлен с пользователем системы.
+ */
+public record TicketMessageDraft(
+        Long ticketId,
+        Long senderId,
+        String content) {
+}
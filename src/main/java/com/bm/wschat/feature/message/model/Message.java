@@ -47,7 +47,7 @@ public class Message {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "messages_seq")
-    @SequenceGenerator(name = "messages_seq", sequenceName = "messages_id_seq", allocationSize = 1)
+    @SequenceGenerator(name = "messages_seq", sequenceName = "messages_id_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private Long id;
 
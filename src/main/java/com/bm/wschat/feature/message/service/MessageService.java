@@ -2,6 +2,7 @@ package com.bm.wschat.feature.message.service;
 
 import com.bm.wschat.feature.message.dto.request.EditMessageRequest;
 import com.bm.wschat.feature.message.dto.request.SendMessageRequest;
+import com.bm.wschat.feature.message.dto.request.TicketMessageDraft;
 import com.bm.wschat.feature.message.dto.response.MessageResponse;
 import com.bm.wschat.feature.message.mapper.MessageMapper;
 import com.bm.wschat.feature.message.model.Message;
@@ -11,10 +12,12 @@ import com.bm.wschat.feature.notification.service.NotificationService;
 import com.bm.wschat.feature.ticket.model.Ticket;
 import com.bm.wschat.feature.ticket.model.TicketStatus;
 import com.bm.wschat.feature.ticket.repository.TicketRepository;
+import com.bm.wschat.feature.ticket.service.TicketAccessChecker;
 import com.bm.wschat.feature.user.model.User;
 import com.bm.wschat.feature.user.repository.UserRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.AccessDeniedException;
@@ -22,23 +25,32 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import com.bm.wschat.shared.messaging.TicketEventPublisher;
 import com.bm.wschat.shared.messaging.event.TicketEvent;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
 public class MessageService {
 
+    private static final int MAX_CONTENT_LENGTH = 10000;
+
     private final MessageRepository messageRepository;
     private final TicketRepository ticketRepository;
     private final UserRepository userRepository;
     private final MessageMapper messageMapper;
     private final NotificationService notificationService;
     private final TicketEventPublisher ticketEventPublisher;
+    private final TicketAccessChecker ticketAccessChecker;
 
     /**
      * Отправка нового сообщения в тикет.
@@ -73,7 +85,69 @@ public class MessageService {
         message.setSenderType(Message.determineSenderType(sender));
 
         Message saved = messageRepository.save(message);
+        return afterSave(ticket, sender, saved);
+    }
+
+    /**
+     * Пакетная запись сообщений из внешнего канала (ответы в Telegram).
+     * Черновики, которые нельзя принять (тикет закрыт или недоступен отправителю),
+     * пропускаются — остальные сохраняются одним saveAll и проходят обычный путь
+     * уведомлений и WebSocket-событий.
+     *
+     * @return Ответы по сохранённым сообщениям в порядке черновиков
+     */
+    @Transactional
+    public List<MessageResponse> sendMessages(List<TicketMessageDraft> drafts) {
+        if (drafts.isEmpty()) {
+            return List.of();
+        }
 
+        Map<Long, Ticket> tickets = ticketRepository.findAllById(
+                        drafts.stream().map(TicketMessageDraft::ticketId).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(Ticket::getId, Function.identity()));
+        Map<Long, User> senders = userRepository.findAllById(
+                        drafts.stream().map(TicketMessageDraft::senderId).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(User::getId, Function.identity()));
+
+        List<Message> accepted = new ArrayList<>(drafts.size());
+        for (TicketMessageDraft draft : drafts) {
+            Ticket ticket = tickets.get(draft.ticketId());
+            User sender = senders.get(draft.senderId());
+            if (ticket == null || sender == null) {
+                log.warn("Skipping external message: ticket {} or sender {} not found", draft.ticketId(), draft.senderId());
+                continue;
+            }
+            if (ticket.getStatus() == TicketStatus.CLOSED) {
+                log.debug("Skipping external message to closed ticket {}", ticket.getId());
+                continue;
+            }
+            if (!ticketAccessChecker.canAccess(ticket, sender)) {
+                log.warn("Skipping external message: user {} has no access to ticket {}", sender.getId(), ticket.getId());
+                continue;
+            }
+
+            String content = draft.content().length() > MAX_CONTENT_LENGTH
+                    ? draft.content().substring(0, MAX_CONTENT_LENGTH)
+                    : draft.content();
+            accepted.add(Message.builder()
+                    .ticket(ticket)
+                    .sender(sender)
+                    .senderType(Message.determineSenderType(sender))
+                    .content(content)
+                    .build());
+        }
+
+        List<MessageResponse> responses = new ArrayList<>(accepted.size());
+        for (Message saved : messageRepository.saveAll(accepted)) {
+            responses.add(afterSave(saved.getTicket(), saved.getSender(), saved));
+        }
+        return responses;
+    }
+
+    /**
+     * Уведомления участникам и событие для WebSocket по сохранённому сообщению
+     */
+    private MessageResponse afterSave(Ticket ticket, User sender, Message saved) {
         // Отправка уведомлений (email/push) участникам
         sendMessageNotifications(ticket, sender, saved.getContent());
 
@@ -81,9 +155,9 @@ public class MessageService {
         MessageResponse response = messageMapper.toResponse(saved);
 
         if (saved.isInternal()) {
-            ticketEventPublisher.publish(TicketEvent.internalComment(ticketId, sender.getId(), response));
+            ticketEventPublisher.publish(TicketEvent.internalComment(ticket.getId(), sender.getId(), response));
         } else {
-            ticketEventPublisher.publishMessageSent(ticketId, sender.getId(), response);
+            ticketEventPublisher.publishMessageSent(ticket.getId(), sender.getId(), response);
         }
 
         return response;
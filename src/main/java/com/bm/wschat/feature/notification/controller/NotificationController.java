@@ -0,0 +1,51 @@
+package com.bm.wschat.feature.notification.controller;
+
+import com.bm.wschat.feature.notification.dto.response.NotificationInboxItemResponse;
+import com.bm.wschat.feature.notification.dto.response.NotificationInboxSummaryResponse;
+import com.bm.wschat.feature.notification.service.NotificationInboxService;
+import com.bm.wschat.feature.user.model.User;
+import com.bm.wschat.shared.common.ApiResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/notifications")
+@RequiredArgsConstructor
+@Tag(name = "Notifications", description = "Inbox уведомлений пользователя")
+public class NotificationController {
+
+    private final NotificationInboxService inboxService;
+
+    @GetMapping
+    @Operation(summary = "Уведомления с seq", description = "Возвращает уведомления с seq больше указанного по возрастанию. Используется для догрузки пропущенного после переподключения.")
+    public ResponseEntity<ApiResponse<List<NotificationInboxItemResponse>>> getSince(
+            @RequestParam(defaultValue = "0") long sinceSeq,
+            @RequestParam(defaultValue = "50") int limit,
+            @AuthenticationPrincipal User currentUser) {
+        return ResponseEntity.ok(ApiResponse.success(
+                inboxService.getSince(currentUser.getId(), sinceSeq, limit)));
+    }
+
+    @GetMapping("/summary")
+    @Operation(summary = "Счётчики inbox", description = "Последний seq, водяной знак прочтения и число непрочитанных.")
+    public ResponseEntity<ApiResponse<NotificationInboxSummaryResponse>> getSummary(
+            @AuthenticationPrincipal User currentUser) {
+        return ResponseEntity.ok(ApiResponse.success(inboxService.getSummary(currentUser.getId())));
+    }
+
+    @PostMapping("/read")
+    @Operation(summary = "Отметить прочитанными", description = "Отмечает прочитанными все уведомления с seq не больше указанного.")
+    public ResponseEntity<ApiResponse<NotificationInboxSummaryResponse>> markRead(
+            @RequestParam long upToSeq,
+            @AuthenticationPrincipal User currentUser) {
+        return ResponseEntity.ok(ApiResponse.success(
+                "Уведомления отмечены прочитанными",
+                inboxService.markReadUpTo(currentUser.getId(), upToSeq)));
+    }
+}
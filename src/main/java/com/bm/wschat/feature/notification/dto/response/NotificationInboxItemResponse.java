@@ -0,0 +1,20 @@
+package com.bm.wschat.feature.notification.dto.response;
+
+import com.bm.wschat.feature.notification.model.NotificationType;
+
+import java.time.Instant;
+
+/**
+ * Уведомление из inbox вместе с его seq
+ */
+public record NotificationInboxItemResponse(
+        Long seq,
+        NotificationType type,
+        Long ticketId,
+        String ticketTitle,
+        String title,
+        String body,
+        Long senderId,
+        String senderName,
+        Instant createdAt) {
+}
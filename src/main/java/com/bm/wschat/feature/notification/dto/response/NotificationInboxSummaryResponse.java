@@ -0,0 +1,10 @@
+package com.bm.wschat.feature.notification.dto.response;
+
+/**
+ * Счётчики inbox: последний seq, водяной знак прочтения и число непрочитанных
+ */
+public record NotificationInboxSummaryResponse(
+        long lastSeq,
+        long readSeq,
+        long unread) {
+}
@@ -0,0 +1,70 @@
+package com.bm.wschat.feature.notification.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Уведомление в inbox пользователя.
+ * seq — монотонный номер внутри inbox пользователя.
+ */
+@Entity
+@Table(name = "notification_inbox")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationInboxEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_inbox_seq")
+    @SequenceGenerator(name = "notification_inbox_seq", sequenceName = "notification_inbox_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private Long seq;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private NotificationType type;
+
+    @Column(name = "ticket_id")
+    private Long ticketId;
+
+    @Column(name = "ticket_title")
+    private String ticketTitle;
+
+    private String title;
+
+    @Column(columnDefinition = "TEXT")
+    private String body;
+
+    @Column(name = "sender_id")
+    private Long senderId;
+
+    @Column(name = "sender_name")
+    private String senderName;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    public static NotificationInboxEntry of(Long userId, long seq, Notification notification) {
+        return NotificationInboxEntry.builder()
+                .userId(userId)
+                .seq(seq)
+                .type(notification.type())
+                .ticketId(notification.ticketId())
+                .ticketTitle(notification.ticketTitle())
+                .title(notification.title())
+                .body(notification.body())
+                .senderId(notification.senderId())
+                .senderName(notification.senderName())
+                .createdAt(notification.createdAt() != null ? notification.createdAt() : Instant.now())
+                .build();
+    }
+}
@@ -0,0 +1,31 @@
+package com.bm.wschat.feature.notification.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Счётчики inbox пользователя: последний выданный seq и водяной знак прочтения.
+ * Непрочитанные = lastSeq - readSeq.
+ */
+@Entity
+@Table(name = "notification_inbox_state")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationInboxState {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "last_seq", nullable = false)
+    private Long lastSeq;
+
+    @Column(name = "read_seq", nullable = false)
+    private Long readSeq;
+
+    public long getUnread() {
+        return Math.max(0, lastSeq - readSeq);
+    }
+}
@@ -0,0 +1,25 @@
+package com.bm.wschat.feature.notification.repository;
+
+import com.bm.wschat.feature.notification.model.NotificationInboxEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface NotificationInboxRepository extends JpaRepository<NotificationInboxEntry, Long> {
+
+    /**
+     * Уведомления пользователя с seq > sinceSeq по возрастанию (range scan по user_id, seq)
+     */
+    List<NotificationInboxEntry> findByUserIdAndSeqGreaterThanOrderBySeqAsc(Long userId, Long sinceSeq, Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM NotificationInboxEntry e WHERE e.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") Instant before);
+}
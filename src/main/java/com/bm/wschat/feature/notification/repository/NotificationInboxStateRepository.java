@@ -0,0 +1,37 @@
+package com.bm.wschat.feature.notification.repository;
+
+import com.bm.wschat.feature.notification.model.NotificationInboxState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface NotificationInboxStateRepository extends JpaRepository<NotificationInboxState, Long> {
+
+    /**
+     * Выделить count номеров seq пользователю одной командой.
+     * Возвращает новый last_seq: выделены номера (last_seq - count, last_seq].
+     * Строка состояния блокируется до конца транзакции, поэтому seq монотонны.
+     */
+    @Query(value = """
+            INSERT INTO notification_inbox_state (user_id, last_seq, read_seq)
+            VALUES (:userId, :count, 0)
+            ON CONFLICT (user_id) DO UPDATE
+                SET last_seq = notification_inbox_state.last_seq + EXCLUDED.last_seq
+            RETURNING last_seq
+            """, nativeQuery = true)
+    Long allocateSeq(@Param("userId") Long userId, @Param("count") long count);
+
+    /**
+     * Сдвинуть водяной знак прочтения (только вперёд и не дальше last_seq)
+     */
+    @Modifying
+    @Query("""
+            UPDATE NotificationInboxState s
+            SET s.readSeq = CASE WHEN :seq > s.lastSeq THEN s.lastSeq ELSE :seq END
+            WHERE s.userId = :userId AND s.readSeq < :seq
+            """)
+    int advanceReadSeq(@Param("userId") Long userId, @Param("seq") Long seq);
+}
@@ -0,0 +1,85 @@
+package com.bm.wschat.feature.notification.service;
+
+import com.bm.wschat.feature.notification.dto.response.NotificationInboxItemResponse;
+import com.bm.wschat.feature.notification.dto.response.NotificationInboxSummaryResponse;
+import com.bm.wschat.feature.notification.model.NotificationInboxEntry;
+import com.bm.wschat.feature.notification.repository.NotificationInboxRepository;
+import com.bm.wschat.feature.notification.repository.NotificationInboxStateRepository;
+import com.bm.wschat.shared.config.NotificationProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Чтение inbox уведомлений: выборка "с seq", счётчики и отметка прочтения.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class NotificationInboxService {
+
+    private final NotificationInboxRepository inboxRepository;
+    private final NotificationInboxStateRepository stateRepository;
+    private final NotificationProperties notificationProperties;
+
+    /**
+     * Уведомления с seq > sinceSeq (не более limit, по возрастанию seq)
+     */
+    public List<NotificationInboxItemResponse> getSince(Long userId, long sinceSeq, int limit) {
+        int effectiveLimit = Math.clamp(limit, 1, notificationProperties.getInbox().getMaxFetch());
+        return inboxRepository.findByUserIdAndSeqGreaterThanOrderBySeqAsc(userId, sinceSeq, Limit.of(effectiveLimit))
+                .stream()
+                .map(this::toResponse)
+                .toList();
+    }
+
+    /**
+     * Счётчики inbox за одно чтение по первичному ключу
+     */
+    public NotificationInboxSummaryResponse getSummary(Long userId) {
+        return stateRepository.findById(userId)
+                .map(state -> new NotificationInboxSummaryResponse(
+                        state.getLastSeq(), state.getReadSeq(), state.getUnread()))
+                .orElse(new NotificationInboxSummaryResponse(0, 0, 0));
+    }
+
+    /**
+     * Отметить прочитанным всё до seq включительно
+     */
+    @Transactional
+    public NotificationInboxSummaryResponse markReadUpTo(Long userId, long seq) {
+        stateRepository.advanceReadSeq(userId, seq);
+        return getSummary(userId);
+    }
+
+    @Scheduled(cron = "0 30 3 * * *")
+    @Transactional
+    public void cleanup() {
+        Instant before = Instant.now().minus(Duration.ofDays(notificationProperties.getInbox().getRetentionDays()));
+        int deleted = inboxRepository.deleteCreatedBefore(before);
+        if (deleted > 0) {
+            log.info("Deleted {} notifications older than {}", deleted, before);
+        }
+    }
+
+    private NotificationInboxItemResponse toResponse(NotificationInboxEntry entry) {
+        return new NotificationInboxItemResponse(
+                entry.getSeq(),
+                entry.getType(),
+                entry.getTicketId(),
+                entry.getTicketTitle(),
+                entry.getTitle(),
+                entry.getBody(),
+                entry.getSenderId(),
+                entry.getSenderName(),
+                entry.getCreatedAt());
+    }
+}
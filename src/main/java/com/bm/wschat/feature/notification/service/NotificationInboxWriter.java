@@ -0,0 +1,183 @@
+package com.bm.wschat.feature.notification.service;
+
+import com.bm.wschat.feature.notification.model.Notification;
+import com.bm.wschat.feature.notification.model.NotificationInboxEntry;
+import com.bm.wschat.feature.notification.repository.NotificationInboxRepository;
+import com.bm.wschat.feature.notification.repository.NotificationInboxStateRepository;
+import com.bm.wschat.shared.config.NotificationProperties;
+import com.bm.wschat.shared.service.WebSocketFanoutService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пакетная запись уведомлений в inbox с последующей WebSocket доставкой.
+ * 
+ * NotificationService только кладёт уведомление в очередь. Фоновый поток
+ * забирает всё накопившееся (до batchSize) и в одной транзакции:
+ * - выделяет seq каждому получателю одной командой на пользователя
+ * - вставляет записи батчем
+ * После коммита уведомление рассылается с заголовком STOMP seq — тело
+ * кадра сериализуется один раз на уведомление.
+ * 
+ * Когда очередь пуста, уведомление пишется и доставляется сразу, под
+ * нагрузкой записи естественно группируются.
+ */
+@Slf4j
+@Component
+public class NotificationInboxWriter {
+
+    public static final String SEQ_HEADER = "seq";
+
+    private final NotificationInboxRepository inboxRepository;
+    private final NotificationInboxStateRepository stateRepository;
+    private final WebSocketFanoutService fanoutService;
+    private final TransactionTemplate transactionTemplate;
+    private final NotificationProperties.Inbox properties;
+
+    private final BlockingQueue<PendingNotification> queue;
+    private final ExecutorService writerExecutor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("notification-inbox").daemon().factory());
+    private volatile boolean running = true;
+
+    private final Counter droppedCounter;
+
+    public NotificationInboxWriter(NotificationInboxRepository inboxRepository,
+                                   NotificationInboxStateRepository stateRepository,
+                                   WebSocketFanoutService fanoutService,
+                                   PlatformTransactionManager transactionManager,
+                                   NotificationProperties notificationProperties,
+                                   MeterRegistry meterRegistry) {
+        this.inboxRepository = inboxRepository;
+        this.stateRepository = stateRepository;
+        this.fanoutService = fanoutService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = notificationProperties.getInbox();
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.droppedCounter = Counter.builder("servicedesk.notifications.inbox.dropped")
+                .description("Уведомления, доставленные без сохранения в inbox (очередь переполнена)")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        writerExecutor.execute(this::runLoop);
+    }
+
+    /**
+     * Поставить уведомление в очередь на запись и доставку. Не блокирует.
+     *
+     * @return false — очередь переполнена, уведомление не принято
+     */
+    public boolean enqueue(Collection<Long> userIds, Notification notification) {
+        if (queue.offer(new PendingNotification(List.copyOf(userIds), notification))) {
+            return true;
+        }
+        droppedCounter.increment(userIds.size());
+        return false;
+    }
+
+    private void runLoop() {
+        List<PendingNotification> batch = new ArrayList<>(properties.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingNotification first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, properties.getBatchSize() - 1);
+                writeAndDeliver(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Failed to deliver {} notifications: {}", batch.size(), e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeAndDeliver(List<PendingNotification> batch) {
+        Map<Long, Long> seqBase;
+        try {
+            seqBase = transactionTemplate.execute(status -> persist(batch));
+        } catch (Exception e) {
+            // Inbox недоступен — онлайн-получатели всё равно должны получить уведомление
+            log.error("Failed to write {} notifications to inbox, delivering without seq: {}",
+                    batch.size(), e.getMessage(), e);
+            batch.forEach(pending -> fanoutService.send(pending.userIds().stream()
+                    .map(NotificationService::destinationOf)
+                    .toList(), pending.notification()));
+            return;
+        }
+
+        // Рассылка после коммита: клиент, получивший seq, найдёт его и в inbox.
+        // Seq выдаются получателю в том же порядке, в каком шли уведомления пачки.
+        Map<Long, Long> nextSeq = new HashMap<>(seqBase);
+        for (PendingNotification pending : batch) {
+            Map<String, Map<String, String>> headersByDestination = new LinkedHashMap<>();
+            for (Long userId : pending.userIds()) {
+                long seq = nextSeq.merge(userId, 1L, Long::sum);
+                headersByDestination.put(NotificationService.destinationOf(userId),
+                        Map.of(SEQ_HEADER, Long.toString(seq)));
+            }
+            fanoutService.send(headersByDestination, pending.notification());
+        }
+    }
+
+    /**
+     * @return для каждого получателя — seq, предшествующий первому выделенному в этой пачке
+     */
+    private Map<Long, Long> persist(List<PendingNotification> batch) {
+        // Порядок по userId — блокировки строк состояния берутся в одном порядке на всех узлах
+        Map<Long, Long> counts = new TreeMap<>();
+        for (PendingNotification pending : batch) {
+            pending.userIds().forEach(userId -> counts.merge(userId, 1L, Long::sum));
+        }
+
+        Map<Long, Long> seqBase = new HashMap<>();
+        counts.forEach((userId, count) ->
+                seqBase.put(userId, stateRepository.allocateSeq(userId, count) - count));
+
+        Map<Long, Long> nextSeq = new HashMap<>(seqBase);
+        List<NotificationInboxEntry> entries = new ArrayList<>();
+        for (PendingNotification pending : batch) {
+            for (Long userId : pending.userIds()) {
+                long seq = nextSeq.merge(userId, 1L, Long::sum);
+                entries.add(NotificationInboxEntry.of(userId, seq, pending.notification()));
+            }
+        }
+        inboxRepository.saveAll(entries);
+
+        log.debug("Wrote {} notifications for {} users to inbox", entries.size(), counts.size());
+        return seqBase;
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        // Дописываем то, что уже в очереди
+        running = false;
+        writerExecutor.shutdown();
+        if (!writerExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Notification inbox writer did not finish, {} notifications lost", queue.size());
+            writerExecutor.shutdownNow();
+        }
+    }
+
+    private record PendingNotification(List<Long> userIds, Notification notification) {
+    }
+}
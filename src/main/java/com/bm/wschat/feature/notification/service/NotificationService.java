@@ -1,15 +1,21 @@
 package com.bm.wschat.feature.notification.service;
 
 import com.bm.wschat.feature.notification.model.Notification;
+import com.bm.wschat.shared.service.WebSocketFanoutService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
 
 /**
- * Сервис уведомлений через WebSocket
+ * Сервис уведомлений через WebSocket.
+ * Уведомления сохраняются в inbox пользователя (NotificationInboxWriter) и
+ * доставляются с STOMP-заголовком seq; пропущенные за время отключения
+ * клиент забирает из inbox по последнему полученному seq.
  */
 @Slf4j
 @Service
@@ -17,6 +23,8 @@ import java.util.Collection;
 public class NotificationService {
 
     private final SimpMessagingTemplate messagingTemplate;
+    private final WebSocketFanoutService fanoutService;
+    private final NotificationInboxWriter inboxWriter;
 
     /**
      * Отправить уведомление пользователю через WebSocket
@@ -27,30 +35,44 @@ public class NotificationService {
             return;
         }
 
-        String destination = "/topic/user/" + userId + "/notifications";
-        messagingTemplate.convertAndSend(destination, notification);
+        if (!inboxWriter.enqueue(List.of(userId), notification)) {
+            messagingTemplate.convertAndSend(destinationOf(userId), notification);
+        }
 
         log.debug("Уведомление отправлено {}: тип={}, ticketId={}",
                 userId, notification.type(), notification.ticketId());
     }
 
     /**
-     * Отправить уведомление нескольким пользователям
+     * Отправить уведомление нескольким пользователям.
+     * Уведомление сериализуется один раз для всех получателей.
      */
     public void notifyUsers(Collection<Long> userIds, Notification notification) {
-        for (Long userId : userIds) {
-            notifyUser(userId, notification);
+        List<Long> recipients = userIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        if (recipients.isEmpty()) {
+            return;
         }
+        if (!inboxWriter.enqueue(recipients, notification)) {
+            fanoutService.send(recipients.stream().map(NotificationService::destinationOf).toList(), notification);
+        }
+
+        log.debug("Уведомление отправлено {} получателям: тип={}, ticketId={}",
+                recipients.size(), notification.type(), notification.ticketId());
     }
 
     /**
      * Отправить уведомление всем, кроме указанного пользователя
      */
     public void notifyUsersExcept(Collection<Long> userIds, Long excludeUserId, Notification notification) {
-        for (Long userId : userIds) {
-            if (!userId.equals(excludeUserId)) {
-                notifyUser(userId, notification);
-            }
-        }
+        notifyUsers(userIds.stream()
+                .filter(userId -> !userId.equals(excludeUserId))
+                .toList(), notification);
+    }
+
+    static String destinationOf(Long userId) {
+        return "/topic/user." + userId + ".notifications";
     }
 }
@@ -12,5 +12,7 @@ public record UpdateSupportLineRequest(
 
         AssignmentMode assignmentMode,
 
-        @Min(value = 0, message = "Display order must be non-negative") Integer displayOrder) {
+        @Min(value = 0, message = "Display order must be non-negative") Integer displayOrder,
+
+        @Min(value = 0, message = "Digest window must be non-negative") @Max(value = 3600, message = "Digest window must not exceed 1 hour") Integer telegramDigestSeconds) {
 }
@@ -12,6 +12,7 @@ public record SupportLineResponse(
         Integer slaMinutes,
         AssignmentMode assignmentMode,
         Integer displayOrder,
+        Integer telegramDigestSeconds,
         Integer specialistCount,
         List<SpecialistResponse> specialists,
         Instant createdAt,
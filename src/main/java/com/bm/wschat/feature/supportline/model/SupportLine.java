@@ -83,6 +83,10 @@ public class SupportLine {
     @Column(name = "telegram_chat_id")
     private Long telegramChatId;
 
+    // Окно сводки Telegram в секундах (null/0 — без сводки)
+    @Column(name = "telegram_digest_seconds")
+    private Integer telegramDigestSeconds;
+
     @Column(name = "deleted_at")
     private Instant deletedAt;
 
@@ -19,6 +19,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -83,6 +84,9 @@ public class SupportLineService {
         if (request.displayOrder() != null) {
             line.setDisplayOrder(request.displayOrder());
         }
+        if (request.telegramDigestSeconds() != null) {
+            line.setTelegramDigestSeconds(request.telegramDigestSeconds());
+        }
 
         SupportLine updated = supportLineRepository.save(line);
         return toResponseWithSpecialists(updated);
@@ -154,6 +158,7 @@ public class SupportLineService {
                 line.getSlaMinutes(),
                 line.getAssignmentMode(),
                 line.getDisplayOrder(),
+                line.getTelegramDigestSeconds(),
                 specialists.size(),
                 specialists,
                 line.getCreatedAt(),
@@ -168,9 +173,12 @@ public class SupportLineService {
             return List.of();
         }
 
+        Map<Long, UserActivityStatus> statuses = userActivityStatusService.getStatuses(
+                specialists.stream().map(User::getId).toList());
+
         return specialists.stream()
                 .map(user -> {
-                    UserActivityStatus status = userActivityStatusService.getStatus(user.getId());
+                    UserActivityStatus status = statuses.getOrDefault(user.getId(), UserActivityStatus.OFFLINE);
                     return new SpecialistResponse(
                             user.getId(),
                             user.getUsername(),
@@ -0,0 +1,114 @@
+package com.bm.wschat.feature.ticket.controller;
+
+import com.bm.wschat.feature.ticket.dto.ticket.request.TicketReplayRequest;
+import com.bm.wschat.feature.ticket.dto.ticket.response.TicketResponse;
+import com.bm.wschat.feature.ticket.service.TicketAccessChecker;
+import com.bm.wschat.feature.ticket.service.TicketQueryService;
+import com.bm.wschat.feature.user.model.User;
+import com.bm.wschat.shared.messaging.consumer.TopicReplayBuffer;
+import com.bm.wschat.shared.messaging.event.TopicReplay;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.stereotype.Controller;
+
+import java.security.Principal;
+import java.util.Set;
+
+@Slf4j
+@Controller
+@RequiredArgsConstructor
+@Tag(name = "TicketWebSocketController", description = "Вебсокет контроллер для синхронизации состояния тикета")
+public class TicketWebSocketController {
+
+    private static final Set<String> REPLAYABLE_TOPICS = Set.of(
+            "", "patch", "messages", "attachments", "internal", "deleted");
+
+    private final TicketQueryService ticketQueryService;
+    private final TicketAccessChecker accessChecker;
+    private final TopicReplayBuffer replayBuffer;
+
+    /**
+     * Ресинхронизация тикета после пропуска патча (baseVersion патча не
+     * совпал с версией клиента).
+     * Клиент отправляет на: /app/ticket.{ticketId}.resync
+     * Ответ на: /user/queue/ticket-resync (TicketResponse с version)
+     */
+    @MessageMapping("ticket.{ticketId}.resync")
+    @SendToUser(value = "/queue/ticket-resync", broadcast = false)
+    public TicketResponse resync(@DestinationVariable Long ticketId, Principal principal) {
+        if (principal == null) {
+            log.warn("Неавторизованная попытка ресинхронизации тикета {}", ticketId);
+            return null;
+        }
+
+        User user = (User) ((UsernamePasswordAuthenticationToken) principal)
+                .getPrincipal();
+
+        return ticketQueryService.getFreshTicketById(ticketId, user);
+    }
+
+    /**
+     * Догрузка кадров топика тикета, пропущенных за время отключения.
+     * Клиент отправляет на: /app/ticket.{ticketId}.replay (TicketReplayRequest)
+     * Ответ на: /user/queue/ticket-replay (TopicReplay). Если complete = false —
+     * буфер уже прокрутился, нужна полная перезагрузка тикета/чата.
+     */
+    @MessageMapping("ticket.{ticketId}.replay")
+    @SendToUser(value = "/queue/ticket-replay", broadcast = false)
+    public TopicReplay replay(@DestinationVariable Long ticketId,
+                              @Payload TicketReplayRequest request,
+                              Principal principal) {
+        if (principal == null) {
+            log.warn("Неавторизованная попытка догрузки тикета {}", ticketId);
+            return null;
+        }
+
+        User user = (User) ((UsernamePasswordAuthenticationToken) principal)
+                .getPrincipal();
+
+        String topic = request.topic() != null ? request.topic() : "";
+        if (!REPLAYABLE_TOPICS.contains(topic)) {
+            log.warn("Недопустимый топик для догрузки: ticketId={}, topic={}", ticketId, topic);
+            return null;
+        }
+        if ("internal".equals(topic) && !user.isSpecialist() && !user.isAdmin()) {
+            log.warn("Пользователь {} запросил догрузку внутренних комментариев тикета {}", user.getId(), ticketId);
+            return null;
+        }
+        if (!accessChecker.canAccess(ticketQueryService.findTicketById(ticketId), user)) {
+            log.warn("Нет доступа к тикету {} для догрузки: userId={}", ticketId, user.getId());
+            return null;
+        }
+
+        String destination = TopicReplayBuffer.REPLAYABLE_PREFIX + ticketId + (topic.isEmpty() ? "" : "." + topic);
+        return replayBuffer.since(destination, request.epoch(), request.sinceSeq());
+    }
+
+    /**
+     * Догрузка ленты новых тикетов (/topic/ticket.new) — для специалистов.
+     * Клиент отправляет на: /app/ticket.new.replay (TicketReplayRequest, topic игнорируется)
+     * Ответ на: /user/queue/ticket-replay
+     */
+    @MessageMapping("ticket.new.replay")
+    @SendToUser(value = "/queue/ticket-replay", broadcast = false)
+    public TopicReplay replayNew(@Payload TicketReplayRequest request, Principal principal) {
+        if (principal == null) {
+            return null;
+        }
+
+        User user = (User) ((UsernamePasswordAuthenticationToken) principal)
+                .getPrincipal();
+        if (!user.isSpecialist() && !user.isAdmin()) {
+            log.warn("Пользователь {} запросил догрузку ленты новых тикетов", user.getId());
+            return null;
+        }
+
+        return replayBuffer.since(TopicReplayBuffer.REPLAYABLE_PREFIX + "new", request.epoch(), request.sinceSeq());
+    }
+}
@@ -0,0 +1,15 @@
+package com.bm.wschat.feature.ticket.dto.ticket.request;
+
+/**
+ * Запрос догрузки кадров топика тикета после переподключения.
+ *
+ * @param topic    подтопик: "" (/topic/ticket.{id}), "patch", "messages",
+ *                 "attachments", "internal", "deleted"
+ * @param epoch    значение заголовка seq-epoch последнего полученного кадра
+ * @param sinceSeq значение заголовка seq последнего полученного кадра
+ */
+public record TicketReplayRequest(
+        String topic,
+        String epoch,
+        long sinceSeq) {
+}
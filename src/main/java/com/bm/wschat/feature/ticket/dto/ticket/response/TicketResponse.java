@@ -34,5 +34,8 @@ public record TicketResponse(
                 Instant updatedAt,
 
                 // Последнее назначение (включает причину отклонения если было)
-                AssignmentResponse lastAssignment) {
+                AssignmentResponse lastAssignment,
+
+                // @Version тикета — база для применения патчей /topic/ticket.{id}.patch
+                Long version) {
 }
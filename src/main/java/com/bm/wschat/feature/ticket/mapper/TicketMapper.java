@@ -30,6 +30,7 @@ public interface TicketMapper {
     @Mapping(target = "attachments", ignore = true)
     @Mapping(target = "assignments", ignore = true)
     @Mapping(target = "slaDeadline", ignore = true)
+    @Mapping(target = "slaBreachedAt", ignore = true)
     @Mapping(target = "resolvedAt", ignore = true)
     @Mapping(target = "closedAt", ignore = true)
     @Mapping(target = "deletedAt", ignore = true)
@@ -108,6 +108,16 @@ public class Ticket {
     private TicketPriority priority = TicketPriority.MEDIUM;
 
     private Instant slaDeadline;
+
+    /**
+     * Когда опубликовано нарушение SLA (SLA_BREACH публикуется один раз).
+     * Пишется только TicketRepository.markSlaBreached: сохранение устаревшей
+     * сущности не должно вернуть в колонку NULL
+     */
+    @Column(name = "sla_breached_at", insertable = false, updatable = false)
+    @NotAudited
+    private Instant slaBreachedAt;
+
     private Instant resolvedAt;
     private Instant closedAt;
 
@@ -6,11 +6,13 @@ import com.bm.wschat.feature.ticket.model.TicketStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -156,4 +158,66 @@ public interface TicketRepository extends JpaRepository<Ticket, Long> {
         */
        @Query("SELECT AVG(t.rating), COUNT(t) FROM Ticket t WHERE t.assignedTo.id = :userId AND t.rating IS NOT NULL")
        List<Object[]> getAverageRatingBySpecialist(@Param("userId") Long userId);
+
+       // =====================================================================
+       // EVENTS
+       // =====================================================================
+
+       /**
+        * Текущие версии тикетов: [0] = id, [1] = version.
+        * Используется для штампа версии на событиях перед коммитом.
+        */
+       @Query("SELECT t.id, t.version FROM Ticket t WHERE t.id IN :ids")
+       List<Object[]> findVersionsByIds(@Param("ids") Collection<Long> ids);
+
+       /**
+        * Текущая карточка тикета в чате линии (null — карточки нет)
+        */
+       @Query("SELECT t.telegramLastBotMessageId FROM Ticket t WHERE t.id = :ticketId")
+       Long findTelegramLastBotMessageId(@Param("ticketId") Long ticketId);
+
+       /**
+        * Запомнить сообщение-карточку тикета в чате линии, если карточка всё ещё
+        * та, которую заменяем (previousMessageId, null — карточки не было).
+        * 0 строк — карточку уже отправил другой консьюмер.
+        * Массовый UPDATE не трогает версию тикета и аудит — это служебное поле.
+        */
+       @Modifying
+       @Query("UPDATE Ticket t SET t.telegramLastBotMessageId = :messageId WHERE t.id = :ticketId " +
+                     "AND (t.telegramLastBotMessageId IS NULL OR t.telegramLastBotMessageId = :previousMessageId)")
+       int replaceTelegramLastBotMessageId(@Param("ticketId") Long ticketId,
+                                           @Param("previousMessageId") Long previousMessageId,
+                                           @Param("messageId") Long messageId);
+
+       /**
+        * Тикеты по веткам (topics) Telegram: [0] = id, [1] = message_thread_id, [2] = чат линии.
+        * message_thread_id уникален только внутри чата — сверяется вызывающим.
+        */
+       @Query("SELECT t.id, t.telegramMessageThreadId, l.telegramChatId FROM Ticket t JOIN t.supportLine l " +
+                     "WHERE t.telegramMessageThreadId IN :threadIds")
+       List<Object[]> findTelegramThreadBindings(@Param("threadIds") Collection<Long> threadIds);
+
+       /**
+        * Тикеты по карточкам в чатах линий: [0] = id, [1] = message_id карточки, [2] = чат линии.
+        */
+       @Query("SELECT t.id, t.telegramLastBotMessageId, l.telegramChatId FROM Ticket t JOIN t.supportLine l " +
+                     "WHERE t.telegramLastBotMessageId IN :messageIds")
+       List<Object[]> findTelegramCardBindings(@Param("messageIds") Collection<Long> messageIds);
+
+       /**
+        * Просроченные по SLA тикеты, о которых ещё не сообщали, — раньше всех самые просроченные
+        */
+       @Query("SELECT t.id FROM Ticket t WHERE t.slaBreachedAt IS NULL AND t.slaDeadline < :now " +
+                     "AND t.status IN :statuses ORDER BY t.slaDeadline")
+       List<Long> findSlaBreachCandidates(@Param("now") Instant now,
+                                          @Param("statuses") Collection<TicketStatus> statuses,
+                                          Pageable pageable);
+
+       /**
+        * Отметить нарушение SLA. Условие на slaBreachedAt гарантирует, что при
+        * нескольких инстансах отметку (и событие) получает только один.
+        */
+       @Modifying
+       @Query("UPDATE Ticket t SET t.slaBreachedAt = :now WHERE t.id = :ticketId AND t.slaBreachedAt IS NULL")
+       int markSlaBreached(@Param("ticketId") Long ticketId, @Param("now") Instant now);
 }
@@ -114,8 +114,8 @@ public class AssignmentService {
             }
 
             // Проверка доступности специалиста по статусу активности
-            if (!userActivityStatusService.isAvailableForAssignment(toUser.getId())) {
-                UserActivityStatus status = userActivityStatusService.getStatus(toUser.getId());
+            UserActivityStatus status = userActivityStatusService.getStatus(toUser.getId());
+            if (!status.isAvailableForAssignment()) {
                 throw new IllegalStateException(
                         "Специалист " + toUser.getUsername() + " недоступен для назначения тикетов. " +
                                 "Текущий статус: " + status);
@@ -146,22 +146,18 @@ public class AssignmentService {
         // RabbitMQ: уведомляем об обновлении тикета (для подписчиков тикета)
         ticketEventPublisher.publishAssigned(ticket.getId(), assignedById, ticketMapper.toResponse(ticket));
 
-        // RabbitMQ: персональное уведомление получателю назначения
+        AssignmentResponse response = assignmentMapper.toResponse(saved);
+
+        // RabbitMQ: уведомление получателю назначения
         if (saved.getToUser() != null) {
             // Прямое назначение конкретному специалисту
-            ticketEventPublisher.publishAssignmentCreated(
-                    ticket.getId(),
-                    saved.getToUser().getId(),
-                    assignmentMapper.toResponse(saved));
+            ticketEventPublisher.publishAssignmentCreated(ticket.getId(), saved.getToUser().getId(), response);
         } else {
-            // Назначение на линию - уведомляем всех специалистов линии
-            toLine.getSpecialists().forEach(specialist -> ticketEventPublisher.publishAssignmentCreated(
-                    ticket.getId(),
-                    specialist.getId(),
-                    assignmentMapper.toResponse(saved)));
+            // Назначение на линию - одно событие в топик линии для всех её специалистов
+            ticketEventPublisher.publishLineAssignmentCreated(ticket.getId(), toLine.getId(), response);
         }
 
-        return assignmentMapper.toResponse(saved);
+        return response;
     }
 
     /**
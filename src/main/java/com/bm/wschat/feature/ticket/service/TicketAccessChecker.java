@@ -56,6 +56,26 @@ public class TicketAccessChecker {
         return false;
     }
 
+    /**
+     * Проверить может ли пользователь видеть внутренние комментарии тикета.
+     * Только специалисты с доступом к тикету — как в истории сообщений.
+     */
+    public boolean canAccessInternal(Ticket ticket, User user) {
+        return user.isSpecialist() && canAccess(ticket, user);
+    }
+
+    /**
+     * Проверить может ли пользователь следить за линией поддержки
+     * (назначения и статусы специалистов линии).
+     */
+    public boolean canWatchLine(Long lineId, User user) {
+        if (user.isAdmin()) {
+            return true;
+        }
+        return user.isSpecialist() && supportLineRepository.findBySpecialist(user).stream()
+                .anyMatch(line -> line.getId().equals(lineId));
+    }
+
     /**
      * Проверить может ли пользователь редактировать тикет.
      * Более строгие правила чем для чтения.
@@ -44,6 +44,18 @@ public class TicketQueryService {
      */
     @Cacheable(cacheNames = "ticket", key = "#id")
     public TicketResponse getTicketById(Long id, User user) {
+        return loadTicket(id, user);
+    }
+
+    /**
+     * Получить актуальное состояние тикета в обход кеша (ресинхронизация
+     * клиента, обнаружившего пропуск версии в патчах).
+     */
+    public TicketResponse getFreshTicketById(Long id, User user) {
+        return loadTicket(id, user);
+    }
+
+    private TicketResponse loadTicket(Long id, User user) {
         Ticket ticket = findTicketById(id);
 
         if (!accessChecker.canAccess(ticket, user)) {
@@ -92,7 +104,8 @@ public class TicketQueryService {
                     response.closedAt(),
                     response.createdAt(),
                     response.updatedAt(),
-                    assignmentMapper.toResponse(lastAssignment));
+                    assignmentMapper.toResponse(lastAssignment),
+                    response.version());
         }
 
         return response;
@@ -0,0 +1,88 @@
+package com.bm.wschat.feature.ticket.service;
+
+import com.bm.wschat.feature.ticket.mapper.TicketMapper;
+import com.bm.wschat.feature.ticket.model.TicketStatus;
+import com.bm.wschat.feature.ticket.repository.TicketRepository;
+import com.bm.wschat.shared.config.SlaProperties;
+import com.bm.wschat.shared.messaging.TicketEventPublisher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Публикация нарушений SLA.
+ * 
+ * По расписанию находит незавершённые тикеты с истёкшим slaDeadline и
+ * публикует SLA_BREACH (клиенты — /topic/sla.breach, чат линии в Telegram —
+ * сразу, минуя сводку). Отметка sla_breached_at ставится условным UPDATE в
+ * той же транзакции, что и запись события в outbox: при нескольких инстансах
+ * событие по тикету публикуется один раз.
+ */
+@Slf4j
+@Service
+public class TicketSlaMonitor {
+
+    /** Статусы, в которых тикет ещё ждёт решения */
+    private static final Set<TicketStatus> OPEN_STATUSES = EnumSet.of(
+            TicketStatus.NEW, TicketStatus.OPEN, TicketStatus.PENDING,
+            TicketStatus.ESCALATED, TicketStatus.REOPENED);
+
+    private final TicketRepository ticketRepository;
+    private final TicketMapper ticketMapper;
+    private final TicketEventPublisher eventPublisher;
+    private final SlaProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter breachCounter;
+
+    public TicketSlaMonitor(TicketRepository ticketRepository,
+                            TicketMapper ticketMapper,
+                            TicketEventPublisher eventPublisher,
+                            SlaProperties properties,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry) {
+        this.ticketRepository = ticketRepository;
+        this.ticketMapper = ticketMapper;
+        this.eventPublisher = eventPublisher;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.breachCounter = Counter.builder("servicedesk.tickets.sla.breaches")
+                .description("Опубликованные нарушения SLA")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.sla.check-interval-ms:30000}")
+    public void checkDeadlines() {
+        Instant now = Instant.now();
+        List<Long> overdue = ticketRepository.findSlaBreachCandidates(
+                now, OPEN_STATUSES, PageRequest.of(0, properties.getBatchSize()));
+        for (Long ticketId : overdue) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> publishBreach(ticketId, now));
+            } catch (Exception e) {
+                log.warn("Failed to publish SLA breach for ticket {}: {}", ticketId, e.getMessage());
+            }
+        }
+    }
+
+    private void publishBreach(Long ticketId, Instant now) {
+        if (ticketRepository.markSlaBreached(ticketId, now) == 0) {
+            // Отметил другой инстанс
+            return;
+        }
+        ticketRepository.findById(ticketId).ifPresent(ticket -> {
+            eventPublisher.publishSlaBreach(ticketId, ticketMapper.toResponse(ticket));
+            breachCounter.increment();
+            log.warn("SLA breached: ticketId={}, deadline={}", ticketId, ticket.getSlaDeadline());
+        });
+    }
+}
@@ -5,7 +5,7 @@ import com.bm.wschat.feature.user.dto.response.UserSearchResponse;
 import com.bm.wschat.feature.user.dto.response.UserStatusResponse;
 import com.bm.wschat.feature.user.model.User;
 import com.bm.wschat.feature.user.model.UserActivityStatus;
-import com.bm.wschat.feature.user.model.UserActivityStatusEntity;
+import com.bm.wschat.feature.user.model.UserPresence;
 import com.bm.wschat.feature.user.repository.UserRepository;
 import com.bm.wschat.feature.user.service.UserActivityStatusService;
 import com.bm.wschat.shared.common.ApiResponse;
@@ -71,21 +71,13 @@ public class UserController {
         public ResponseEntity<ApiResponse<UserStatusResponse>> getStatus(
                         @AuthenticationPrincipal User user) {
 
-                UserActivityStatusEntity entity = userActivityStatusService.getStatusEntity(user.getId());
-
-                UserStatusResponse response;
-                if (entity != null) {
-                        response = new UserStatusResponse(
-                                        entity.getStatus(),
-                                        entity.getStatus().isAvailableForAssignment(),
-                                        entity.getUpdatedAt());
-                } else {
-                        // Если записи нет - пользователь OFFLINE
-                        response = new UserStatusResponse(
-                                        UserActivityStatus.OFFLINE,
-                                        false,
-                                        null);
-                }
+                // Если статуса нет - пользователь OFFLINE (updatedAt = null)
+                UserPresence presence = userActivityStatusService.getPresence(user.getId());
+
+                UserStatusResponse response = new UserStatusResponse(
+                                presence.status(),
+                                presence.status().isAvailableForAssignment(),
+                                presence.updatedAt());
 
                 return ResponseEntity.ok(ApiResponse.success(response));
         }
@@ -102,20 +94,12 @@ public class UserController {
         public ResponseEntity<ApiResponse<UserStatusResponse>> getUserStatus(
                         @PathVariable Long userId) {
 
-                UserActivityStatusEntity entity = userActivityStatusService.getStatusEntity(userId);
-
-                UserStatusResponse response;
-                if (entity != null) {
-                        response = new UserStatusResponse(
-                                        entity.getStatus(),
-                                        entity.getStatus().isAvailableForAssignment(),
-                                        entity.getUpdatedAt());
-                } else {
-                        response = new UserStatusResponse(
-                                        UserActivityStatus.OFFLINE,
-                                        false,
-                                        null);
-                }
+                UserPresence presence = userActivityStatusService.getPresence(userId);
+
+                UserStatusResponse response = new UserStatusResponse(
+                                presence.status(),
+                                presence.status().isAvailableForAssignment(),
+                                presence.updatedAt());
 
                 return ResponseEntity.ok(ApiResponse.success(response));
         }
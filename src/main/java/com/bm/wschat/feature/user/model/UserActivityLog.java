@@ -25,7 +25,7 @@ public class UserActivityLog {
     @SequenceGenerator(
             name = "user_activity_log_seq",
             sequenceName = "user_activity_log_id_seq",
-            allocationSize = 1
+            allocationSize = 50
     )
     private Long id;
 
@@ -42,6 +42,9 @@ public class UserActivityLog {
 
     @PrePersist
     protected void onCreate() {
-        eventTime = Instant.now();
+        // При пакетной записи время события проставляется в момент события, а не вставки
+        if (eventTime == null) {
+            eventTime = Instant.now();
+        }
     }
 }
@@ -0,0 +1,14 @@
+package com.bm.wschat.feature.user.model;
+
+import java.time.Instant;
+
+/**
+ * Текущий статус активности пользователя.
+ *
+ * @param status    статус; OFFLINE, если пользователь ни разу не входил
+ * @param updatedAt время последней смены; null, если статуса ещё не было
+ */
+public record UserPresence(UserActivityStatus status, Instant updatedAt) {
+
+    public static final UserPresence UNKNOWN = new UserPresence(UserActivityStatus.OFFLINE, null);
+}
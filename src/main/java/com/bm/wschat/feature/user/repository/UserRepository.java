@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -41,6 +42,12 @@ public interface UserRepository extends JpaRepository<User, Long> {
          */
         boolean existsByTelegramIdAndIdNot(Long telegramId, Long id);
 
+        /**
+         * Пользователи по привязанным Telegram-аккаунтам: [0] = telegramId, [1] = id.
+         */
+        @Query("SELECT u.telegramId, u.id FROM User u WHERE u.telegramId IN :telegramIds")
+        List<Object[]> findIdsByTelegramIds(@Param("telegramIds") Collection<Long> telegramIds);
+
         /**
          * Поиск пользователей по username или ФИО (для админ-панели)
          */
@@ -170,7 +170,7 @@ public class ProfileService {
         foundedUser.setPassword(passwordEncoder.encode(newPassword));
         foundedUser.setUpdatedAt(Instant.now());
 
-        userRepository.save(user);
+        userRepository.save(foundedUser);
         log.info("Пароль изменен для пользователя: {}", user.getUsername());
     }
 
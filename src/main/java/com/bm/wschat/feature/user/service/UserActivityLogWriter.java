@@ -0,0 +1,183 @@
+package com.bm.wschat.feature.user.service;
+
+import com.bm.wschat.feature.user.model.UserActivityEventType;
+import com.bm.wschat.feature.user.model.UserActivityLog;
+import com.bm.wschat.feature.user.repository.UserActivityLogRepository;
+import com.bm.wschat.feature.user.repository.UserRepository;
+import com.bm.wschat.shared.config.ActivityLogProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пакетная запись журнала активности (user_activity_logs).
+ *
+ * Журнал только дополняется и никем не читается в том же запросе, поэтому
+ * вызывающий код лишь кладёт событие в очередь, а фоновый поток забирает всё
+ * накопившееся (до batchSize) и вставляет одной транзакцией — JDBC-батчами
+ * Hibernate (hibernate.jdbc.batch_size), id выделяются пулом по 50. Время
+ * события фиксируется при постановке в очередь.
+ *
+ * Если пачка не записалась (например, пользователь уже удалён), события
+ * пишутся по одному, чтобы одна строка не потянула за собой остальные.
+ *
+ * Метрики: servicedesk.activity_log.latency — от события до коммита,
+ * servicedesk.activity_log.dropped{reason=queue-full|write-failed},
+ * servicedesk.activity_log.queue — текущая длина очереди.
+ */
+@Slf4j
+@Component
+public class UserActivityLogWriter {
+
+    private final UserActivityLogRepository activityLogRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ActivityLogProperties properties;
+
+    private final BlockingQueue<PendingEvent> queue;
+    private final ExecutorService writerExecutor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("activity-log-writer").daemon().factory());
+    private volatile boolean running = true;
+
+    private final Timer latencyTimer;
+    private final Counter queueFullCounter;
+    private final Counter writeFailedCounter;
+
+    public UserActivityLogWriter(UserActivityLogRepository activityLogRepository,
+                                 UserRepository userRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 ActivityLogProperties properties,
+                                 MeterRegistry meterRegistry) {
+        this.activityLogRepository = activityLogRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+
+        this.latencyTimer = Timer.builder("servicedesk.activity_log.latency")
+                .description("Время от события активности до его записи в журнал")
+                .register(meterRegistry);
+        this.queueFullCounter = dropped(meterRegistry, "queue-full");
+        this.writeFailedCounter = dropped(meterRegistry, "write-failed");
+        Gauge.builder("servicedesk.activity_log.queue", queue, BlockingQueue::size)
+                .description("События активности, ожидающие записи")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        writerExecutor.execute(this::runLoop);
+    }
+
+    /**
+     * Поставить событие в очередь на запись. Не блокирует.
+     *
+     * @return false — очередь переполнена, событие не будет записано
+     */
+    public boolean enqueue(Long userId, UserActivityEventType eventType) {
+        if (queue.offer(new PendingEvent(userId, eventType, Instant.now()))) {
+            return true;
+        }
+        queueFullCounter.increment();
+        log.warn("Activity log queue is full, dropping {} of user {}", eventType, userId);
+        return false;
+    }
+
+    private void runLoop() {
+        List<PendingEvent> batch = new ArrayList<>(properties.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingEvent first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, properties.getBatchSize() - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Failed to write {} activity log events: {}", batch.size(), e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingEvent> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    activityLogRepository.saveAll(batch.stream().map(this::toEntity).toList()));
+            recordLatency(batch);
+            log.debug("Wrote {} activity log events", batch.size());
+            return;
+        } catch (Exception e) {
+            log.warn("Failed to write {} activity log events as a batch, retrying one by one: {}",
+                    batch.size(), e.getMessage());
+        }
+
+        for (PendingEvent event : batch) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> activityLogRepository.save(toEntity(event)));
+                recordLatency(List.of(event));
+            } catch (Exception e) {
+                writeFailedCounter.increment();
+                log.warn("Dropping {} of user {}: {}", event.eventType(), event.userId(), e.getMessage());
+            }
+        }
+    }
+
+    private UserActivityLog toEntity(PendingEvent event) {
+        return UserActivityLog.builder()
+                .user(userRepository.getReferenceById(event.userId()))
+                .eventType(event.eventType())
+                .eventTime(event.eventTime())
+                .build();
+    }
+
+    private void recordLatency(List<PendingEvent> events) {
+        Instant now = Instant.now();
+        for (PendingEvent event : events) {
+            latencyTimer.record(Duration.between(event.eventTime(), now));
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        // Дописываем то, что уже в очереди
+        running = false;
+        writerExecutor.shutdown();
+        if (!writerExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Activity log writer did not finish, {} events lost", queue.size());
+            writerExecutor.shutdownNow();
+        }
+    }
+
+    private static Counter dropped(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("servicedesk.activity_log.dropped")
+                .description("События активности, не попавшие в журнал")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private record PendingEvent(Long userId, UserActivityEventType eventType, Instant eventTime) {
+    }
+}
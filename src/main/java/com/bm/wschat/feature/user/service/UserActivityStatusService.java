@@ -3,19 +3,25 @@ package com.bm.wschat.feature.user.service;
 import com.bm.wschat.feature.supportline.repository.SupportLineRepository;
 import com.bm.wschat.feature.user.model.User;
 import com.bm.wschat.feature.user.model.UserActivityStatus;
-import com.bm.wschat.feature.user.model.UserActivityStatusEntity;
-import com.bm.wschat.feature.user.repository.UserActivityStatusRepository;
+import com.bm.wschat.feature.user.model.UserPresence;
 import com.bm.wschat.shared.messaging.event.TicketEvent;
 import com.bm.wschat.shared.messaging.TicketEventPublisher;
 import com.bm.wschat.shared.messaging.TicketEventType;
+import com.bm.wschat.shared.config.PresenceProperties;
 
-import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Сервис управления статусом активности специалистов.
  * <p>
@@ -24,34 +30,47 @@ import org.springframework.transaction.annotation.Transactional;
  * <li>AVAILABLE, BUSY - можно назначать тикеты</li>
  * <li>UNAVAILABLE, TECHNICAL_ISSUE, OFFLINE - нельзя назначать</li>
  * </ul>
+ * Статусы хранит UserPresenceService (Redis + отложенная запись в БД).
+ * OFFLINE выставляется и автоматически — когда у пользователя не остаётся
+ * WebSocket-сессий дольше app.presence.offline-grace-seconds.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
-@Transactional(readOnly = true)
 public class UserActivityStatusService {
 
-    private final UserActivityStatusRepository statusRepository;
+    private final UserPresenceService presenceService;
     private final UserActivityLogService activityLogService;
     private final TicketEventPublisher ticketEventPublisher;
     private final SupportLineRepository supportLineRepository;
+    private final PresenceProperties presenceProperties;
+
+    /** Пользователи без WebSocket-сессий: кого и когда перевести в OFFLINE */
+    private final Map<Long, PendingOffline> pendingOffline = new ConcurrentHashMap<>();
 
     /**
      * Получить текущий статус пользователя.
-     * Если запись не найдена, возвращает OFFLINE.
+     * Если статуса нет, возвращает OFFLINE.
      */
     public UserActivityStatus getStatus(Long userId) {
-        return statusRepository.findByUserId(userId)
-                .map(UserActivityStatusEntity::getStatus)
-                .orElse(UserActivityStatus.OFFLINE);
+        return presenceService.get(userId).status();
+    }
+
+    /**
+     * Получить статусы нескольких пользователей одним запросом.
+     * Пользователи без статуса — OFFLINE.
+     */
+    public Map<Long, UserActivityStatus> getStatuses(Collection<Long> userIds) {
+        Map<Long, UserActivityStatus> statuses = new HashMap<>();
+        presenceService.getAll(userIds).forEach((userId, presence) -> statuses.put(userId, presence.status()));
+        return statuses;
     }
 
     /**
-     * Получить сущность статуса пользователя (с временем обновления).
+     * Получить статус пользователя с временем обновления.
      */
-    public UserActivityStatusEntity getStatusEntity(Long userId) {
-        return statusRepository.findByUserId(userId)
-                .orElse(null);
+    public UserPresence getPresence(Long userId) {
+        return presenceService.get(userId);
     }
 
     /**
@@ -69,9 +88,8 @@ public class UserActivityStatusService {
      * Обработка входа пользователя.
      * Устанавливает статус AVAILABLE.
      */
-    @Transactional
     public void onLogin(User user) {
-        updateStatus(user, UserActivityStatus.AVAILABLE, false);
+        presenceService.set(user.getId(), UserActivityStatus.AVAILABLE);
         log.debug("Статус при входе: userId={}, status=AVAILABLE", user.getId());
     }
 
@@ -79,12 +97,56 @@ public class UserActivityStatusService {
      * Обработка выхода пользователя.
      * Устанавливает статус OFFLINE.
      */
-    @Transactional
     public void onLogout(User user) {
-        updateStatus(user, UserActivityStatus.OFFLINE, false);
+        pendingOffline.remove(user.getId());
+        presenceService.set(user.getId(), UserActivityStatus.OFFLINE);
         log.debug("Статус при выходе: userId={}, status=OFFLINE", user.getId());
     }
 
+    /**
+     * Открыта WebSocket-сессия. Пользователь, которого перевели в OFFLINE
+     * по разрыву соединения, получает статус, который был до этого
+     * (BUSY, UNAVAILABLE и т.д.); если он неизвестен — AVAILABLE.
+     */
+    public void onConnect(User user, String sessionId) {
+        pendingOffline.remove(user.getId());
+        if (presenceService.connected(user.getId(), sessionId) == 1
+                && getStatus(user.getId()) == UserActivityStatus.OFFLINE) {
+            UserActivityStatus previous = presenceService.takeStatusBeforeOffline(user.getId());
+            changeAutomatically(user, UserActivityStatus.OFFLINE,
+                    previous != null ? previous : UserActivityStatus.AVAILABLE);
+        }
+    }
+
+    /**
+     * Закрыта WebSocket-сессия. После последней — ждём переподключения
+     * (перезагрузка страницы, смена сети) и только потом OFFLINE.
+     */
+    public void onDisconnect(User user, String sessionId) {
+        if (presenceService.disconnected(user.getId(), sessionId) == 0) {
+            long graceNanos = TimeUnit.SECONDS.toNanos(presenceProperties.getOfflineGraceSeconds());
+            pendingOffline.put(user.getId(), new PendingOffline(user, System.nanoTime() + graceNanos));
+        }
+    }
+
+    @Scheduled(fixedDelay = 1000)
+    public void expireDisconnected() {
+        long now = System.nanoTime();
+        pendingOffline.forEach((userId, pending) -> {
+            if (now - pending.deadlineNanos() < 0 || !pendingOffline.remove(userId, pending)) {
+                return;
+            }
+            // Пользователь мог переподключиться к другому инстансу
+            if (presenceService.connections(userId) > 0) {
+                return;
+            }
+            UserActivityStatus current = getStatus(userId);
+            if (current != UserActivityStatus.OFFLINE) {
+                changeAutomatically(pending.user(), current, UserActivityStatus.OFFLINE);
+            }
+        });
+    }
+
     /**
      * Установить статус вручную (только для специалистов).
      * 
@@ -101,25 +163,46 @@ public class UserActivityStatusService {
             throw new AccessDeniedException("Только специалисты могут управлять статусом активности");
         }
 
-        // Получаем текущий статус
-        UserActivityStatusEntity entity = statusRepository.findByUserId(user.getId())
-                .orElseThrow(() -> new EntityNotFoundException(
-                        "Запись статуса не найдена для пользователя: " + user.getId()));
+        UserActivityStatus oldStatus = getStatus(user.getId());
 
         // Проверка на повторную установку того же статуса
-        if (entity.getStatus() == newStatus) {
+        if (oldStatus == newStatus) {
             throw new IllegalStateException("Статус уже установлен в: " + newStatus);
         }
 
-        UserActivityStatus oldStatus = entity.getStatus();
-        updateStatus(user, newStatus, true);
+        presenceService.set(user.getId(), newStatus);
+        activityLogService.logStatusChange(user);
 
         log.info("Статус изменён: userId={}, username={}, {} -> {}",
                 user.getId(), user.getUsername(), oldStatus, newStatus);
 
-        // Публикуем изменение статуса для каждой линии поддержки, к которой принадлежит
-        // специалист
-        var payload = java.util.Map.of(
+        publishStatusChange(user, oldStatus, newStatus);
+        return newStatus;
+    }
+
+    /**
+     * Смена статуса по подключению/отключению WebSocket
+     */
+    private void changeAutomatically(User user, UserActivityStatus oldStatus, UserActivityStatus newStatus) {
+        if (newStatus == UserActivityStatus.OFFLINE) {
+            presenceService.setOffline(user.getId(), oldStatus);
+        } else {
+            presenceService.set(user.getId(), newStatus);
+        }
+        activityLogService.logStatusChange(user);
+        log.debug("Статус по WebSocket-сессиям: userId={}, {} -> {}", user.getId(), oldStatus, newStatus);
+
+        if (user.isSpecialist()) {
+            publishStatusChange(user, oldStatus, newStatus);
+        }
+    }
+
+    /**
+     * Публикуем изменение статуса для каждой линии поддержки, к которой
+     * принадлежит специалист
+     */
+    private void publishStatusChange(User user, UserActivityStatus oldStatus, UserActivityStatus newStatus) {
+        var payload = Map.of(
                 "userId", user.getId(),
                 "username", user.getUsername(),
                 "fio", user.getFio() != null ? user.getFio() : user.getUsername(),
@@ -131,29 +214,8 @@ public class UserActivityStatusService {
                     TicketEventType.USER_STATUS_CHANGED,
                     line.getId(), user.getId(), payload));
         }
-
-        return newStatus;
     }
 
-    /**
-     * Внутренний метод обновления статуса.
-     * 
-     * @param user      пользователь
-     * @param newStatus новый статус
-     * @param logChange записывать ли в аудит
-     */
-    private void updateStatus(User user, UserActivityStatus newStatus, boolean logChange) {
-        UserActivityStatusEntity entity = statusRepository.findById(user.getId())
-                .orElseGet(() -> UserActivityStatusEntity.builder()
-                        .user(user)
-                        .status(newStatus)
-                        .build());
-
-        entity.setStatus(newStatus);
-        statusRepository.save(entity);
-
-        if (logChange) {
-            activityLogService.logStatusChange(user);
-        }
+    private record PendingOffline(User user, long deadlineNanos) {
     }
 }
@@ -2,6 +2,7 @@ package com.bm.wschat.feature.user.service;
 
 import com.bm.wschat.feature.user.model.User;
 import com.bm.wschat.feature.user.repository.UserRepository;
+import com.bm.wschat.shared.security.jwt.TokenRevocationService;
 import com.bm.wschat.shared.validation.PasswordValidator;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.constraints.NotNull;
@@ -16,6 +17,8 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Instant;
 import java.util.Set;
@@ -29,6 +32,7 @@ public class UserManagementService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final PasswordValidator passwordValidator;
+    private final TokenRevocationService tokenRevocationService;
 
     @Transactional(readOnly = true)
     public Page<User> findAllUsers(Pageable pageable, String search) {
@@ -84,6 +88,8 @@ public class UserManagementService {
             user.setRoles(roles);
         if (active != null)
             user.setActive(active);
+        if (Boolean.FALSE.equals(active))
+            signOut(user);
 
         user.setUpdatedAt(Instant.now());
 
@@ -127,6 +133,9 @@ public class UserManagementService {
                 .orElseThrow(() -> new EntityNotFoundException("Пользователь не найден: " + userId));
 
         user.setActive(active);
+        if (Boolean.FALSE.equals(active)) {
+            signOut(user);
+        }
         user.setUpdatedAt(Instant.now());
 
         User updatedUser = userRepository.save(user);
@@ -160,6 +169,7 @@ public class UserManagementService {
         }
 
         userRepository.deleteById(userId);
+        revokeAllAfterCommit(userId);
         log.info("Удален пользователь: {}", userId);
     }
 
@@ -169,4 +179,30 @@ public class UserManagementService {
         return userRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Пользователь не найден: " + id));
     }
+
+    /**
+     * Завершить все сессии деактивированного пользователя: refresh токен
+     * удаляется (orphanRemoval), выданные access токены отзываются
+     */
+    private void signOut(User user) {
+        user.setRefreshToken(null);
+        revokeAllAfterCommit(user.getId());
+    }
+
+    /**
+     * Отзыв рассылается другим инстансам сразу, поэтому — только после
+     * коммита: при откате пользователь не должен остаться без сессий
+     */
+    private void revokeAllAfterCommit(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            tokenRevocationService.revokeAll(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                tokenRevocationService.revokeAll(userId);
+            }
+        });
+    }
 }
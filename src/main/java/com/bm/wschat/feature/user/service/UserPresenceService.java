@@ -0,0 +1,405 @@
+package com.bm.wschat.feature.user.service;
+
+import com.bm.wschat.feature.user.model.User;
+import com.bm.wschat.feature.user.model.UserActivityStatus;
+import com.bm.wschat.feature.user.model.UserActivityStatusEntity;
+import com.bm.wschat.feature.user.model.UserPresence;
+import com.bm.wschat.feature.user.repository.UserActivityStatusRepository;
+import com.bm.wschat.feature.user.repository.UserRepository;
+import com.bm.wschat.shared.config.PresenceProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Хранилище статусов присутствия пользователей.
+ *
+ * Статусы читаются и пишутся в Redis-хеше presence:status (общий для всех
+ * инстансов), пачка статусов — одним HMGET. Таблица user_activity_status —
+ * долговременная копия: изменения накапливаются в памяти и пишутся одной
+ * транзакцией раз в app.presence.flush-interval-ms (write-behind). При
+ * промахе или недоступности Redis статус читается из таблицы.
+ *
+ * Открытые WebSocket-сессии каждый инстанс ведёт в своём хеше
+ * presence:connections:{instance} (поле — id сессии, значение — id
+ * пользователя) и раз в app.presence.heartbeat-interval-ms продлевает его
+ * TTL и отметку в presence:instances. Пользователь «в сети», пока у него
+ * есть сессия на каком-либо живом инстансе: сессии упавшего инстанса
+ * истекают сами. Закрытие сессии — HDEL по её id, поэтому повторный
+ * SessionDisconnectEvent ничего не меняет.
+ *
+ * Статус, сменённый автоматическим OFFLINE, хранится в presence:before-offline
+ * и возвращается при переподключении.
+ */
+@Slf4j
+@Service
+public class UserPresenceService {
+
+    private static final String STATUS_KEY = "presence:status";
+    private static final String CONNECTIONS_KEY_PREFIX = "presence:connections:";
+    private static final String INSTANCES_KEY = "presence:instances";
+    private static final String BEFORE_OFFLINE_KEY = "presence:before-offline";
+
+    private final StringRedisTemplate redisTemplate;
+    private final HashOperations<String, String, String> hashOperations;
+    private final UserActivityStatusRepository statusRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final PresenceProperties presenceProperties;
+    private final String connectionsKey = CONNECTIONS_KEY_PREFIX + UUID.randomUUID();
+
+    /** Статусы, ещё не записанные в БД */
+    private final Map<Long, UserPresence> dirty = new ConcurrentHashMap<>();
+    /** Сессии этого инстанса по пользователям — копия хеша connectionsKey */
+    private final Map<Long, Set<String>> localSessions = new ConcurrentHashMap<>();
+    /** Статусы до автоматического OFFLINE, если Redis недоступен */
+    private final Map<Long, UserActivityStatus> localBeforeOffline = new ConcurrentHashMap<>();
+
+    public UserPresenceService(StringRedisTemplate redisTemplate,
+                               UserActivityStatusRepository statusRepository,
+                               UserRepository userRepository,
+                               PlatformTransactionManager transactionManager,
+                               PresenceProperties presenceProperties) {
+        this.redisTemplate = redisTemplate;
+        this.hashOperations = redisTemplate.opsForHash();
+        this.statusRepository = statusRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.presenceProperties = presenceProperties;
+    }
+
+    public UserPresence get(Long userId) {
+        return getAll(List.of(userId)).get(userId);
+    }
+
+    /**
+     * Статусы пачки пользователей: один запрос в Redis, в БД — только промахи
+     *
+     * @return статус для каждого id (UserPresence.UNKNOWN, если статуса нет)
+     */
+    public Map<Long, UserPresence> getAll(Collection<Long> userIds) {
+        Map<Long, UserPresence> result = new HashMap<>();
+        List<Long> remote = new ArrayList<>();
+        for (Long userId : new LinkedHashSet<>(userIds)) {
+            // Незаписанное изменение этого инстанса — самое свежее, даже если Redis недоступен
+            UserPresence pending = dirty.get(userId);
+            if (pending != null) {
+                result.put(userId, pending);
+            } else {
+                remote.add(userId);
+            }
+        }
+        if (remote.isEmpty()) {
+            return result;
+        }
+
+        List<Long> misses = new ArrayList<>();
+        try {
+            List<String> values = hashOperations.multiGet(STATUS_KEY,
+                    remote.stream().map(String::valueOf).toList());
+            for (int i = 0; i < remote.size(); i++) {
+                UserPresence presence = decode(values.get(i));
+                if (presence != null) {
+                    result.put(remote.get(i), presence);
+                } else {
+                    misses.add(remote.get(i));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Presence: Redis unavailable, reading statuses from database: {}", e.getMessage());
+            misses = remote;
+        }
+
+        if (!misses.isEmpty()) {
+            result.putAll(load(misses));
+        }
+        return result;
+    }
+
+    /**
+     * Установить статус: сразу в Redis, в БД — при ближайшей записи
+     */
+    public UserPresence set(Long userId, UserActivityStatus status) {
+        return set(userId, status, null);
+    }
+
+    /**
+     * Автоматический OFFLINE: прежний статус запоминается до переподключения
+     */
+    public UserPresence setOffline(Long userId, UserActivityStatus previous) {
+        return set(userId, UserActivityStatus.OFFLINE, previous);
+    }
+
+    /**
+     * Статус, который был до автоматического OFFLINE; после чтения забывается
+     *
+     * @return null — OFFLINE выставлен не автоматически (выход, вручную)
+     */
+    public UserActivityStatus takeStatusBeforeOffline(Long userId) {
+        UserActivityStatus local = localBeforeOffline.remove(userId);
+        try {
+            String value = hashOperations.get(BEFORE_OFFLINE_KEY, userId.toString());
+            if (value == null) {
+                return local;
+            }
+            hashOperations.delete(BEFORE_OFFLINE_KEY, userId.toString());
+            return UserActivityStatus.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        } catch (Exception e) {
+            log.warn("Presence: failed to read status before offline of user {}: {}", userId, e.getMessage());
+            return local;
+        }
+    }
+
+    private UserPresence set(Long userId, UserActivityStatus status, UserActivityStatus beforeOffline) {
+        UserPresence presence = new UserPresence(status, Instant.now());
+        dirty.put(userId, presence);
+        if (beforeOffline != null) {
+            localBeforeOffline.put(userId, beforeOffline);
+        } else {
+            localBeforeOffline.remove(userId);
+        }
+        try {
+            hashOperations.put(STATUS_KEY, userId.toString(), encode(presence));
+            if (beforeOffline != null) {
+                hashOperations.put(BEFORE_OFFLINE_KEY, userId.toString(), beforeOffline.name());
+            } else {
+                hashOperations.delete(BEFORE_OFFLINE_KEY, userId.toString());
+            }
+        } catch (Exception e) {
+            log.warn("Presence: failed to store status of user {} in Redis: {}", userId, e.getMessage());
+        }
+        return presence;
+    }
+
+    /**
+     * Учесть новую WebSocket-сессию
+     *
+     * @return число открытых сессий пользователя на всех инстансах
+     */
+    public long connected(Long userId, String sessionId) {
+        Set<String> sessions = localSessions.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet());
+        sessions.add(sessionId);
+        try {
+            hashOperations.put(connectionsKey, sessionId, userId.toString());
+            redisTemplate.expire(connectionsKey, Duration.ofSeconds(presenceProperties.getInstanceTtlSeconds()));
+            return connections(userId);
+        } catch (Exception e) {
+            log.warn("Presence: failed to register session {} of user {}: {}", sessionId, userId, e.getMessage());
+            return sessions.size();
+        }
+    }
+
+    /**
+     * Учесть закрытие WebSocket-сессии. Повторный вызов для той же сессии
+     * ничего не меняет
+     *
+     * @return число оставшихся сессий пользователя на всех инстансах
+     */
+    public long disconnected(Long userId, String sessionId) {
+        localSessions.computeIfPresent(userId, (id, sessions) -> {
+            sessions.remove(sessionId);
+            return sessions.isEmpty() ? null : sessions;
+        });
+        try {
+            hashOperations.delete(connectionsKey, sessionId);
+            return connections(userId);
+        } catch (Exception e) {
+            log.warn("Presence: failed to release session {} of user {}: {}", sessionId, userId, e.getMessage());
+            return localConnections(userId);
+        }
+    }
+
+    /**
+     * Число открытых сессий пользователя на живых инстансах. Сессии этого
+     * инстанса берутся из памяти, остальных — из их хешей
+     */
+    public long connections(Long userId) {
+        long total = localConnections(userId);
+        try {
+            String user = userId.toString();
+            for (String key : liveConnectionKeys()) {
+                if (!key.equals(connectionsKey)) {
+                    total += hashOperations.values(key).stream().filter(user::equals).count();
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Presence: failed to read sessions of user {}: {}", userId, e.getMessage());
+        }
+        return total;
+    }
+
+    private long localConnections(Long userId) {
+        Set<String> sessions = localSessions.get(userId);
+        return sessions != null ? sessions.size() : 0;
+    }
+
+    /**
+     * Продлить TTL сессий этого инстанса. Хеш переписывается из localSessions
+     * целиком (через RENAME, чтобы другие инстансы не увидели его пустым):
+     * так он восстанавливается, если истёк или пропустил HDEL, пока Redis
+     * был недоступен
+     */
+    @Scheduled(fixedDelayString = "${app.presence.heartbeat-interval-ms:10000}")
+    public void heartbeat() {
+        try {
+            Map<String, String> sessions = new HashMap<>();
+            localSessions.forEach((userId, ids) -> ids.forEach(id -> sessions.put(id, userId.toString())));
+            if (sessions.isEmpty()) {
+                redisTemplate.delete(connectionsKey);
+            } else {
+                String staging = connectionsKey + ":staging";
+                redisTemplate.delete(staging);
+                hashOperations.putAll(staging, sessions);
+                redisTemplate.expire(staging, Duration.ofSeconds(presenceProperties.getInstanceTtlSeconds()));
+                redisTemplate.rename(staging, connectionsKey);
+            }
+            long now = System.currentTimeMillis();
+            redisTemplate.opsForZSet().add(INSTANCES_KEY, connectionsKey, now);
+            redisTemplate.opsForZSet().removeRangeByScore(INSTANCES_KEY, 0,
+                    now - TimeUnit.SECONDS.toMillis(presenceProperties.getInstanceTtlSeconds()));
+        } catch (Exception e) {
+            log.warn("Presence: heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    private Set<String> liveConnectionKeys() {
+        long oldest = System.currentTimeMillis()
+                - TimeUnit.SECONDS.toMillis(presenceProperties.getInstanceTtlSeconds());
+        Set<String> keys = redisTemplate.opsForZSet().rangeByScore(INSTANCES_KEY, oldest, Double.POSITIVE_INFINITY);
+        Set<String> result = keys != null ? new HashSet<>(keys) : new HashSet<>();
+        // До первого heartbeat этот инстанс ещё не отмечен
+        result.add(connectionsKey);
+        return result;
+    }
+
+    /**
+     * Записать накопленные изменения статусов в user_activity_status
+     */
+    @Scheduled(fixedDelayString = "${app.presence.flush-interval-ms:1000}")
+    public void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+
+        Map<Long, UserPresence> batch = new HashMap<>();
+        for (Long userId : List.copyOf(dirty.keySet())) {
+            UserPresence presence = dirty.remove(userId);
+            if (presence != null) {
+                batch.put(userId, presence);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> persist(batch));
+            log.debug("Presence: stored {} statuses", batch.size());
+        } catch (Exception e) {
+            // Вернуть в очередь, не затирая изменения, сделанные за время записи
+            batch.forEach(dirty::putIfAbsent);
+            log.warn("Presence: failed to store {} statuses: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private void persist(Map<Long, UserPresence> batch) {
+        Map<Long, UserActivityStatusEntity> existing = statusRepository.findAllById(batch.keySet()).stream()
+                .collect(Collectors.toMap(UserActivityStatusEntity::getUserId, Function.identity()));
+
+        Set<Long> newIds = new HashSet<>(batch.keySet());
+        newIds.removeAll(existing.keySet());
+        // Первая запись статуса — нужен сам пользователь; удалённых пропускаем
+        Map<Long, User> users = newIds.isEmpty() ? Map.of()
+                : userRepository.findAllById(newIds).stream()
+                        .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        List<UserActivityStatusEntity> toSave = new ArrayList<>(batch.size());
+        batch.forEach((userId, presence) -> {
+            UserActivityStatusEntity entity = existing.get(userId);
+            if (entity == null) {
+                User user = users.get(userId);
+                if (user == null) {
+                    return;
+                }
+                entity = UserActivityStatusEntity.builder()
+                        .user(user)
+                        .build();
+            }
+            entity.setStatus(presence.status());
+            toSave.add(entity);
+        });
+        statusRepository.saveAll(toSave);
+    }
+
+    private Map<Long, UserPresence> load(List<Long> userIds) {
+        Map<Long, UserPresence> loaded = new HashMap<>();
+        List<UserActivityStatusEntity> entities = readOnlyTransaction.execute(
+                status -> statusRepository.findAllById(userIds));
+        if (entities != null) {
+            for (UserActivityStatusEntity entity : entities) {
+                loaded.put(entity.getUserId(), new UserPresence(entity.getStatus(), entity.getUpdatedAt()));
+            }
+        }
+        for (Long userId : userIds) {
+            // Отсутствие статуса тоже кешируется — иначе такие пользователи шли бы в БД каждый раз
+            UserPresence presence = loaded.computeIfAbsent(userId, id -> UserPresence.UNKNOWN);
+            try {
+                hashOperations.putIfAbsent(STATUS_KEY, userId.toString(), encode(presence));
+            } catch (Exception e) {
+                log.trace("Presence: failed to cache status of user {}: {}", userId, e.getMessage());
+            }
+        }
+        return loaded;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+        try {
+            redisTemplate.opsForZSet().remove(INSTANCES_KEY, connectionsKey);
+            redisTemplate.delete(connectionsKey);
+        } catch (Exception e) {
+            log.warn("Presence: failed to release connections on shutdown: {}", e.getMessage());
+        }
+    }
+
+    private static String encode(UserPresence presence) {
+        return presence.status().name() + ":"
+                + (presence.updatedAt() != null ? presence.updatedAt().toEpochMilli() : "");
+    }
+
+    private static UserPresence decode(String value) {
+        if (value == null) {
+            return null;
+        }
+        int separator = value.indexOf(':');
+        if (separator < 0) {
+            return null;
+        }
+        try {
+            UserActivityStatus status = UserActivityStatus.valueOf(value.substring(0, separator));
+            String time = value.substring(separator + 1);
+            return new UserPresence(status, time.isEmpty() ? null : Instant.ofEpochMilli(Long.parseLong(time)));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
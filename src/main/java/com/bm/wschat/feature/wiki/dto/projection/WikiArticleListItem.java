@@ -0,0 +1,18 @@
+package com.bm.wschat.feature.wiki.dto.projection;
+
+import java.time.Instant;
+
+/**
+ * Строка списка статей (без content) — выбирается JPQL-конструктором,
+ * чтобы не тянуть TEXT-колонку на каждой странице списка
+ */
+public record WikiArticleListItem(
+                Long id,
+                String title,
+                String slug,
+                String excerpt,
+                String categoryName,
+                String authorName,
+                Long viewsTotal,
+                Instant updatedAt) {
+}
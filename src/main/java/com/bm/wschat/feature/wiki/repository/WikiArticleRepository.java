@@ -1,5 +1,6 @@
 package com.bm.wschat.feature.wiki.repository;
 
+import com.bm.wschat.feature.wiki.dto.projection.WikiArticleListItem;
 import com.bm.wschat.feature.wiki.model.WikiArticle;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -37,25 +38,36 @@ public interface WikiArticleRepository extends JpaRepository<WikiArticle, Long>
     @Query("SELECT a.id, t FROM WikiArticle a LEFT JOIN a.tagSet t WHERE a.id IN :ids")
     List<Object[]> findTagsByArticleIds(@Param("ids") List<Long> ids);
 
-    // Все статьи (с подгрузкой связей)
-    @EntityGraph(attributePaths = { "category", "createdBy" })
-    Page<WikiArticle> findAllByOrderByUpdatedAtDesc(Pageable pageable);
+    // Колонки для списков: без content, категория и автор — через LEFT JOIN
+    String LIST_ITEM_SELECT = "SELECT new com.bm.wschat.feature.wiki.dto.projection.WikiArticleListItem(" +
+            "a.id, a.title, a.slug, a.excerpt, c.name, COALESCE(u.fio, u.username), a.viewsTotal, a.updatedAt) " +
+            "FROM WikiArticle a LEFT JOIN a.category c LEFT JOIN a.createdBy u ";
+
+    // Все статьи
+    @Query(value = LIST_ITEM_SELECT + "ORDER BY a.updatedAt DESC",
+            countQuery = "SELECT COUNT(a) FROM WikiArticle a")
+    Page<WikiArticleListItem> findAllByOrderByUpdatedAtDesc(Pageable pageable);
 
     // По категории
-    @EntityGraph(attributePaths = { "category", "createdBy" })
-    Page<WikiArticle> findByCategoryIdOrderByUpdatedAtDesc(Long categoryId, Pageable pageable);
+    @Query(value = LIST_ITEM_SELECT + "WHERE c.id = :categoryId ORDER BY a.updatedAt DESC",
+            countQuery = "SELECT COUNT(a) FROM WikiArticle a WHERE a.category.id = :categoryId")
+    Page<WikiArticleListItem> findByCategoryIdOrderByUpdatedAtDesc(@Param("categoryId") Long categoryId,
+            Pageable pageable);
 
     // Популярные
-    @EntityGraph(attributePaths = { "category", "createdBy" })
-    Page<WikiArticle> findAllByOrderByViewsTotalDesc(Pageable pageable);
+    @Query(value = LIST_ITEM_SELECT + "ORDER BY a.viewsTotal DESC",
+            countQuery = "SELECT COUNT(a) FROM WikiArticle a")
+    Page<WikiArticleListItem> findAllByOrderByViewsTotalDesc(Pageable pageable);
 
-    // Поиск по title и content
-    @EntityGraph(attributePaths = { "category", "createdBy" })
-    @Query("SELECT a FROM WikiArticle a WHERE " +
+    // Поиск по title и content (content участвует только в условии, но не в выборке)
+    @Query(value = LIST_ITEM_SELECT + "WHERE " +
             "LOWER(a.title) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
             "LOWER(a.content) LIKE LOWER(CONCAT('%', :query, '%')) " +
-            "ORDER BY a.viewsTotal DESC")
-    Page<WikiArticle> search(@Param("query") String query, Pageable pageable);
+            "ORDER BY a.viewsTotal DESC",
+            countQuery = "SELECT COUNT(a) FROM WikiArticle a WHERE " +
+                    "LOWER(a.title) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
+                    "LOWER(a.content) LIKE LOWER(CONCAT('%', :query, '%'))")
+    Page<WikiArticleListItem> search(@Param("query") String query, Pageable pageable);
 
     // Поиск по тегам
     @Query("SELECT DISTINCT a FROM WikiArticle a JOIN a.tagSet t WHERE LOWER(t) = LOWER(:tag)")
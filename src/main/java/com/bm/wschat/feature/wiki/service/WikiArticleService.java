@@ -3,6 +3,7 @@ package com.bm.wschat.feature.wiki.service;
 import com.bm.wschat.feature.user.model.SenderType;
 import com.bm.wschat.feature.user.model.User;
 import com.bm.wschat.feature.user.repository.UserRepository;
+import com.bm.wschat.feature.wiki.dto.projection.WikiArticleListItem;
 import com.bm.wschat.feature.wiki.dto.request.CreateWikiArticleRequest;
 import com.bm.wschat.feature.wiki.dto.request.UpdateWikiArticleRequest;
 import com.bm.wschat.feature.wiki.dto.response.WikiArticleListResponse;
@@ -160,13 +161,13 @@ public class WikiArticleService {
      * Список всех статей
      */
     public Page<WikiArticleListResponse> getAllArticles(Pageable pageable, Long userId) {
-        Page<WikiArticle> articles = wikiArticleRepository.findAllByOrderByUpdatedAtDesc(pageable);
+        Page<WikiArticleListItem> articles = wikiArticleRepository.findAllByOrderByUpdatedAtDesc(pageable);
 
         Map<Long, Set<String>> articleTags = articleTagFetcher(articles);
         return articles.map(
                 article -> buildListResponse(
                         article,
-                        articleTags.getOrDefault(article.getId(), Set.of()),
+                        articleTags.getOrDefault(article.id(), Set.of()),
                         userId));
     }
 
@@ -174,13 +175,13 @@ public class WikiArticleService {
      * Популярные статьи
      */
     public Page<WikiArticleListResponse> getPopularArticles(Pageable pageable, Long userId) {
-        Page<WikiArticle> articles = wikiArticleRepository.findAllByOrderByViewsTotalDesc(pageable);
+        Page<WikiArticleListItem> articles = wikiArticleRepository.findAllByOrderByViewsTotalDesc(pageable);
 
         Map<Long, Set<String>> articleTags = articleTagFetcher(articles);
         return articles.map(
                 article -> buildListResponse(
                         article,
-                        articleTags.getOrDefault(article.getId(), Set.of()),
+                        articleTags.getOrDefault(article.id(), Set.of()),
                         userId));
     }
 
@@ -191,12 +192,12 @@ public class WikiArticleService {
         if (query == null || query.trim().isEmpty()) {
             return getAllArticles(pageable, userId);
         }
-        Page<WikiArticle> articles = wikiArticleRepository.search(query.trim(), pageable);
+        Page<WikiArticleListItem> articles = wikiArticleRepository.search(query.trim(), pageable);
         Map<Long, Set<String>> articleTags = articleTagFetcher(articles);
         return articles.map(
                 article -> buildListResponse(
                         article,
-                        articleTags.getOrDefault(article.getId(), Set.of()),
+                        articleTags.getOrDefault(article.id(), Set.of()),
                         userId));
     }
 
@@ -207,12 +208,12 @@ public class WikiArticleService {
         if (!categoryRepository.existsById(categoryId)) {
             throw new EntityNotFoundException("Категория не найдена: " + categoryId);
         }
-        Page<WikiArticle> articles = wikiArticleRepository.findByCategoryIdOrderByUpdatedAtDesc(categoryId, pageable);
+        Page<WikiArticleListItem> articles = wikiArticleRepository.findByCategoryIdOrderByUpdatedAtDesc(categoryId, pageable);
         Map<Long, Set<String>> articleTags = articleTagFetcher(articles);
         return articles.map(
                 article -> buildListResponse(
                         article,
-                        articleTags.getOrDefault(article.getId(), Set.of()),
+                        articleTags.getOrDefault(article.id(), Set.of()),
                         userId));
     }
 
@@ -414,36 +415,33 @@ public class WikiArticleService {
     /**
      * Построить краткий ответ для списка
      */
-    private WikiArticleListResponse buildListResponse(WikiArticle article, Set<String> tags, Long userId) {
-        long likeCount = articleLikeRepository.countByArticleId(article.getId());
+    private WikiArticleListResponse buildListResponse(WikiArticleListItem article, Set<String> tags, Long userId) {
+        long likeCount = articleLikeRepository.countByArticleId(article.id());
         boolean likedByCurrentUser = userId != null &&
-                articleLikeRepository.existsByArticleIdAndUserId(article.getId(), userId);
+                articleLikeRepository.existsByArticleIdAndUserId(article.id(), userId);
 
         return new WikiArticleListResponse(
-                article.getId(),
-                article.getTitle(),
-                article.getSlug(),
-                article.getExcerpt(),
-                article.getCategory() != null ? article.getCategory().getName() : null,
+                article.id(),
+                article.title(),
+                article.slug(),
+                article.excerpt(),
+                article.categoryName(),
                 tags,
-                article.getCreatedBy() != null
-                        ? (article.getCreatedBy().getFio() != null ? article.getCreatedBy().getFio()
-                                : article.getCreatedBy().getUsername())
-                        : null,
-                article.getViewsTotal(),
+                article.authorName(),
+                article.viewsTotal(),
                 likeCount,
                 likedByCurrentUser,
-                article.getUpdatedAt());
+                article.updatedAt());
     }
 
-    private Map<Long, Set<String>> articleTagFetcher(Page<WikiArticle> articles) {
+    private Map<Long, Set<String>> articleTagFetcher(Page<WikiArticleListItem> articles) {
 
         if (articles.isEmpty()) {
             return Map.of();
         }
 
         List<Long> ids = articles.stream()
-                .map(WikiArticle::getId)
+                .map(WikiArticleListItem::id)
                 .toList();
         return wikiArticleRepository.findTagsByArticleIds(ids).stream()
                 .collect(Collectors.groupingBy(
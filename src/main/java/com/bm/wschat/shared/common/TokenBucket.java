@@ -0,0 +1,68 @@
+package com.bm.wschat.shared.common;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket: до capacity запросов залпом, далее ratePerSecond в секунду.
+ * Потокобезопасен.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(double capacity, double ratePerSecond) {
+        this.capacity = capacity;
+        this.tokensPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Взять токен, если он есть.
+     *
+     * @return 0 — токен взят, иначе сколько наносекунд ждать до появления токена
+     */
+    public synchronized long tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return nanosUntilToken();
+    }
+
+    /**
+     * Зарезервировать токен в долг: токен считается взятым, вызывающий
+     * должен подождать возвращённое время перед действием.
+     *
+     * @return сколько наносекунд ждать (0 — можно сразу)
+     */
+    public synchronized long reserve() {
+        refill();
+        long wait = tokens >= 1 ? 0 : nanosUntilToken();
+        tokens -= 1;
+        return wait;
+    }
+
+    /**
+     * Бакет полон — его состояние неотличимо от нового (можно удалять из кэша)
+     */
+    public synchronized boolean isFull() {
+        refill();
+        return tokens >= capacity;
+    }
+
+    private long nanosUntilToken() {
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+    }
+}
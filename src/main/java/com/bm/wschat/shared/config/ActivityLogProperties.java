@@ -0,0 +1,27 @@
+package com.bm.wschat.shared.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Настройки записи журнала активности пользователей (UserActivityLogWriter).
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.activity-log")
+@Getter
+@Setter
+public class ActivityLogProperties {
+
+    /**
+     * Ёмкость очереди на запись. При переполнении событие не записывается
+     * (servicedesk.activity_log.dropped)
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * Максимум событий в одной транзакции записи
+     */
+    private int batchSize = 500;
+}
@@ -0,0 +1,43 @@
+package com.bm.wschat.shared.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Настройки уведомлений пользователей.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.notifications")
+@Getter
+@Setter
+public class NotificationProperties {
+
+    private Inbox inbox = new Inbox();
+
+    @Getter
+    @Setter
+    public static class Inbox {
+        /**
+         * Ёмкость очереди на запись. При переполнении уведомление
+         * доставляется по WebSocket без сохранения в inbox.
+         */
+        private int queueCapacity = 10000;
+
+        /**
+         * Максимум уведомлений в одной транзакции записи
+         */
+        private int batchSize = 200;
+
+        /**
+         * Максимум уведомлений в одном ответе "с seq"
+         */
+        private int maxFetch = 200;
+
+        /**
+         * Сколько дней хранить уведомления
+         */
+        private int retentionDays = 30;
+    }
+}
@@ -0,0 +1,38 @@
+package com.bm.wschat.shared.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Настройки статусов присутствия пользователей (UserPresenceService).
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.presence")
+@Getter
+@Setter
+public class PresenceProperties {
+
+    /**
+     * Как часто изменённые статусы записываются в user_activity_status (мс)
+     */
+    private long flushIntervalMs = 1000;
+
+    /**
+     * Сколько секунд ждать переподключения после закрытия последней
+     * WebSocket-сессии, прежде чем перевести пользователя в OFFLINE
+     */
+    private long offlineGraceSeconds = 15;
+
+    /**
+     * Как часто инстанс продлевает свои счётчики WebSocket-сессий в Redis (мс)
+     */
+    private long heartbeatIntervalMs = 10_000;
+
+    /**
+     * Через сколько секунд без heartbeat сессии инстанса перестают учитываться
+     * (упавший инстанс не держит пользователей «в сети»)
+     */
+    private long instanceTtlSeconds = 30;
+}
@@ -0,0 +1,70 @@
+package com.bm.wschat.shared.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ограничение частоты запросов (token bucket на пользователя и группу).
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.rate-limit")
+@Getter
+@Setter
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Дополнительно к лимиту инстанса проверять общий лимит кластера в Redis
+     */
+    private boolean redisEnabled = false;
+
+    /**
+     * Группы REST-эндпоинтов; запрос относится к первой подходящей группе
+     */
+    private List<Group> http = new ArrayList<>();
+
+    /**
+     * Группы STOMP destination для кадров SEND; первая подходящая группа
+     */
+    private List<Group> stomp = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Group {
+        private String name;
+
+        /**
+         * Ant-шаблоны пути (/api/v1/stats/**) или destination (/app/ticket.{id}.send)
+         */
+        private List<String> patterns = new ArrayList<>();
+
+        /**
+         * Размер корзины — сколько запросов можно сделать подряд
+         */
+        private long capacity = 60;
+
+        /**
+         * Скорость пополнения корзины (запросов в секунду)
+         */
+        private double refillPerSecond = 1;
+
+        /**
+         * Чья корзина: CLIENT — пользователь, для анонимных адрес клиента;
+         * USERNAME — поле username JSON-тела (логин: пользователи за одним
+         * NAT не делят корзину, перебор пароля одного аккаунта с разных
+         * адресов упирается в лимит)
+         */
+        private KeyBy keyBy = KeyBy.CLIENT;
+    }
+
+    public enum KeyBy {
+        CLIENT,
+        USERNAME
+    }
+}
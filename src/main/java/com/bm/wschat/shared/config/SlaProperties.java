@@ -0,0 +1,26 @@
+package com.bm.wschat.shared.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Настройки проверки просроченных по SLA тикетов (TicketSlaMonitor).
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.sla")
+@Getter
+@Setter
+public class SlaProperties {
+
+    /**
+     * Как часто искать тикеты с истёкшим slaDeadline (мс)
+     */
+    private long checkIntervalMs = 30_000;
+
+    /**
+     * Сколько просроченных тикетов обрабатывать за одну проверку
+     */
+    private int batchSize = 100;
+}
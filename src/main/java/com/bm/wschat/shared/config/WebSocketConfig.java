@@ -1,13 +1,24 @@
 package com.bm.wschat.shared.config;
 
+import com.bm.wschat.shared.config.websocket.CborMessageConverter;
 import com.bm.wschat.shared.config.websocket.WebSocketAuthInterceptor;
+import com.bm.wschat.shared.config.websocket.WebSocketEncodingInterceptor;
+import com.bm.wschat.shared.config.websocket.WebSocketRateLimitInterceptor;
+import com.bm.wschat.shared.config.websocket.WebSocketSubscriptionInterceptor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.socket.WebSocketExtension;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import java.util.List;
 
 @Configuration
 @EnableWebSocketMessageBroker
@@ -15,17 +26,46 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final WebSocketAuthInterceptor authInterceptor;
+    private final WebSocketEncodingInterceptor encodingInterceptor;
+    private final WebSocketSubscriptionInterceptor subscriptionInterceptor;
+    private final WebSocketRateLimitInterceptor rateLimitInterceptor;
+    private final WebSocketProperties properties;
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        // Enable simple broker for subscriptions
-        registry.enableSimpleBroker("/topic", "/queue");
+        if (properties.getBroker().getMode() == WebSocketProperties.BrokerMode.RELAY) {
+            // Multi-node: подписки живут во внешнем брокере (RabbitMQ STOMP),
+            // поэтому сообщение, отправленное любым инстансом, доходит до клиентов всех инстансов
+            WebSocketProperties.Broker broker = properties.getBroker();
+            registry.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(broker.getRelayHost())
+                    .setRelayPort(broker.getRelayPort())
+                    .setSystemLogin(broker.getLogin())
+                    .setSystemPasscode(broker.getPasscode())
+                    .setClientLogin(broker.getLogin())
+                    .setClientPasscode(broker.getPasscode())
+                    .setVirtualHost(broker.getVirtualHost())
+                    // convertAndSendToUser: пользователь может быть подключён к другому инстансу
+                    .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                    .setUserRegistryBroadcast("/topic/simp-user-registry");
+        } else {
+            // Enable simple broker for subscriptions
+            registry.enableSimpleBroker("/topic", "/queue");
+        }
 
         // Prefix for messages FROM client TO server
         registry.setApplicationDestinationPrefixes("/app");
 
+        // Сегменты destination разделяются точкой (/topic/ticket.15.messages, /app/ticket.15.send):
+        // STOMP-плагин RabbitMQ допускает после /topic/ только один сегмент — routing key amq.topic
+        registry.setPathMatcher(new AntPathMatcher("."));
+
         // Prefix for user-specific destinations
         registry.setUserDestinationPrefix("/user");
+
+        // Кадры одной сессии уходят в порядке рассылки (seq топиков /topic/ticket.**),
+        // а не в порядке, в котором их разберут потоки clientOutboundChannel
+        registry.setPreservePublishOrder(true);
     }
 
     @Override
@@ -35,14 +75,51 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
 
-        // Pure WebSocket endpoint (for native clients)
+        // Pure WebSocket endpoint (for native clients); только здесь доступны бинарные CBOR-кадры
         registry.addEndpoint("/ws-raw")
+                .setHandshakeHandler(rawHandshakeHandler())
+                .addInterceptors(encodingInterceptor.rawEndpointMarker())
                 .setAllowedOriginPatterns("*");
     }
 
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
-        // Add JWT authentication interceptor
-        registration.interceptors(authInterceptor);
+        // JWT-аутентификация CONNECT, авторизация SUBSCRIBE, лимит частоты SEND
+        registration.interceptors(authInterceptor, subscriptionInterceptor, rateLimitInterceptor,
+                encodingInterceptor.inbound());
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // JSON -> CBOR для сессий /ws-raw, запросивших x-encoding: cbor
+        registration.interceptors(encodingInterceptor);
+    }
+
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        // Входящие кадры с content-type application/cbor; остальные — стандартный JSON конвертер
+        messageConverters.add(new CborMessageConverter(encodingInterceptor.getCborMapper()));
+        return true;
+    }
+
+    /**
+     * permessage-deflate согласует сам контейнер (Tomcat), если клиент его предлагает.
+     * При выключенной настройке расширение вычёркивается из handshake.
+     */
+    private DefaultHandshakeHandler rawHandshakeHandler() {
+        return new DefaultHandshakeHandler() {
+            @Override
+            protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request,
+                                                                         List<WebSocketExtension> requested,
+                                                                         List<WebSocketExtension> supported) {
+                List<WebSocketExtension> extensions = super.filterRequestedExtensions(request, requested, supported);
+                if (properties.getCompression().isDeflateEnabled()) {
+                    return extensions;
+                }
+                return extensions.stream()
+                        .filter(extension -> !"permessage-deflate".equalsIgnoreCase(extension.getName()))
+                        .toList();
+            }
+        };
     }
 }
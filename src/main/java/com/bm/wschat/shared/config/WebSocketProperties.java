@@ -0,0 +1,92 @@
+package com.bm.wschat.shared.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Настройки WebSocket (STOMP).
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.websocket")
+@Getter
+@Setter
+public class WebSocketProperties {
+
+    private Typing typing = new Typing();
+
+    private Broker broker = new Broker();
+
+    private Compression compression = new Compression();
+
+    private Subscriptions subscriptions = new Subscriptions();
+
+    /**
+     * Режим STOMP брокера
+     */
+    public enum BrokerMode {
+        /** Встроенный in-memory брокер — один инстанс backend */
+        SIMPLE,
+        /** Внешний брокер (RabbitMQ STOMP plugin) — несколько инстансов backend */
+        RELAY
+    }
+
+    @Getter
+    @Setter
+    public static class Typing {
+        /**
+         * Как часто повторять "печатает" для того же пользователя, пока он печатает (сек)
+         */
+        private long keepAliveSeconds = 3;
+
+        /**
+         * Через сколько секунд без кадров от клиента считать, что пользователь перестал печатать
+         */
+        private long expireSeconds = 6;
+    }
+
+    @Getter
+    @Setter
+    public static class Broker {
+        private BrokerMode mode = BrokerMode.SIMPLE;
+
+        /**
+         * Адрес STOMP-плагина RabbitMQ (для режима RELAY)
+         */
+        private String relayHost = "localhost";
+        private int relayPort = 61613;
+        private String login = "guest";
+        private String passcode = "guest";
+        private String virtualHost = "/";
+    }
+
+    @Getter
+    @Setter
+    public static class Compression {
+        /**
+         * Разрешить permessage-deflate на /ws-raw (если клиент его предлагает)
+         */
+        private boolean deflateEnabled = true;
+
+        /**
+         * Разрешить клиентам запрашивать CBOR-кадры заголовком x-encoding: cbor в CONNECT
+         */
+        private boolean cborEnabled = true;
+    }
+
+    @Getter
+    @Setter
+    public static class Subscriptions {
+        /**
+         * Сколько секунд помнить решение "пользователь может подписаться на тикет/линию".
+         * Повторные подписки (переподключение, несколько вкладок) не идут в БД
+         */
+        private long accessCacheSeconds = 30;
+
+        /**
+         * Максимум решений в кеше
+         */
+        private int accessCacheSize = 50000;
+    }
+}
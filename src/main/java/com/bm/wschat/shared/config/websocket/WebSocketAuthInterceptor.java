@@ -1,7 +1,10 @@
 package com.bm.wschat.shared.config.websocket;
 
-import com.bm.wschat.feature.user.repository.UserRepository;
+import com.bm.wschat.feature.auth.service.UserPrincipalCache;
+import com.bm.wschat.feature.user.model.User;
 import com.bm.wschat.shared.security.jwt.JwtService;
+import com.bm.wschat.shared.security.jwt.TokenRevocationService;
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.Message;
@@ -12,7 +15,6 @@ import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 @Slf4j
@@ -21,7 +23,8 @@ import org.springframework.stereotype.Component;
 public class WebSocketAuthInterceptor implements ChannelInterceptor {
 
     private final JwtService jwtService;
-    private final UserRepository userRepository;
+    private final UserPrincipalCache userPrincipalCache;
+    private final TokenRevocationService tokenRevocationService;
 
     @Override
     public Message<?> preSend(Message<?> message, MessageChannel channel) {
@@ -34,17 +37,19 @@ public class WebSocketAuthInterceptor implements ChannelInterceptor {
                 String token = authHeader.substring(7);
 
                 try {
-                    String username = jwtService.extractUsername(token);
+                    Claims claims = jwtService.parseClaims(token);
+                    String username = claims.getSubject();
 
                     if (username != null) {
-                        UserDetails userDetails = userRepository.findByUsername(username)
-                                .orElse(null);
+                        User user = userPrincipalCache.load(username);
 
-                        if (userDetails != null && jwtService.isTokenValid(token, userDetails)) {
+                        if (tokenRevocationService.isRevoked(claims, user.getId())) {
+                            log.debug("Отозванный токен при вебсокет аутентификации: {}", username);
+                        } else if (jwtService.isTokenValid(claims, user)) {
                             UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                                    userDetails,
+                                    user,
                                     null,
-                                    userDetails.getAuthorities());
+                                    user.getAuthorities());
 
                             SecurityContextHolder.getContext().setAuthentication(authToken);
                             accessor.setUser(authToken);
@@ -0,0 +1,192 @@
+package com.bm.wschat.shared.config.websocket;
+
+import com.bm.wschat.shared.config.WebSocketProperties;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Согласование кодировки кадров для каждого WebSocket-соединения.
+ * 
+ * Клиент запрашивает CBOR заголовком x-encoding: cbor в кадре CONNECT.
+ * CBOR доступен только на /ws-raw: SockJS-транспорты не передают бинарные
+ * кадры, поэтому SockJS-сессии (/ws) всегда получают JSON.
+ * Рассылки по-прежнему сериализуются в JSON один раз, а для CBOR-сессий
+ * исходящий MESSAGE перекодируется JSON → CBOR. При рассылке в топик все
+ * подписчики получают один и тот же массив байт, поэтому результат
+ * перекодирования последнего кадра переиспользуется.
+ * Клиенты без заголовка продолжают получать JSON.
+ * 
+ * StompSubProtocolHandler отправляет бинарный WebSocket-кадр только для
+ * content-type application/octet-stream (любой другой уходит текстом UTF-8
+ * и портит CBOR), поэтому CBOR-кадры помечаются application/octet-stream
+ * и заголовком x-encoding: cbor.
+ * 
+ * Метрика servicedesk.ws.outbound.bytes{encoding=json|cbor} — размер тела
+ * исходящих кадров (до permessage-deflate).
+ */
+@Slf4j
+@Component
+public class WebSocketEncodingInterceptor implements ChannelInterceptor {
+
+    public static final String ENCODING_HEADER = "x-encoding";
+    /** Атрибут сессии, подключённой к /ws-raw (без SockJS) */
+    public static final String RAW_SESSION_ATTRIBUTE = "ws.raw";
+    private static final String CBOR = "cbor";
+
+    private final WebSocketProperties properties;
+    private final ObjectMapper objectMapper;
+    private final CBORMapper cborMapper = CBORMapper.builder().build();
+
+    private final Set<String> cborSessions = ConcurrentHashMap.newKeySet();
+    private volatile TranscodedFrame lastFrame;
+
+    private final DistributionSummary jsonBytes;
+    private final DistributionSummary cborBytes;
+
+    public WebSocketEncodingInterceptor(WebSocketProperties properties,
+                                        ObjectMapper objectMapper,
+                                        MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.jsonBytes = outboundBytes(meterRegistry, "json");
+        this.cborBytes = outboundBytes(meterRegistry, CBOR);
+    }
+
+    public CBORMapper getCborMapper() {
+        return cborMapper;
+    }
+
+    /**
+     * Handshake /ws-raw: помечаем сессию как пригодную для бинарных кадров
+     */
+    public HandshakeInterceptor rawEndpointMarker() {
+        return new HandshakeInterceptor() {
+            @Override
+            public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                           WebSocketHandler wsHandler, Map<String, Object> attributes) {
+                attributes.put(RAW_SESSION_ATTRIBUTE, Boolean.TRUE);
+                return true;
+            }
+
+            @Override
+            public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                       WebSocketHandler wsHandler, Exception exception) {
+            }
+        };
+    }
+
+    /**
+     * Входящий канал: запоминаем кодировку, запрошенную в CONNECT
+     */
+    public ChannelInterceptor inbound() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+                if (!StompCommand.CONNECT.equals(accessor.getCommand())
+                        || !properties.getCompression().isCborEnabled()
+                        || !CBOR.equalsIgnoreCase(accessor.getFirstNativeHeader(ENCODING_HEADER))) {
+                    return message;
+                }
+                Map<String, Object> attributes = accessor.getSessionAttributes();
+                if (attributes == null || !Boolean.TRUE.equals(attributes.get(RAW_SESSION_ATTRIBUTE))) {
+                    log.debug("WebSocket session {} requested CBOR over SockJS, using JSON", accessor.getSessionId());
+                    return message;
+                }
+                cborSessions.add(accessor.getSessionId());
+                log.debug("WebSocket session {} negotiated CBOR encoding", accessor.getSessionId());
+                return message;
+            }
+        };
+    }
+
+    /**
+     * Исходящий канал: перекодируем MESSAGE для CBOR-сессий
+     */
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (!(message.getPayload() instanceof byte[] payload) || payload.length == 0) {
+            return message;
+        }
+
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        String sessionId = accessor.getSessionId();
+        if (!StompCommand.MESSAGE.equals(accessor.getCommand())
+                || sessionId == null
+                || !cborSessions.contains(sessionId)
+                || !isJson(accessor)) {
+            if (StompCommand.MESSAGE.equals(accessor.getCommand())) {
+                jsonBytes.record(payload.length);
+            }
+            return message;
+        }
+
+        try {
+            byte[] cbor = transcode(payload);
+            // octet-stream — единственный content-type, который уходит бинарным кадром
+            accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+            accessor.setNativeHeader(StompHeaderAccessor.STOMP_CONTENT_TYPE_HEADER,
+                    MimeTypeUtils.APPLICATION_OCTET_STREAM_VALUE);
+            accessor.setNativeHeader(ENCODING_HEADER, CBOR);
+            accessor.removeNativeHeader(StompHeaderAccessor.STOMP_CONTENT_LENGTH_HEADER);
+            cborBytes.record(cbor.length);
+            return MessageBuilder.createMessage(cbor, accessor.getMessageHeaders());
+        } catch (Exception e) {
+            log.warn("Failed to transcode frame to CBOR, sending JSON: {}", e.getMessage());
+            jsonBytes.record(payload.length);
+            return message;
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        cborSessions.remove(event.getSessionId());
+    }
+
+    private byte[] transcode(byte[] json) {
+        TranscodedFrame cached = lastFrame;
+        if (cached != null && cached.json() == json) {
+            return cached.cbor();
+        }
+        byte[] cbor = cborMapper.writeValueAsBytes(objectMapper.readTree(json));
+        lastFrame = new TranscodedFrame(json, cbor);
+        return cbor;
+    }
+
+    private boolean isJson(StompHeaderAccessor accessor) {
+        return accessor.getContentType() == null
+                || "json".equalsIgnoreCase(accessor.getContentType().getSubtype());
+    }
+
+    private static DistributionSummary outboundBytes(MeterRegistry meterRegistry, String encoding) {
+        return DistributionSummary.builder("servicedesk.ws.outbound.bytes")
+                .description("Размер тела исходящих STOMP MESSAGE кадров")
+                .baseUnit("bytes")
+                .tag("encoding", encoding)
+                .register(meterRegistry);
+    }
+
+    private record TranscodedFrame(byte[] json, byte[] cbor) {
+    }
+}
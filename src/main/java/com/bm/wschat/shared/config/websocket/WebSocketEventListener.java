@@ -1,8 +1,12 @@
 package com.bm.wschat.shared.config.websocket;
 
+import com.bm.wschat.feature.user.model.User;
+import com.bm.wschat.feature.user.service.UserActivityStatusService;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.messaging.SessionConnectedEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
@@ -11,8 +15,11 @@ import java.security.Principal;
 
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class WebSocketEventListener {
 
+    private final UserActivityStatusService userActivityStatusService;
+
     @EventListener
     public void handleWebSocketConnectListener(SessionConnectedEvent event) {
         StompHeaderAccessor headerAccessor = StompHeaderAccessor.wrap(event.getMessage());
@@ -21,6 +28,9 @@ public class WebSocketEventListener {
         if (user != null) {
             log.info("WebSocket connected: user={}, sessionId={}",
                     user.getName(), headerAccessor.getSessionId());
+            if (user instanceof Authentication authentication && authentication.getPrincipal() instanceof User principal) {
+                userActivityStatusService.onConnect(principal, headerAccessor.getSessionId());
+            }
         }
     }
 
@@ -32,6 +42,9 @@ public class WebSocketEventListener {
         if (user != null) {
             log.info("WebSocket disconnected: user={}, sessionId={}",
                     user.getName(), headerAccessor.getSessionId());
+            if (user instanceof Authentication authentication && authentication.getPrincipal() instanceof User principal) {
+                userActivityStatusService.onDisconnect(principal, event.getSessionId());
+            }
         }
     }
 }
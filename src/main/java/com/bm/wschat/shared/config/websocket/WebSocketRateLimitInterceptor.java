@@ -0,0 +1,117 @@
+package com.bm.wschat.shared.config.websocket;
+
+import com.bm.wschat.feature.user.model.User;
+import com.bm.wschat.shared.config.RateLimitProperties;
+import com.bm.wschat.shared.ratelimit.RateLimitFilter;
+import com.bm.wschat.shared.ratelimit.RateLimiter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ограничение частоты кадров SEND (группы app.rate-limit.stomp), ключ — id
+ * пользователя. Аналога 429 у STOMP нет, а ERROR-кадр закрыл бы соединение,
+ * поэтому кадр сверх лимита отбрасывается, а клиенту уходит
+ * /user/queue/rate-limit { errorCode, destination, retryAfterMs } — не чаще
+ * раза за окно ожидания, чтобы флуд не удваивался исходящими кадрами.
+ */
+@Slf4j
+@Component
+public class WebSocketRateLimitInterceptor implements ChannelInterceptor {
+
+    private static final int MAX_TRACKED_SESSIONS = 10_000;
+
+    private final RateLimiter rateLimiter;
+    private final RateLimitProperties properties;
+    // Шаблон зависит от конфигурации брокера, которая сама регистрирует этот interceptor
+    private final ObjectProvider<SimpMessagingTemplate> messagingTemplate;
+
+    /** sessionId -> время (мс), до которого повторное уведомление не отправляется */
+    private final Map<String, Long> noticeUntil = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_TRACKED_SESSIONS;
+        }
+    };
+
+    public WebSocketRateLimitInterceptor(RateLimiter rateLimiter,
+                                         RateLimitProperties properties,
+                                         ObjectProvider<SimpMessagingTemplate> messagingTemplate) {
+        this.rateLimiter = rateLimiter;
+        this.properties = properties;
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (!rateLimiter.isEnabled()) {
+            return message;
+        }
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || !StompCommand.SEND.equals(accessor.getCommand())) {
+            return message;
+        }
+
+        String destination = accessor.getDestination();
+        if (destination == null) {
+            return message;
+        }
+        RateLimitProperties.Group group = rateLimiter.match(properties.getStomp(), destination);
+        if (group == null) {
+            return message;
+        }
+
+        Principal principal = accessor.getUser();
+        String key = principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof User user
+                ? "user:" + user.getId()
+                : "session:" + accessor.getSessionId();
+
+        long waitMillis = rateLimiter.tryAcquire("stomp", group, key);
+        if (waitMillis == 0) {
+            return message;
+        }
+
+        log.debug("STOMP rate limit exceeded: group={}, destination={}, sessionId={}",
+                group.getName(), destination, accessor.getSessionId());
+        if (principal != null && shouldNotify(accessor.getSessionId(), waitMillis)) {
+            notify(principal, destination, waitMillis);
+        }
+        return null;
+    }
+
+    private boolean shouldNotify(String sessionId, long waitMillis) {
+        long now = System.currentTimeMillis();
+        synchronized (noticeUntil) {
+            Long until = noticeUntil.get(sessionId);
+            if (until != null && until > now) {
+                return false;
+            }
+            noticeUntil.put(sessionId, now + waitMillis);
+            return true;
+        }
+    }
+
+    private void notify(Principal principal, String destination, long waitMillis) {
+        try {
+            messagingTemplate.getObject().convertAndSendToUser(principal.getName(), "/queue/rate-limit", Map.of(
+                    "errorCode", RateLimitFilter.ERROR_RATE_LIMITED,
+                    "destination", destination,
+                    "retryAfterMs", waitMillis));
+        } catch (Exception e) {
+            log.debug("Failed to send rate limit notice: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.bm.wschat.shared.config.websocket;
+
+import com.bm.wschat.feature.ticket.repository.TicketRepository;
+import com.bm.wschat.feature.ticket.service.TicketAccessChecker;
+import com.bm.wschat.feature.user.model.User;
+import com.bm.wschat.shared.config.WebSocketProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.Principal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Авторизация кадров SUBSCRIBE. Разрешено только то, что есть в списке:
+ *
+ * - /topic/ticket.{id}.internal — специалист с доступом к тикету
+ * - /topic/ticket.{id} и его каналы (patch, messages, typing, deleted,
+ *   attachments) — TicketAccessChecker.canAccess
+ * - /topic/user.{id}.notifications|assignments|assignments.rejected — только сам пользователь
+ * - /topic/line.{id}.assignments|status — специалист линии или администратор
+ * - /topic/ticket.new, /topic/sla.breach — специалист или администратор
+ *   (полные TicketResponse чужих тикетов)
+ * - /user/**, /app/** — адресуются сессии, их разрешает Spring
+ *
+ * Всё остальное отклоняется: служебные топики брокера, прямые /queue/**
+ * (в том числе чужие сессионные очереди) и destinations с шаблонами
+ * брокера (*, ?, #, {) — через них STOMP relay подписал бы на чужие топики.
+ *
+ * Решения по тикетам и линиям кешируются на пользователя
+ * (app.websocket.subscriptions.access-cache-seconds): повторные подписки
+ * после переподключения и из нескольких вкладок не идут в БД. Запрещённая
+ * подписка отбрасывается без ERROR-кадра — остальные подписки сессии
+ * продолжают работать.
+ *
+ * Метрика servicedesk.websocket.subscriptions{result=allowed|denied}.
+ */
+@Slf4j
+@Component
+public class WebSocketSubscriptionInterceptor implements ChannelInterceptor {
+
+    private static final Pattern TICKET_TOPIC = Pattern.compile(
+            "^/topic/ticket\\.(\\d+)(\\.(?:patch|messages|typing|deleted|attachments|internal))?$");
+    private static final Pattern USER_TOPIC = Pattern.compile(
+            "^/topic/user\\.(\\d+)\\.(?:notifications|assignments|assignments\\.rejected)$");
+    private static final Pattern LINE_TOPIC = Pattern.compile("^/topic/line\\.(\\d+)\\.(?:assignments|status)$");
+    private static final Set<String> BROADCAST_TOPICS = Set.of(
+            "/topic/ticket.new",
+            "/topic/sla.breach");
+    private static final Pattern BROKER_WILDCARDS = Pattern.compile("[*?#{]");
+
+    private final TicketRepository ticketRepository;
+    private final TicketAccessChecker accessChecker;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long cacheTtlNanos;
+
+    private final Map<AccessKey, Decision> decisions;
+
+    private final Counter allowedCounter;
+    private final Counter deniedCounter;
+
+    public WebSocketSubscriptionInterceptor(TicketRepository ticketRepository,
+                                            TicketAccessChecker accessChecker,
+                                            PlatformTransactionManager transactionManager,
+                                            WebSocketProperties properties,
+                                            MeterRegistry meterRegistry) {
+        this.ticketRepository = ticketRepository;
+        this.accessChecker = accessChecker;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        WebSocketProperties.Subscriptions subscriptions = properties.getSubscriptions();
+        this.cacheTtlNanos = TimeUnit.SECONDS.toNanos(subscriptions.getAccessCacheSeconds());
+        int maxEntries = subscriptions.getAccessCacheSize();
+        this.decisions = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<AccessKey, Decision> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        this.allowedCounter = result(meterRegistry, "allowed");
+        this.deniedCounter = result(meterRegistry, "denied");
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || !StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            return message;
+        }
+
+        String destination = accessor.getDestination();
+        if (destination == null) {
+            return message;
+        }
+
+        User user = principal(accessor.getUser());
+        if (isAllowed(destination, user)) {
+            allowedCounter.increment();
+            return message;
+        }
+
+        deniedCounter.increment();
+        log.warn("Подписка отклонена: destination={}, user={}, sessionId={}",
+                destination, user != null ? user.getUsername() : null, accessor.getSessionId());
+        return null;
+    }
+
+    private boolean isAllowed(String destination, User user) {
+        if (BROKER_WILDCARDS.matcher(destination).find()) {
+            return false;
+        }
+        if (destination.startsWith("/user/") || destination.startsWith("/app/")) {
+            return true;
+        }
+        if (BROADCAST_TOPICS.contains(destination)) {
+            return user != null && (user.isSpecialist() || user.isAdmin());
+        }
+
+        Matcher ticket = TICKET_TOPIC.matcher(destination);
+        if (ticket.matches()) {
+            if (user == null) {
+                return false;
+            }
+            Long ticketId = Long.valueOf(ticket.group(1));
+            boolean internal = ".internal".equals(ticket.group(2));
+            return cached(new AccessKey(user.getId(), internal ? Scope.INTERNAL : Scope.TICKET, ticketId),
+                    () -> canAccessTicket(ticketId, user, internal));
+        }
+
+        Matcher personal = USER_TOPIC.matcher(destination);
+        if (personal.matches()) {
+            return user != null && user.getId().equals(Long.valueOf(personal.group(1)));
+        }
+
+        Matcher line = LINE_TOPIC.matcher(destination);
+        if (line.matches()) {
+            if (user == null) {
+                return false;
+            }
+            Long lineId = Long.valueOf(line.group(1));
+            return cached(new AccessKey(user.getId(), Scope.LINE, lineId),
+                    () -> Boolean.TRUE.equals(readOnlyTransaction.execute(
+                            status -> accessChecker.canWatchLine(lineId, user))));
+        }
+
+        return false;
+    }
+
+    private boolean canAccessTicket(Long ticketId, User user, boolean internal) {
+        return Boolean.TRUE.equals(readOnlyTransaction.execute(status -> ticketRepository.findById(ticketId)
+                .map(ticket -> internal
+                        ? accessChecker.canAccessInternal(ticket, user)
+                        : accessChecker.canAccess(ticket, user))
+                .orElse(false)));
+    }
+
+    private boolean cached(AccessKey key, BooleanSupplier check) {
+        long now = System.nanoTime();
+        synchronized (decisions) {
+            Decision decision = decisions.get(key);
+            if (decision != null && now - decision.decidedAt() < cacheTtlNanos) {
+                return decision.allowed();
+            }
+        }
+
+        boolean allowed = check.getAsBoolean();
+        synchronized (decisions) {
+            decisions.put(key, new Decision(allowed, now));
+        }
+        return allowed;
+    }
+
+    private static User principal(Principal principal) {
+        if (principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof User user) {
+            return user;
+        }
+        return null;
+    }
+
+    private static Counter result(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("servicedesk.websocket.subscriptions")
+                .description("Кадры SUBSCRIBE по результату авторизации")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private enum Scope {
+        TICKET, INTERNAL, LINE
+    }
+
+    private record AccessKey(Long userId, Scope scope, Long id) {
+    }
+
+    private record Decision(boolean allowed, long decidedAt) {
+    }
+}
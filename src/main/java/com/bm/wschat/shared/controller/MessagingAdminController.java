@@ -0,0 +1,38 @@
+package com.bm.wschat.shared.controller;
+
+import com.bm.wschat.shared.common.ApiResponse;
+import com.bm.wschat.shared.messaging.RabbitQueueMonitor;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/admin/messaging")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "Messaging Admin", description = "Состояние очередей RabbitMQ и возврат событий из DLQ")
+public class MessagingAdminController {
+
+    private final RabbitQueueMonitor queueMonitor;
+
+    @GetMapping("/queues")
+    @Operation(summary = "Состояние очередей", description = "Количество сообщений в основной очереди, в повторах и в DLQ для каждого консьюмера.")
+    public ResponseEntity<ApiResponse<List<RabbitQueueMonitor.QueueStats>>> getQueues() {
+        return ResponseEntity.ok(ApiResponse.success(queueMonitor.getStats()));
+    }
+
+    @PostMapping("/queues/{queue}/dlq/replay")
+    @Operation(summary = "Вернуть события из DLQ", description = "Перемещает до limit событий из {queue}.dlq обратно в очередь консьюмера со сброшенным счётчиком попыток.")
+    public ResponseEntity<ApiResponse<Integer>> replayDeadLetters(
+            @PathVariable String queue,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(ApiResponse.success(
+                "События возвращены в очередь",
+                queueMonitor.replayDeadLetters(queue, limit)));
+    }
+}
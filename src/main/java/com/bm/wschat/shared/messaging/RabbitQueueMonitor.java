@@ -0,0 +1,172 @@
+package com.bm.wschat.shared.messaging;
+
+import com.bm.wschat.shared.messaging.config.MessagingProperties;
+import com.bm.wschat.shared.messaging.config.RabbitMQConfig;
+import com.bm.wschat.shared.messaging.consumer.ListenerRetryInterceptor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Глубина очередей консьюмеров и возврат событий из DLQ.
+ * 
+ * Метрики servicedesk.rabbit.queue.depth{queue, kind=main|retry|dlq} и
+ * servicedesk.rabbit.queue.consumers{queue} обновляются по расписанию, а не
+ * при каждом опросе метрик, чтобы не ходить в брокер на каждый scrape.
+ */
+@Slf4j
+@Component
+public class RabbitQueueMonitor {
+
+    private static final long REPLAY_CONFIRM_TIMEOUT_MS = 5_000;
+
+    private final AmqpAdmin amqpAdmin;
+    private final RabbitTemplate rabbitTemplate;
+    private final MessagingProperties.Retry retryProperties;
+
+    private final Map<String, AtomicLong> depths = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> consumers = new ConcurrentHashMap<>();
+
+    public RabbitQueueMonitor(AmqpAdmin amqpAdmin,
+                              RabbitTemplate rabbitTemplate,
+                              MessagingProperties messagingProperties,
+                              MeterRegistry meterRegistry) {
+        this.amqpAdmin = amqpAdmin;
+        this.rabbitTemplate = rabbitTemplate;
+        this.retryProperties = messagingProperties.getRetry();
+
+        for (String queue : RabbitMQConfig.CONSUMER_QUEUES) {
+            registerDepth(meterRegistry, queue, "main", queue);
+            for (int attempt = 1; attempt < retryProperties.getMaxAttempts(); attempt++) {
+                registerDepth(meterRegistry, queue, "retry", RabbitMQConfig.retryQueue(queue, attempt));
+            }
+            registerDepth(meterRegistry, queue, "dlq", RabbitMQConfig.deadLetterQueue(queue));
+
+            AtomicLong consumerCount = consumers.computeIfAbsent(queue, key -> new AtomicLong());
+            Gauge.builder("servicedesk.rabbit.queue.consumers", consumerCount, AtomicLong::get)
+                    .description("Количество консьюмеров очереди")
+                    .tag("queue", queue)
+                    .register(meterRegistry);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${messaging.retry.queue-metrics-interval-ms:15000}")
+    public void refresh() {
+        depths.forEach((name, depth) -> {
+            QueueInformation info = queueInfo(name);
+            if (info != null) {
+                depth.set(info.getMessageCount());
+                AtomicLong consumerCount = consumers.get(name);
+                if (consumerCount != null) {
+                    consumerCount.set(info.getConsumerCount());
+                }
+            }
+        });
+    }
+
+    /**
+     * Текущее состояние очередей консьюмеров (запрос в брокер)
+     */
+    public List<QueueStats> getStats() {
+        List<QueueStats> stats = new ArrayList<>();
+        for (String queue : RabbitMQConfig.CONSUMER_QUEUES) {
+            QueueInformation main = queueInfo(queue);
+            long retrying = 0;
+            for (int attempt = 1; attempt < retryProperties.getMaxAttempts(); attempt++) {
+                QueueInformation retry = queueInfo(RabbitMQConfig.retryQueue(queue, attempt));
+                retrying += retry != null ? retry.getMessageCount() : 0;
+            }
+            QueueInformation dlq = queueInfo(RabbitMQConfig.deadLetterQueue(queue));
+            stats.add(new QueueStats(
+                    queue,
+                    main != null ? main.getMessageCount() : 0,
+                    main != null ? main.getConsumerCount() : 0,
+                    retrying,
+                    dlq != null ? dlq.getMessageCount() : 0));
+        }
+        return stats;
+    }
+
+    /**
+     * Вернуть до limit событий из {queue}.dlq в исходную очередь.
+     * Сообщение подтверждается в DLQ только после того, как брокер подтвердил
+     * его публикацию в очередь (publisher confirms), счётчик попыток сбрасывается.
+     *
+     * @return количество возвращённых событий
+     */
+    public int replayDeadLetters(String queue, int limit) {
+        if (!RabbitMQConfig.CONSUMER_QUEUES.contains(queue)) {
+            throw new IllegalArgumentException("Неизвестная очередь: " + queue);
+        }
+        String dlq = RabbitMQConfig.deadLetterQueue(queue);
+
+        Integer moved = rabbitTemplate.execute(channel -> {
+            // Из DLQ сообщение уходит только после подтверждения публикации брокером
+            channel.confirmSelect();
+            int count = 0;
+            while (count < limit) {
+                var response = channel.basicGet(dlq, false);
+                if (response == null) {
+                    break;
+                }
+                Map<String, Object> headers = response.getProps().getHeaders() != null
+                        ? new HashMap<>(response.getProps().getHeaders())
+                        : new HashMap<>();
+                headers.remove(ListenerRetryInterceptor.ATTEMPT_HEADER);
+                headers.remove(ListenerRetryInterceptor.ORIGINAL_QUEUE_HEADER);
+                headers.remove(ListenerRetryInterceptor.EXCEPTION_HEADER);
+                headers.remove(ListenerRetryInterceptor.EXCEPTION_TYPE_HEADER);
+
+                channel.basicPublish("", queue, response.getProps().builder().headers(headers).build(),
+                        response.getBody());
+                // Без подтверждения канал закрывается, и неподтверждённое сообщение остаётся в DLQ
+                channel.waitForConfirmsOrDie(REPLAY_CONFIRM_TIMEOUT_MS);
+                channel.basicAck(response.getEnvelope().getDeliveryTag(), false);
+                count++;
+            }
+            return count;
+        });
+
+        int replayed = moved != null ? moved : 0;
+        log.info("Replayed {} dead-lettered events from {} to {}", replayed, dlq, queue);
+        return replayed;
+    }
+
+    private void registerDepth(MeterRegistry meterRegistry, String queue, String kind, String name) {
+        AtomicLong depth = depths.computeIfAbsent(name, key -> new AtomicLong());
+        Gauge.builder("servicedesk.rabbit.queue.depth", depth, AtomicLong::get)
+                .description("Количество сообщений в очереди")
+                .tag("queue", queue)
+                .tag("kind", kind)
+                .register(meterRegistry);
+    }
+
+    private QueueInformation queueInfo(String name) {
+        try {
+            return amqpAdmin.getQueueInfo(name);
+        } catch (Exception e) {
+            log.debug("Failed to read queue info for {}: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    public record QueueStats(
+            String queue,
+            long messages,
+            int consumers,
+            long retrying,
+            long deadLettered) {
+    }
+}
@@ -2,16 +2,13 @@ package com.bm.wschat.shared.messaging;
 
 import com.bm.wschat.shared.messaging.event.TicketEvent;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.annotation.ScopedProxyMode;
-import org.springframework.stereotype.Component;
-import org.springframework.web.context.annotation.RequestScope;
 
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
- * Агрегатор событий тикетов для консолидации в рамках одного HTTP-запроса.
+ * Агрегатор событий тикетов для консолидации в рамках одной транзакции.
  * 
  * Проблема: при операциях вроде "взять тикет в работу" генерируется несколько
  * событий:
@@ -23,37 +20,51 @@ import java.util.Map;
  * фронте.
  * 
  * Решение: собираем все события за транзакцию и отправляем только последнее
- * (наиболее актуальное) событие для каждого тикета.
+ * (наиболее актуальное) событие состояния для каждого тикета.
+ * 
+ * Агрегатор создаётся TicketEventPublisher на каждую транзакцию и живёт в её
+ * TransactionSynchronization, поэтому работает одинаково для HTTP-запросов,
+ * STOMP-обработчиков, слушателей и фоновых задач.
+ * 
+ * Ключ агрегации:
+ * - события состояния тикета (CREATED, UPDATED, STATUS_CHANGED, ASSIGNED,
+ * RATED, DELETED) — схлопываются по ticketId
+ * - персональные события (ASSIGNMENT_CREATED, ASSIGNMENT_REJECTED,
+ * USER_STATUS_CHANGED, LINE_ASSIGNMENT_CREATED) — по типу, ticketId и получателю
+ * - сообщения, вложения, комментарии, SLA — не схлопываются
  * 
  * Приоритет событий (от низкого к высокому):
  * UPDATED < STATUS_CHANGED < ASSIGNED < RATED < MESSAGE_SENT < CREATED <
  * DELETED
  */
 @Slf4j
-@Component
-@RequestScope(proxyMode = ScopedProxyMode.TARGET_CLASS)
 public class TicketEventAggregator {
 
     /**
-     * Карта: ticketId -> последнее событие для этого тикета.
+     * Карта: ключ агрегации -> последнее событие.
      * LinkedHashMap сохраняет порядок добавления.
      */
-    private final Map<Long, TicketEvent> pendingEvents = new LinkedHashMap<>();
+    private final Map<Object, TicketEvent> pendingEvents = new LinkedHashMap<>();
+
+    /**
+     * Счётчик для уникальных ключей несхлопываемых событий
+     */
+    private long sequence;
 
     /**
      * Добавить событие в агрегатор.
-     * Если для этого тикета уже есть событие — заменяем на более приоритетное.
+     * Если для этого ключа уже есть событие — заменяем на более приоритетное.
      */
     public void addEvent(TicketEvent event) {
-        Long ticketId = event.ticketId();
+        Object key = keyOf(event);
 
-        TicketEvent existing = pendingEvents.get(ticketId);
+        TicketEvent existing = pendingEvents.get(key);
         if (existing == null || shouldReplace(existing, event)) {
-            pendingEvents.put(ticketId, event);
-            log.trace("Event aggregated: ticketId={}, type={}", ticketId, event.type());
+            pendingEvents.put(key, event);
+            log.trace("Event aggregated: ticketId={}, type={}", event.ticketId(), event.type());
         } else {
             log.trace("Event skipped (lower priority): ticketId={}, type={}, existing={}",
-                    ticketId, event.type(), existing.type());
+                    event.ticketId(), event.type(), existing.type());
         }
     }
 
@@ -88,8 +99,9 @@ public class TicketEventAggregator {
     /**
      * Определяет, нужно ли заменить существующее событие на новое.
      * Новое событие заменяет старое если у него выше или равный приоритет.
+     * Используется также при debounce обновлений в TicketEventConsumer.
      */
-    private boolean shouldReplace(TicketEvent existing, TicketEvent newEvent) {
+    public static boolean shouldReplace(TicketEvent existing, TicketEvent newEvent) {
         // DELETED всегда побеждает — тикет удалён, другие события не важны
         if (newEvent.type() == TicketEventType.DELETED) {
             return true;
@@ -100,4 +112,19 @@ public class TicketEventAggregator {
         // Для остальных — новое событие всегда актуальнее
         // (оно содержит самый свежий payload)
     }
+
+    private Object keyOf(TicketEvent event) {
+        return switch (event.type()) {
+            case CREATED, UPDATED, STATUS_CHANGED, ASSIGNED, RATED, DELETED -> new TicketKey(event.ticketId());
+            case ASSIGNMENT_CREATED, ASSIGNMENT_REJECTED, USER_STATUS_CHANGED, LINE_ASSIGNMENT_CREATED ->
+                    new RecipientKey(event.type(), event.ticketId(), event.userId());
+            default -> ++sequence;
+        };
+    }
+
+    private record TicketKey(Long ticketId) {
+    }
+
+    private record RecipientKey(TicketEventType type, Long ticketId, Long userId) {
+    }
 }
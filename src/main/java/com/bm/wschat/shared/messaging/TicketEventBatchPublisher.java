@@ -0,0 +1,202 @@
+package com.bm.wschat.shared.messaging;
+
+import com.bm.wschat.shared.messaging.config.MessagingProperties;
+import com.bm.wschat.shared.messaging.config.RabbitMQConfig;
+import com.bm.wschat.shared.messaging.event.TicketEvent;
+import com.bm.wschat.shared.messaging.outbox.TicketEventOutbox;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пакетная публикация событий тикетов в RabbitMQ с publisher confirms.
+ * 
+ * Логика:
+ * 1. Все события пачки публикуются подряд в одном канале (rabbitTemplate.invoke),
+ * без ожидания подтверждения каждого — порядок сохраняется, round trip один
+ * 2. Затем ждём correlated confirms всей пачки с общим дедлайном
+ * 3. Подтверждённым считается только префикс событий каждого тикета: после
+ * первого неподтверждённого (nack или таймаут) события тикета все следующие
+ * события этого тикета тоже публикуются заново, даже если брокер их принял,
+ * иначе повтор пришёл бы к консьюмеру после более новых событий
+ * 4. Повторы — не более maxAttempts раз
+ * 
+ * Метрики:
+ * - servicedesk.events.publish.batch — время публикации пачки (включая confirms)
+ * - servicedesk.events.publish.batch.size — размер пачки
+ * - servicedesk.events.published{result=ack|nack} — итог по событиям
+ * - servicedesk.events.publish.retries — повторные публикации
+ */
+@Slf4j
+@Component
+public class TicketEventBatchPublisher {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final MessagingProperties.Publisher properties;
+
+    private final Timer batchTimer;
+    private final DistributionSummary batchSize;
+    private final Counter ackCounter;
+    private final Counter nackCounter;
+    private final Counter retryCounter;
+
+    public TicketEventBatchPublisher(RabbitTemplate rabbitTemplate,
+                                     MessagingProperties messagingProperties,
+                                     MeterRegistry meterRegistry) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.properties = messagingProperties.getPublisher();
+
+        this.batchTimer = Timer.builder("servicedesk.events.publish.batch")
+                .description("Время публикации пачки событий с ожиданием confirms")
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("servicedesk.events.publish.batch.size")
+                .description("Количество событий в пачке")
+                .register(meterRegistry);
+        this.ackCounter = Counter.builder("servicedesk.events.published")
+                .tag("result", "ack")
+                .register(meterRegistry);
+        this.nackCounter = Counter.builder("servicedesk.events.published")
+                .tag("result", "nack")
+                .register(meterRegistry);
+        this.retryCounter = Counter.builder("servicedesk.events.publish.retries")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Опубликовать пачку событий outbox (в порядке записи).
+     *
+     * @return подтверждённый префикс событий каждого тикета и остаток в исходном порядке
+     */
+    public Result publish(List<TicketEventOutbox> batch) {
+        List<Long> confirmed = new ArrayList<>();
+        if (batch.isEmpty()) {
+            return new Result(confirmed, List.of());
+        }
+
+        Timer.Sample sample = Timer.start();
+        List<TicketEventOutbox> toSend = batch;
+
+        for (int attempt = 1; attempt <= properties.getMaxAttempts() && !toSend.isEmpty(); attempt++) {
+            if (attempt > 1) {
+                retryCounter.increment(toSend.size());
+                log.debug("Republishing {} unconfirmed events, attempt {}", toSend.size(), attempt);
+            }
+            toSend = confirmedPrefix(toSend, sendAndAwaitConfirms(toSend), confirmed);
+        }
+
+        sample.stop(batchTimer);
+        batchSize.record(batch.size());
+        ackCounter.increment(confirmed.size());
+        nackCounter.increment(toSend.size());
+
+        if (!toSend.isEmpty()) {
+            log.warn("{} of {} events not confirmed by broker", toSend.size(), batch.size());
+        }
+        return new Result(confirmed, toSend);
+    }
+
+    /**
+     * Разделить отправленные события на подтверждённый префикс каждого тикета
+     * (добавляется в confirmed) и остаток — с первого неподтверждённого события тикета.
+     *
+     * @return остаток в исходном порядке
+     */
+    static List<TicketEventOutbox> confirmedPrefix(List<TicketEventOutbox> sent, Set<Long> acked,
+                                                   List<Long> confirmed) {
+        Set<Object> blocked = new HashSet<>();
+        List<TicketEventOutbox> remaining = new ArrayList<>();
+        for (TicketEventOutbox row : sent) {
+            // События без тикета не упорядочены друг относительно друга
+            Object orderKey = row.getTicketId() != null ? row.getTicketId() : "event:" + row.getId();
+            if (!blocked.contains(orderKey) && acked.contains(row.getId())) {
+                confirmed.add(row.getId());
+            } else {
+                blocked.add(orderKey);
+                remaining.add(row);
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Публикует события в одном канале и ждёт подтверждений.
+     *
+     * @return id событий, подтверждённых брокером
+     */
+    private Set<Long> sendAndAwaitConfirms(List<TicketEventOutbox> rows) {
+        Map<TicketEventOutbox, CorrelationData> pending = rabbitTemplate.invoke(operations -> {
+            Map<TicketEventOutbox, CorrelationData> sent = new LinkedHashMap<>();
+            for (TicketEventOutbox row : rows) {
+                CorrelationData correlation = new CorrelationData(String.valueOf(row.getId()));
+                operations.send(RabbitMQConfig.EXCHANGE_NAME, row.getRoutingKey(), toMessage(row), correlation);
+                sent.put(row, correlation);
+            }
+            return sent;
+        });
+
+        Set<Long> acked = new HashSet<>();
+        if (pending == null) {
+            return acked;
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getConfirmTimeoutMs());
+        pending.forEach((row, correlation) -> {
+            if (isConfirmed(correlation, deadline)) {
+                acked.add(row.getId());
+            }
+        });
+        return acked;
+    }
+
+    private boolean isConfirmed(CorrelationData correlation, long deadline) {
+        try {
+            long remaining = Math.max(0, deadline - System.nanoTime());
+            CorrelationData.Confirm confirm = correlation.getFuture().get(remaining, TimeUnit.NANOSECONDS);
+            return confirm.ack();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            log.debug("Publisher confirm not received: id={}, error={}", correlation.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    private Message toMessage(TicketEventOutbox row) {
+        MessageProperties messageProperties = new MessageProperties();
+        messageProperties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        messageProperties.setContentEncoding(StandardCharsets.UTF_8.name());
+        messageProperties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+        messageProperties.setMessageId(String.valueOf(row.getId()));
+        // Для метрики задержки доставки на стороне консьюмеров
+        messageProperties.setTimestamp(Date.from(row.getCreatedAt()));
+        // Тип для JacksonJsonMessageConverter на стороне консьюмеров
+        messageProperties.setHeader("__TypeId__", TicketEvent.class.getName());
+        return new Message(row.getPayload().getBytes(StandardCharsets.UTF_8), messageProperties);
+    }
+
+    /**
+     * @param confirmed   id подтверждённых событий в порядке публикации
+     * @param unconfirmed события, которые нужно опубликовать снова, в исходном порядке
+     */
+    public record Result(List<Long> confirmed, List<TicketEventOutbox> unconfirmed) {
+    }
+}
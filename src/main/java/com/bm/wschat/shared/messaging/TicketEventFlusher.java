@@ -1,53 +1,90 @@
 package com.bm.wschat.shared.messaging;
 
-import com.bm.wschat.shared.messaging.config.RabbitMQConfig;
+import com.bm.wschat.feature.ticket.repository.TicketRepository;
 import com.bm.wschat.shared.messaging.event.TicketEvent;
+import com.bm.wschat.shared.messaging.outbox.TicketEventOutboxWriter;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
- * Слушатель транзакций для отправки агрегированных событий после коммита.
+ * Сброс агрегированных событий в outbox.
  * 
  * Логика:
  * 1. Во время транзакции события накапливаются в TicketEventAggregator
- * 2. После COMMIT транзакции — публикуем события с @TransactionalEventListener
- * (невозможно)
+ * 2. Перед COMMIT (TransactionSynchronization.beforeCommit) агрегированные
+ * события пишутся в таблицу ticket_event_outbox в той же транзакции
+ * 3. TicketEventOutboxRelay публикует их в RabbitMQ с publisher confirms
+ * 
+ * Так откат транзакции отменяет и события, а медленный или недоступный
+ * брокер не блокирует поток запроса.
  * 
- * Альтернативный подход: вызываем flush явно в конце @Transactional метода.
+ * Перед записью событиям состояния тикета проставляется @Version тикета
+ * (после flush — т.е. та версия, что будет закоммичена). По ней клиенты
+ * применяют патчи из /topic/ticket.{id}.patch.
  */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class TicketEventFlusher {
 
-    private final RabbitTemplate rabbitTemplate;
+    private final TicketEventOutboxWriter outboxWriter;
+    private final TicketRepository ticketRepository;
+    private final EntityManager entityManager;
 
     /**
-     * Отправить все агрегированные события в RabbitMQ.
-     * Вызывается явно в конце транзакции или через AOP.
+     * Записать все агрегированные события в outbox.
+     * Вызывается перед коммитом транзакции.
      */
     public void flush(TicketEventAggregator aggregator) {
         if (!aggregator.hasEvents()) {
             return;
         }
 
-        int count = aggregator.size();
+        List<TicketEvent> events = List.copyOf(aggregator.getEvents());
+        aggregator.clear();
+
+        write(events);
+        log.debug("Flushed {} aggregated events to outbox", events.size());
+    }
 
-        for (TicketEvent event : aggregator.getEvents()) {
-            String routingKey = "ticket." + event.type().name().toLowerCase();
+    /**
+     * Записать события в outbox, проставив версии тикетов.
+     * Используется и для немедленной публикации в обход агрегатора.
+     */
+    public void write(List<TicketEvent> events) {
+        outboxWriter.write(stampVersions(events));
+    }
 
-            rabbitTemplate.convertAndSend(
-                    RabbitMQConfig.EXCHANGE_NAME,
-                    routingKey,
-                    event);
+    private List<TicketEvent> stampVersions(List<TicketEvent> events) {
+        Set<Long> ticketIds = events.stream()
+                .filter(TicketEvent::isTicketState)
+                .map(TicketEvent::ticketId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        if (ticketIds.isEmpty()) {
+            return events;
+        }
 
-            log.debug("Flushed aggregated event: type={}, ticketId={}",
-                    event.type(), event.ticketId());
+        // Версия увеличивается только при flush — сбрасываем изменения заранее
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            entityManager.flush();
         }
+        Map<Long, Long> versions = ticketRepository.findVersionsByIds(ticketIds).stream()
+                .collect(Collectors.toMap(row -> (Long) row[0], row -> (Long) row[1]));
 
-        aggregator.clear();
-        log.debug("Flushed {} aggregated events", count);
+        return events.stream()
+                .map(event -> event.isTicketState() && versions.containsKey(event.ticketId())
+                        ? event.withVersion(versions.get(event.ticketId()))
+                        : event)
+                .toList();
     }
 }
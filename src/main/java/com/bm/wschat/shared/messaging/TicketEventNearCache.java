@@ -0,0 +1,93 @@
+package com.bm.wschat.shared.messaging;
+
+import com.bm.wschat.feature.message.dto.response.MessageResponse;
+import com.bm.wschat.feature.ticket.dto.ticket.response.TicketResponse;
+import com.bm.wschat.shared.messaging.config.MessagingProperties;
+import com.bm.wschat.shared.messaging.event.TicketEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Последние состояния тикетов и сообщения в памяти инстанса (LRU).
+ *
+ * Заполняется при записи события в outbox (полный payload ещё в памяти) и
+ * при загрузке из БД консьюмером. Если компактное событие обрабатывает тот
+ * же инстанс, что его опубликовал, payload восстанавливается без БД.
+ */
+@Component
+public class TicketEventNearCache {
+
+    private final Map<Long, TicketEntry> tickets;
+    private final Map<Long, MessageResponse> messages;
+
+    public TicketEventNearCache(MessagingProperties messagingProperties) {
+        int maxEntries = messagingProperties.getConsumer().getNearCacheSize();
+        this.tickets = lru(maxEntries);
+        this.messages = lru(maxEntries);
+    }
+
+    /**
+     * Запомнить полный payload события перед отправкой компактного конверта
+     */
+    public void remember(TicketEvent event) {
+        if (event.payload() instanceof TicketResponse ticket && event.isTicketState()) {
+            putTicket(event.ticketId(), event.version() != null ? event.version() : ticket.version(), ticket);
+        } else if (event.payload() instanceof MessageResponse message && event.isMessage()) {
+            putMessage(message);
+        }
+    }
+
+    /**
+     * Состояние тикета не старше version (null — любое известное)
+     */
+    public synchronized TicketResponse getTicket(Long ticketId, Long version) {
+        TicketEntry entry = tickets.get(ticketId);
+        if (entry == null) {
+            return null;
+        }
+        if (version != null && (entry.version() == null || entry.version() < version)) {
+            return null;
+        }
+        return entry.response();
+    }
+
+    public synchronized void putTicket(Long ticketId, Long version, TicketResponse response) {
+        TicketEntry current = tickets.get(ticketId);
+        // Более старое состояние не вытесняет уже известное новое
+        if (current != null && current.version() != null && version != null && current.version() > version) {
+            return;
+        }
+        tickets.put(ticketId, new TicketEntry(version, response));
+    }
+
+    public synchronized MessageResponse getMessage(Long messageId) {
+        return messages.get(messageId);
+    }
+
+    public synchronized void putMessage(MessageResponse message) {
+        if (message.id() == null) {
+            return;
+        }
+        MessageResponse current = messages.get(message.id());
+        // Текст до правки не вытесняет уже известный отредактированный
+        if (current != null && current.updatedAt() != null
+                && (message.updatedAt() == null || current.updatedAt().isAfter(message.updatedAt()))) {
+            return;
+        }
+        messages.put(message.id(), message);
+    }
+
+    private static <V> Map<Long, V> lru(int maxEntries) {
+        return new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    private record TicketEntry(Long version, TicketResponse response) {
+    }
+}
@@ -1,96 +1,123 @@
 package com.bm.wschat.shared.messaging;
 
-import com.bm.wschat.shared.messaging.config.RabbitMQConfig;
 import com.bm.wschat.shared.messaging.event.TicketEvent;
+import com.bm.wschat.shared.messaging.outbox.TicketEventOutboxRelay;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
-import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
 
 /**
- * Публикатор событий тикетов в RabbitMQ.
+ * Публикатор событий тикетов.
+ * 
+ * События не отправляются в RabbitMQ напрямую, а пишутся в outbox
+ * (ticket_event_outbox), откуда их публикует TicketEventOutboxRelay.
  * 
  * Поддерживает два режима:
- * 1. Агрегированный (в контексте HTTP-запроса) — события накапливаются и
- * отправляются после коммита
- * 2. Немедленный (вне контекста запроса) — события отправляются сразу
+ * 1. Агрегированный (внутри транзакции) — события накапливаются в
+ * TicketEventAggregator, привязанном к транзакции, пишутся в outbox перед
+ * коммитом, а после коммита релей публикует их без ожидания очередного опроса
+ * 2. Немедленный (вне транзакции) — событие сразу пишется в outbox
  * 
- * Используется ObjectProvider для ленивой инъекции RequestScope бина.
+ * Агрегация не зависит от точки входа: HTTP-запросы, STOMP-обработчики,
+ * слушатели событий и фоновые задачи обрабатываются одинаково.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class TicketEventPublisher {
 
-    private final RabbitTemplate rabbitTemplate;
-    private final ObjectProvider<TicketEventAggregator> aggregatorProvider;
     private final TicketEventFlusher eventFlusher;
+    private final TicketEventOutboxRelay outboxRelay;
 
     /**
      * Опубликовать событие тикета.
-     * В контексте HTTP-запроса — добавляет в агрегатор.
-     * Вне контекста — отправляет немедленно.
+     * Внутри транзакции — добавляет в агрегатор транзакции.
+     * Вне транзакции — пишет в outbox немедленно.
      */
     public void publish(TicketEvent event) {
-
-        if (RequestContextHolder.getRequestAttributes() == null) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
             publishImmediately(event);
             return;
         }
 
-        try {
-            // Пытаемся получить агрегатор (работает только в RequestScope)
-            TicketEventAggregator aggregator = aggregatorProvider.getIfAvailable();
-            if (aggregator != null) {
-                aggregator.addEvent(event);
-                log.trace("Event added to aggregator: type={}, ticketId={}",
-                        event.type(), event.ticketId());
-            } else {
-                // Вне HTTP-запроса — отправляем сразу
-                publishImmediately(event);
-            }
-        } catch (Exception e) {
-            // Fallback — отправляем сразу если что-то пошло не так
-            log.warn("Failed to aggregate event, publishing immediately: {}", e.getMessage());
-            publishImmediately(event);
-        }
+        currentAggregation().aggregator.addEvent(event);
+        log.trace("Event added to aggregator: type={}, ticketId={}",
+                event.type(), event.ticketId());
     }
 
     /**
-     * Отправить событие немедленно (обход агрегатора).
-     * Используется для критичных событий или вне HTTP-контекста.
+     * Записать событие в outbox немедленно (обход агрегатора).
+     * Используется для критичных событий или вне транзакции. Версия тикета
+     * проставляется так же, как при сбросе агрегатора — иначе клиенты
+     * получили бы вместо патча полное состояние.
      */
     public void publishImmediately(TicketEvent event) {
-        String routingKey = "ticket." + event.type().name().toLowerCase();
+        eventFlusher.write(List.of(event));
 
-        rabbitTemplate.convertAndSend(
-                RabbitMQConfig.EXCHANGE_NAME,
-                routingKey,
-                event);
-
-        log.debug("Published ticket event immediately: type={}, ticketId={}, routingKey={}",
-                event.type(), event.ticketId(), routingKey);
+        log.debug("Published ticket event to outbox: type={}, ticketId={}",
+                event.type(), event.ticketId());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            outboxRelay.wakeUp();
+        }
     }
 
     /**
-     * Принудительно отправить все накопленные события.
-     * Вызывается в конце транзакции через AOP или вручную.
+     * Принудительно записать все накопленные в текущей транзакции события в
+     * outbox. Обычно вызывается автоматически перед коммитом.
      */
     public void flush() {
-        // Проверяем наличие RequestScope — без него агрегатор недоступен
-        if (RequestContextHolder.getRequestAttributes() == null) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
             return;
         }
+        eventFlusher.flush(currentAggregation().aggregator);
+    }
 
-        try {
-            TicketEventAggregator aggregator = aggregatorProvider.getIfAvailable();
-            if (aggregator != null && aggregator.hasEvents()) {
-                eventFlusher.flush(aggregator);
+    /**
+     * Агрегация текущей транзакции. Регистрируется при первом событии.
+     * Синхронизации приостанавливаются вместе с транзакцией, поэтому у
+     * вложенной REQUIRES_NEW транзакции будет свой агрегатор.
+     */
+    private TransactionAggregation currentAggregation() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof TransactionAggregation aggregation) {
+                return aggregation;
             }
-        } catch (Exception e) {
-            log.warn("Failed to flush events: {}", e.getMessage());
+        }
+        TransactionAggregation aggregation = new TransactionAggregation();
+        TransactionSynchronizationManager.registerSynchronization(aggregation);
+        return aggregation;
+    }
+
+    private class TransactionAggregation implements TransactionSynchronization {
+
+        private final TicketEventAggregator aggregator = new TicketEventAggregator();
+
+        /**
+         * Пишем агрегированные события в outbox в той же транзакции
+         */
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            eventFlusher.flush(aggregator);
+        }
+
+        /**
+         * События зафиксированы — будим релей, чтобы не ждать опроса
+         */
+        @Override
+        public void afterCommit() {
+            outboxRelay.wakeUp();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status != STATUS_COMMITTED && aggregator.hasEvents()) {
+                log.debug("Transaction rolled back, {} aggregated events discarded", aggregator.size());
+            }
+            aggregator.clear();
         }
     }
 
@@ -124,6 +151,14 @@ public class TicketEventPublisher {
         publish(TicketEvent.deleted(ticketId, userId));
     }
 
+    /**
+     * Публикует нарушение SLA тикета (TicketSlaMonitor).
+     * Рассылается в /topic/sla.breach и в чат линии в Telegram.
+     */
+    public void publishSlaBreach(Long ticketId, Object payload) {
+        publish(TicketEvent.slaBreach(ticketId, payload));
+    }
+
     /**
      * Публикует событие о создании назначения для получателя.
      * Отправляется персонально назначенному пользователю.
@@ -132,6 +167,14 @@ public class TicketEventPublisher {
         publish(TicketEvent.assignmentCreated(ticketId, toUserId, payload));
     }
 
+    /**
+     * Публикует событие о создании назначения на линию.
+     * Рассылается в топик линии, на который подписаны её специалисты.
+     */
+    public void publishLineAssignmentCreated(Long ticketId, Long lineId, Object payload) {
+        publish(TicketEvent.lineAssignmentCreated(ticketId, lineId, payload));
+    }
+
     /**
      * Публикует событие об отклонении назначения.
      * Отправляется пользователю, создавшему назначение (fromUser).
@@ -31,5 +31,7 @@ public enum TicketEventType {
     /** Статус пользователя изменён */
     USER_STATUS_CHANGED,
     /** Сообщение обновлено */
-    MESSAGE_UPDATED
+    MESSAGE_UPDATED,
+    /** Назначение создано на линию (без конкретного специалиста) */
+    LINE_ASSIGNMENT_CREATED
 }
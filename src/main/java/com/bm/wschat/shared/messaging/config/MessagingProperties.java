@@ -0,0 +1,181 @@
+package com.bm.wschat.shared.messaging.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Настройки доставки событий тикетов.
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "messaging")
+public class MessagingProperties {
+
+    private Outbox outbox = new Outbox();
+
+    private Publisher publisher = new Publisher();
+
+    private Consumer consumer = new Consumer();
+
+    private Retry retry = new Retry();
+
+    @Getter
+    @Setter
+    public static class Outbox {
+        /**
+         * Максимальное количество событий, публикуемых релеем за один проход
+         */
+        private int batchSize = 100;
+
+        /**
+         * Пауза между проходами релея (мс)
+         */
+        private long pollIntervalMs = 200;
+
+        /**
+         * Сколько часов хранить уже отправленные события
+         */
+        private int retentionHours = 24;
+
+        /**
+         * Сколько событие остаётся за релеем, занявшим его (мс). Должно быть больше
+         * времени публикации пачки: publisher.confirm-timeout-ms * publisher.max-attempts
+         */
+        private long leaseMs = 60_000;
+
+        /**
+         * Сколько проходов релея пробовать опубликовать событие, после чего оно откладывается (parked_at)
+         */
+        private int maxAttempts = 10;
+
+        /**
+         * Пауза перед повторной публикацией после первой неудачи (мс), далее удваивается
+         */
+        private long retryInitialMs = 1000;
+
+        /**
+         * Максимальная пауза между повторными публикациями (мс)
+         */
+        private long retryMaxMs = 60_000;
+    }
+
+    @Getter
+    @Setter
+    public static class Publisher {
+        /**
+         * Сколько ждать publisher confirms пачки от брокера (мс)
+         */
+        private long confirmTimeoutMs = 5000;
+
+        /**
+         * Сколько раз публиковать событие, не подтверждённое брокером, в рамках одной пачки
+         */
+        private int maxAttempts = 3;
+
+        /**
+         * Формат событий в брокере. COMPACT — без payload (id, тип, версия,
+         * изменившиеся поля), консьюмеры восстанавливают его сами. Консьюмеры
+         * читают оба формата, поэтому при обновлении кластера сначала
+         * выкатываются они, затем COMPACT включается явно
+         */
+        private EventFormat eventFormat = EventFormat.FULL;
+    }
+
+    public enum EventFormat {
+        FULL,
+        COMPACT
+    }
+
+    @Getter
+    @Setter
+    public static class Consumer {
+        /**
+         * Окно debounce обновлений одного тикета перед рассылкой в WebSocket (мс).
+         * 0 — рассылать каждое обновление сразу
+         */
+        private long debounceWindowMs = 100;
+
+        /**
+         * Максимальная задержка рассылки обновления тикета от первого события в окне (мс)
+         */
+        private long debounceMaxDelayMs = 500;
+
+        /**
+         * Рассылать полный TicketResponse в /topic/ticket.{id} (старые клиенты).
+         * Патчи в /topic/ticket.{id}.patch рассылаются всегда
+         */
+        private boolean fullTicketUpdates = true;
+
+        /**
+         * Сколько последних состояний тикетов хранить для вычисления патчей
+         */
+        private int patchTrackedTickets = 10_000;
+
+        /**
+         * Сколько последних кадров хранить для догрузки на каждый топик /topic/ticket.**
+         */
+        private int replayBufferSize = 100;
+
+        /**
+         * Сколько топиков держать в буфере догрузки (LRU)
+         */
+        private int replayMaxTopics = 20_000;
+
+        /**
+         * Сколько кадров хранить в буфере догрузки всего (по всем топикам)
+         */
+        private int replayMaxFrames = 100_000;
+
+        /**
+         * Сколько секунд хранить кадр для догрузки
+         */
+        private long replayTtlSeconds = 300;
+
+        /**
+         * Сколько последних тикетов и сообщений держать в памяти для
+         * восстановления компактных событий без обращения к БД
+         */
+        private int nearCacheSize = 10_000;
+
+        /**
+         * Обновления тикетов, чьё окно debounce истекает в пределах этого
+         * интервала, рассылаются вместе — payload для них грузится одним запросом (мс)
+         */
+        private long debounceBatchSlackMs = 20;
+    }
+
+    @Getter
+    @Setter
+    public static class Retry {
+        /**
+         * Сколько раз обрабатывать событие консьюмером (включая первую попытку),
+         * после чего оно уходит в DLQ
+         */
+        private int maxAttempts = 4;
+
+        /**
+         * Задержка перед первой повторной попыткой (мс)
+         */
+        private long initialIntervalMs = 1000;
+
+        /**
+         * Множитель задержки для каждой следующей попытки
+         */
+        private double multiplier = 4.0;
+
+        /**
+         * Период обновления метрик глубины очередей (мс)
+         */
+        private long queueMetricsIntervalMs = 15_000;
+
+        /**
+         * Задержка перед попыткой attempt + 1 после attempt неудачных (attempt >= 1)
+         */
+        public long delayMs(int attempt) {
+            return (long) (initialIntervalMs * Math.pow(multiplier, attempt - 1));
+        }
+    }
+}
@@ -1,16 +1,44 @@
 package com.bm.wschat.shared.messaging.config;
 
+import com.bm.wschat.shared.messaging.TicketEventType;
+import com.bm.wschat.shared.messaging.consumer.ListenerRetryInterceptor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.ContainerCustomizer;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
 import org.springframework.amqp.support.converter.JacksonJsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.boot.ApplicationRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
 /**
  * Конфигурация RabbitMQ для событий тикетов.
+ * 
+ * Каждая очередь привязана только к routing key тех событий, которые
+ * обрабатывает её консьюмер (ticket.{type}). SLA_BREACH и события назначений
+ * идут отдельной приоритетной очередью со своими консьюмерами и не ждут
+ * за потоком сообщений чата.
+ * 
+ * Повторы и dead-letter для очередей консьюмеров:
+ * - ошибка обработки → событие переотправляется в {queue}.retry.{n}
+ * (x-message-ttl растёт экспоненциально), по истечении TTL брокер
+ * возвращает его в исходную очередь
+ * - после messaging.retry.max-attempts попыток → {queue}.dlq
+ * - из DLQ события возвращаются вручную через /api/v1/admin/messaging
+ * 
+ * Аргументы основных очередей не меняются, чтобы не ломать повторное
+ * объявление уже существующих очередей на брокере.
  */
+@Slf4j
 @Configuration
 public class RabbitMQConfig {
 
@@ -20,13 +48,64 @@ public class RabbitMQConfig {
      */
     public static final String EXCHANGE_NAME = "servicedesk.events";
     public static final String TICKET_QUEUE = "servicedesk.ticket.events";
-    public static final String ROUTING_KEY = "ticket.#";
+    public static final String TICKET_PRIORITY_QUEUE = "servicedesk.ticket.events.priority";
 
     /**
      * Маршруты для отправки уведомлений в Телеграмм
      */
     public static final String TELEGRAM_QUEUE = "servicedesk.telegram.notifications";
-    public static final String TELEGRAM_ROUTING_KEY = "ticket.#";
+    public static final String TELEGRAM_PRIORITY_QUEUE = "servicedesk.telegram.notifications.priority";
+
+    /**
+     * Уведомления Telegram, которые не удалось отправить сразу (TelegramNotification)
+     */
+    public static final String TELEGRAM_OUTGOING_QUEUE = "servicedesk.telegram.outgoing";
+
+    /**
+     * Приоритетная полоса: срочные события, не зависящие от порядка обновлений тикета
+     */
+    public static final Set<TicketEventType> PRIORITY_EVENTS = EnumSet.of(
+            TicketEventType.SLA_BREACH,
+            TicketEventType.ASSIGNMENT_CREATED,
+            TicketEventType.LINE_ASSIGNMENT_CREATED,
+            TicketEventType.ASSIGNMENT_REJECTED);
+
+    /**
+     * События, по которым TelegramEventConsumer что-то отправляет
+     */
+    public static final Set<TicketEventType> TELEGRAM_EVENTS = EnumSet.of(
+            TicketEventType.CREATED,
+            TicketEventType.ASSIGNED,
+            TicketEventType.STATUS_CHANGED,
+            TicketEventType.SLA_BREACH);
+
+    /**
+     * Прежняя привязка "всё подряд" — снимается при старте
+     */
+    private static final String LEGACY_ROUTING_KEY = "ticket.#";
+
+    /**
+     * Повторы и dead-letter
+     */
+    public static final String RETRY_EXCHANGE_NAME = "servicedesk.events.retry";
+    public static final String DLX_EXCHANGE_NAME = "servicedesk.events.dlx";
+    public static final List<String> CONSUMER_QUEUES = List.of(
+            TICKET_QUEUE, TICKET_PRIORITY_QUEUE, TELEGRAM_QUEUE, TELEGRAM_PRIORITY_QUEUE, TELEGRAM_OUTGOING_QUEUE);
+
+    /**
+     * Routing key события в exchange servicedesk.events
+     */
+    public static String routingKey(TicketEventType type) {
+        return "ticket." + type.name().toLowerCase();
+    }
+
+    public static String retryQueue(String queue, int attempt) {
+        return queue + ".retry." + attempt;
+    }
+
+    public static String deadLetterQueue(String queue) {
+        return queue + ".dlq";
+    }
 
 //    ================= Internal queue ================
     @Bean
@@ -40,11 +119,15 @@ public class RabbitMQConfig {
     }
 
     @Bean
-    public Binding ticketBinding(Queue ticketQueue, TopicExchange ticketExchange) {
-        return BindingBuilder
-                .bind(ticketQueue)
-                .to(ticketExchange)
-                .with(ROUTING_KEY);
+    public Queue ticketPriorityQueue() {
+        return QueueBuilder.durable(TICKET_PRIORITY_QUEUE).build();
+    }
+
+    @Bean
+    public Declarables ticketBindings(Queue ticketQueue, Queue ticketPriorityQueue, TopicExchange ticketExchange) {
+        Set<TicketEventType> regular = EnumSet.allOf(TicketEventType.class);
+        regular.removeAll(PRIORITY_EVENTS);
+        return bindings(ticketExchange, ticketQueue, regular, ticketPriorityQueue, PRIORITY_EVENTS);
     }
 
 //    ================ TG queue ===============
@@ -55,11 +138,97 @@ public class RabbitMQConfig {
     }
 
     @Bean
-    public Binding telegramBinding(Queue telegramQueue, TopicExchange ticketExchange) {
-        return BindingBuilder
-                .bind(telegramQueue)
-                .to(ticketExchange)
-                .with(TELEGRAM_ROUTING_KEY);
+    public Queue telegramPriorityQueue() {
+        return QueueBuilder.durable(TELEGRAM_PRIORITY_QUEUE).build();
+    }
+
+    @Bean
+    public Queue telegramOutgoingQueue() {
+        return QueueBuilder.durable(TELEGRAM_OUTGOING_QUEUE).build();
+    }
+
+    @Bean
+    public Declarables telegramBindings(Queue telegramQueue, Queue telegramPriorityQueue, TopicExchange ticketExchange) {
+        Set<TicketEventType> regular = EnumSet.copyOf(TELEGRAM_EVENTS);
+        regular.removeAll(PRIORITY_EVENTS);
+        Set<TicketEventType> priority = EnumSet.copyOf(TELEGRAM_EVENTS);
+        priority.retainAll(PRIORITY_EVENTS);
+        return bindings(ticketExchange, telegramQueue, regular, telegramPriorityQueue, priority);
+    }
+
+    /**
+     * Объявление бинов не удаляет привязки на брокере — старую ticket.#
+     * снимаем явно, иначе очереди продолжат получать все события
+     */
+    @Bean
+    public ApplicationRunner legacyBindingCleanup(AmqpAdmin amqpAdmin) {
+        return args -> {
+            for (String queue : List.of(TICKET_QUEUE, TELEGRAM_QUEUE)) {
+                try {
+                    amqpAdmin.removeBinding(new Binding(queue, Binding.DestinationType.QUEUE,
+                            EXCHANGE_NAME, LEGACY_ROUTING_KEY, null));
+                } catch (Exception e) {
+                    log.warn("Failed to remove legacy binding {} for {}: {}", LEGACY_ROUTING_KEY, queue, e.getMessage());
+                }
+            }
+        };
+    }
+
+    private static Declarables bindings(TopicExchange exchange,
+                                        Queue regularQueue, Collection<TicketEventType> regularTypes,
+                                        Queue priorityQueue, Collection<TicketEventType> priorityTypes) {
+        List<Declarable> declarables = new ArrayList<>();
+        for (TicketEventType type : regularTypes) {
+            declarables.add(BindingBuilder.bind(regularQueue).to(exchange).with(routingKey(type)));
+        }
+        for (TicketEventType type : priorityTypes) {
+            declarables.add(BindingBuilder.bind(priorityQueue).to(exchange).with(routingKey(type)));
+        }
+        return new Declarables(declarables);
+    }
+
+//    ================ Retry / DLQ ===============
+
+    @Bean
+    public Declarables retryTopology(MessagingProperties messagingProperties) {
+        MessagingProperties.Retry retry = messagingProperties.getRetry();
+        DirectExchange retryExchange = new DirectExchange(RETRY_EXCHANGE_NAME);
+        DirectExchange deadLetterExchange = new DirectExchange(DLX_EXCHANGE_NAME);
+
+        List<Declarable> declarables = new ArrayList<>(List.of(retryExchange, deadLetterExchange));
+        for (String queue : CONSUMER_QUEUES) {
+            for (int attempt = 1; attempt < retry.getMaxAttempts(); attempt++) {
+                // Отстоялось TTL → обратно в исходную очередь через default exchange
+                Queue retryQueue = QueueBuilder.durable(retryQueue(queue, attempt))
+                        .ttl((int) retry.delayMs(attempt))
+                        .deadLetterExchange("")
+                        .deadLetterRoutingKey(queue)
+                        .build();
+                declarables.add(retryQueue);
+                declarables.add(BindingBuilder.bind(retryQueue).to(retryExchange).with(retryQueue.getName()));
+            }
+
+            Queue deadLetterQueue = QueueBuilder.durable(deadLetterQueue(queue)).build();
+            declarables.add(deadLetterQueue);
+            declarables.add(BindingBuilder.bind(deadLetterQueue).to(deadLetterExchange).with(queue));
+        }
+        return new Declarables(declarables);
+    }
+
+    /**
+     * Применяется Spring Boot ко всем контейнерам @RabbitListener
+     * (concurrency — в аннотации, prefetch — spring.rabbitmq.listener.simple.prefetch)
+     */
+    @Bean
+    public ContainerCustomizer<SimpleMessageListenerContainer> listenerRetryCustomizer(
+            ListenerRetryInterceptor retryInterceptor) {
+        return container -> {
+            container.setAdviceChain(retryInterceptor);
+            // Резервный инстанс эксклюзивного консьюмера пробует подписаться каждые
+            // recovery-interval — это штатная ситуация, а не ошибка
+            container.setExclusiveConsumerExceptionLogger((logger, message, cause) ->
+                    logger.debug("Exclusive consumer is held by another instance: " + message));
+        };
     }
 
     @Bean
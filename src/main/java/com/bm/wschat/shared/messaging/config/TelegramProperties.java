@@ -24,4 +24,73 @@ public class TelegramProperties {
      * Включена ли отправка уведомлений в Telegram
      */
     private boolean enabled = false;
+
+    /**
+     * Базовый адрес Bot API (для тестов — локальный stub-сервер)
+     */
+    private String apiUrl = "https://api.telegram.org";
+
+    private Sender sender = new Sender();
+
+    private Inbound inbound = new Inbound();
+
+    @Getter
+    @Setter
+    public static class Sender {
+        /**
+         * Максимум сообщений в очереди отправки; при переполнении новые отбрасываются
+         */
+        private int queueCapacity = 5000;
+
+        /**
+         * Общий лимит бота (сообщений в секунду)
+         */
+        private double globalRatePerSecond = 25;
+
+        /**
+         * Минимальный интервал между сообщениями в один чат (мс)
+         */
+        private long perChatIntervalMs = 1100;
+
+        /**
+         * Сколько раз пытаться отправить сообщение (429, 5xx, ошибки соединения)
+         */
+        private int maxAttempts = 5;
+
+        /**
+         * Задержка перед первым повтором после 5xx или ошибки соединения (мс),
+         * дальше удваивается
+         */
+        private long retryInitialMs = 1000;
+
+        /**
+         * Таймаут HTTP-запроса к Bot API (мс)
+         */
+        private long requestTimeoutMs = 10_000;
+    }
+
+    @Getter
+    @Setter
+    public static class Inbound {
+        /**
+         * Принимать ответы пользователей через getUpdates.
+         * Включать только на одном инстансе: второй long poll Bot API отклоняет с 409
+         */
+        private boolean enabled = false;
+
+        /**
+         * Сколько секунд Bot API держит запрос getUpdates, если обновлений нет
+         */
+        private int pollTimeoutSeconds = 25;
+
+        /**
+         * Максимум обновлений за один запрос (1-100) — они же пачка на вставку
+         */
+        private int limit = 100;
+
+        /**
+         * Пауза после ошибки опроса или записи (мс)
+         */
+        private long errorBackoffMs = 5000;
+    }
 }
@@ -0,0 +1,168 @@
+package com.bm.wschat.shared.messaging.consumer;
+
+import com.bm.wschat.shared.messaging.config.MessagingProperties;
+import com.bm.wschat.shared.messaging.config.RabbitMQConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Advice контейнеров @RabbitListener: повторы с экспоненциальной задержкой и DLQ.
+ * 
+ * Исключение консьюмера не возвращает сообщение в очередь сразу (горячий цикл)
+ * и не теряет его молча:
+ * - попытка < maxAttempts → копия в {queue}.retry.{attempt} с заголовком
+ * x-retry-attempt, исходное сообщение подтверждается
+ * - иначе (или ошибка десериализации, AmqpRejectAndDontRequeueException) →
+ * {queue}.dlq с описанием ошибки
+ * Если переотправить не удалось — исключение пробрасывается, и сообщение
+ * возвращается брокеру. Для событий, обрабатываемых после подтверждения
+ * (debouncer), те же повторы запускает redeliver.
+ * 
+ * Заодно записывает задержку доставки: от создания события (timestamp
+ * сообщения) до начала обработки консьюмером.
+ */
+@Slf4j
+@Component
+public class ListenerRetryInterceptor implements MethodInterceptor {
+
+    public static final String ATTEMPT_HEADER = "x-retry-attempt";
+    public static final String ORIGINAL_QUEUE_HEADER = "x-original-queue";
+    public static final String EXCEPTION_HEADER = "x-exception-message";
+    public static final String EXCEPTION_TYPE_HEADER = "x-exception-type";
+
+    private final RabbitTemplate rabbitTemplate;
+    private final MessagingProperties.Retry properties;
+    private final MeterRegistry meterRegistry;
+
+    public ListenerRetryInterceptor(RabbitTemplate rabbitTemplate,
+                                    MessagingProperties messagingProperties,
+                                    MeterRegistry meterRegistry) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.properties = messagingProperties.getRetry();
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        // Сигнатура invokeListener зависит от версии контейнера — ищем сообщение по типу
+        Message message = messageArgument(invocation.getArguments());
+        if (message == null) {
+            return invocation.proceed();
+        }
+
+        String queue = message.getMessageProperties().getConsumerQueue();
+        recordLag(queue, message.getMessageProperties());
+
+        try {
+            return invocation.proceed();
+        } catch (Throwable ex) {
+            handleFailure(queue, message, attemptOf(message) + 1, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Повтор или DLQ для события, обработка которого завершилась уже после
+     * подтверждения сообщения (например, отложенная рассылка debouncer).
+     *
+     * @param previousAttempt номер попытки полученного сообщения (x-retry-attempt, null — первая)
+     */
+    public void redeliver(String queue, Object payload, Integer previousAttempt, Throwable ex) {
+        Message message = rabbitTemplate.getMessageConverter().toMessage(payload, new MessageProperties());
+        handleFailure(queue, message, (previousAttempt != null ? previousAttempt : 0) + 1, ex);
+    }
+
+    private void handleFailure(String queue, Message message, int attempt, Throwable ex) {
+        // Сообщение, которое не удалось десериализовать или которое консьюмер
+        // отклонил как необрабатываемое, повтор не исправит
+        boolean fatal = hasCause(ex, MessageConversionException.class)
+                || hasCause(ex, org.springframework.messaging.converter.MessageConversionException.class)
+                || hasCause(ex, AmqpRejectAndDontRequeueException.class);
+        if (!fatal && attempt < properties.getMaxAttempts()) {
+            scheduleRetry(queue, message, attempt, ex);
+        } else {
+            deadLetter(queue, message, attempt, ex);
+        }
+    }
+
+    private void scheduleRetry(String queue, Message message, int attempt, Throwable ex) {
+        message.getMessageProperties().setHeader(ATTEMPT_HEADER, attempt);
+        rabbitTemplate.send(RabbitMQConfig.RETRY_EXCHANGE_NAME, RabbitMQConfig.retryQueue(queue, attempt), message);
+        counter("servicedesk.events.consumer.retries", queue).increment();
+        log.warn("Consumer failed on {} (attempt {}/{}), retrying in {} ms: {}",
+                queue, attempt, properties.getMaxAttempts(), properties.delayMs(attempt), ex.getMessage());
+    }
+
+    private void deadLetter(String queue, Message message, int attempt, Throwable ex) {
+        Throwable root = rootCause(ex);
+        MessageProperties messageProperties = message.getMessageProperties();
+        messageProperties.setHeader(ATTEMPT_HEADER, attempt);
+        messageProperties.setHeader(ORIGINAL_QUEUE_HEADER, queue);
+        messageProperties.setHeader(EXCEPTION_TYPE_HEADER, root.getClass().getName());
+        messageProperties.setHeader(EXCEPTION_HEADER, String.valueOf(root.getMessage()));
+        rabbitTemplate.send(RabbitMQConfig.DLX_EXCHANGE_NAME, queue, message);
+        counter("servicedesk.events.consumer.dead_lettered", queue).increment();
+        log.error("Consumer failed on {} after {} attempts, moved to DLQ: messageId={}",
+                queue, attempt, messageProperties.getMessageId(), ex);
+    }
+
+    private void recordLag(String queue, MessageProperties messageProperties) {
+        if (messageProperties.getTimestamp() == null) {
+            return;
+        }
+        Duration lag = Duration.between(messageProperties.getTimestamp().toInstant(), Instant.now());
+        Timer.builder("servicedesk.events.consumer.lag")
+                .description("Задержка от создания события до начала обработки консьюмером")
+                .tag("queue", queue)
+                .register(meterRegistry)
+                .record(lag.isNegative() ? Duration.ZERO : lag);
+    }
+
+    private Counter counter(String name, String queue) {
+        return Counter.builder(name).tag("queue", queue).register(meterRegistry);
+    }
+
+    private static Message messageArgument(Object[] arguments) {
+        for (Object argument : arguments) {
+            if (argument instanceof Message message) {
+                return message;
+            }
+        }
+        return null;
+    }
+
+    private static int attemptOf(Message message) {
+        Object attempt = message.getMessageProperties().getHeader(ATTEMPT_HEADER);
+        return attempt instanceof Number number ? number.intValue() : 0;
+    }
+
+    private static boolean hasCause(Throwable ex, Class<? extends Throwable> type) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Throwable rootCause(Throwable ex) {
+        Throwable root = ex;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root;
+    }
+}
@@ -0,0 +1,117 @@
+package com.bm.wschat.shared.messaging.consumer;
+
+import com.bm.wschat.shared.messaging.producer.TelegramProducer;
+import com.bm.wschat.shared.messaging.template.TelegramDigestItem;
+import com.bm.wschat.shared.messaging.template.TelegramMessageTemplate;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сводка событий для чатов линий поддержки с включённым окном
+ * (SupportLine.telegramDigestSeconds).
+ * 
+ * Первое событие в чате открывает окно; все события окна уходят одним
+ * сообщением по его окончании. Если за окно пришло одно событие —
+ * отправляется его обычное сообщение, а не сводка.
+ * 
+ * Буфер в памяти инстанса; очередь Telegram читает один консьюмер на
+ * кластер, поэтому сводка за окно одна (после переключения на резервный
+ * инстанс — возможно, две).
+ */
+@Slf4j
+@Component
+public class TelegramDigestBuffer {
+
+    public enum Kind {
+        CREATED,
+        TAKEN
+    }
+
+    private final TelegramProducer telegramProducer;
+    private final TelegramMessageTemplate messageTemplate;
+
+    private final Map<Long, Digest> digests = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("telegram-digest").daemon().factory());
+
+    public TelegramDigestBuffer(TelegramProducer telegramProducer, TelegramMessageTemplate messageTemplate) {
+        this.telegramProducer = telegramProducer;
+        this.messageTemplate = messageTemplate;
+    }
+
+    /**
+     * Добавить событие в сводку чата.
+     *
+     * @param singleMessage обычное сообщение события — отправляется, если оно единственное в окне
+     */
+    public void add(Long chatId, String lineName, int windowSeconds,
+                    Kind kind, TelegramDigestItem item, String singleMessage) {
+        digests.compute(chatId, (key, digest) -> {
+            if (digest == null) {
+                digest = new Digest(lineName, windowSeconds);
+                scheduler.schedule(() -> flush(chatId), windowSeconds, TimeUnit.SECONDS);
+            }
+            digest.add(kind, item, singleMessage);
+            return digest;
+        });
+    }
+
+    private void flush(Long chatId) {
+        Digest digest = digests.remove(chatId);
+        if (digest == null) {
+            return;
+        }
+
+        try {
+            String message = digest.size() == 1
+                    ? digest.firstMessage
+                    : messageTemplate.buildDigestMessage(digest.lineName, digest.windowSeconds,
+                    digest.created, digest.taken);
+            telegramProducer.sendNotification(chatId, message);
+            log.debug("Sent Telegram digest to {}: created={}, taken={}",
+                    chatId, digest.created.size(), digest.taken.size());
+        } catch (Exception e) {
+            log.error("Failed to send Telegram digest to {}: {}", chatId, e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+        // Не теряем накопленное при остановке
+        List.copyOf(digests.keySet()).forEach(this::flush);
+    }
+
+    private static final class Digest {
+        private final String lineName;
+        private final int windowSeconds;
+        private final List<TelegramDigestItem> created = new ArrayList<>();
+        private final List<TelegramDigestItem> taken = new ArrayList<>();
+        private String firstMessage;
+
+        private Digest(String lineName, int windowSeconds) {
+            this.lineName = lineName;
+            this.windowSeconds = windowSeconds;
+        }
+
+        private void add(Kind kind, TelegramDigestItem item, String singleMessage) {
+            if (firstMessage == null) {
+                firstMessage = singleMessage;
+            }
+            (kind == Kind.CREATED ? created : taken).add(item);
+        }
+
+        private int size() {
+            return created.size() + taken.size();
+        }
+    }
+}
@@ -1,15 +1,17 @@
 package com.bm.wschat.shared.messaging.consumer;
 
+import com.bm.wschat.feature.supportline.model.SupportLine;
+import com.bm.wschat.feature.ticket.model.TicketPriority;
 import com.bm.wschat.feature.ticket.model.TicketStatus;
 import com.bm.wschat.feature.user.model.User;
 import com.bm.wschat.feature.user.model.UserActivityStatus;
-import com.bm.wschat.feature.user.model.UserActivityStatusEntity;
-import com.bm.wschat.feature.user.repository.UserActivityStatusRepository;
+import com.bm.wschat.feature.user.service.UserActivityStatusService;
 import com.bm.wschat.shared.messaging.producer.TelegramProducer;
 import com.bm.wschat.feature.ticket.model.Ticket;
 import com.bm.wschat.feature.ticket.repository.TicketRepository;
 import com.bm.wschat.shared.messaging.config.RabbitMQConfig;
 import com.bm.wschat.shared.messaging.event.TicketEvent;
+import com.bm.wschat.shared.messaging.template.TelegramDigestItem;
 import com.bm.wschat.shared.messaging.template.TelegramMessageTemplate;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -18,7 +20,6 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Objects;
-import java.util.Optional;
 
 /**
  * Консьюмер событий тикетов для отправки уведомлений в Telegram.
@@ -26,6 +27,12 @@ import java.util.Optional;
  * Логика уведомлений:
  * - Уведомляем пользователя когда он OFFLINE/UNAVAILABLE (не в приложении)
  * - Не уведомляем когда AVAILABLE/BUSY (активен в приложении, видит сообщения)
+ * 
+ * В чате линии у заявки одна карточка, которая редактируется при взятии
+ * в работу и смене статуса (TelegramStatusMessageUpdater).
+ * Чаты линий с включённым окном сводки (telegramDigestSeconds) получают
+ * новые и взятые заявки одной сводкой. Срочные события (SLA, заявки с
+ * приоритетом URGENT) отправляются сразу.
  */
 @Slf4j
 @Component
@@ -35,30 +42,52 @@ public class TelegramEventConsumer {
     private final TelegramProducer telegramProducer;
     private final TicketRepository ticketRepository;
     private final TelegramMessageTemplate messageTemplate;
-    private final UserActivityStatusRepository userActivityStatusRepository;
+    private final UserActivityStatusService userActivityStatusService;
+    private final TelegramDigestBuffer digestBuffer;
+    private final TelegramStatusMessageUpdater statusMessages;
 
-    @RabbitListener(queues = RabbitMQConfig.TELEGRAM_QUEUE)
+    // Один консьюмер на кластер: уведомления чата ставятся в очередь отправки
+    // в порядке событий, параллельные консьюмеры перемешали бы их
+    @RabbitListener(queues = RabbitMQConfig.TELEGRAM_QUEUE, exclusive = true, concurrency = "1")
     @Transactional(readOnly = true)
     public void handleTicketEvent(TicketEvent event) {
         log.debug("Received ticket event for Telegram: type={}, ticketId={}", event.type(), event.ticketId());
+        dispatch(event);
+    }
+
+    /**
+     * Приоритетная полоса (SLA_BREACH) со своими консьюмерами
+     */
+    @RabbitListener(queues = RabbitMQConfig.TELEGRAM_PRIORITY_QUEUE,
+            concurrency = "${messaging.listeners.telegram-priority-concurrency:1}")
+    @Transactional(readOnly = true)
+    public void handlePriorityEvent(TicketEvent event) {
+        log.debug("Received priority ticket event for Telegram: type={}, ticketId={}", event.type(), event.ticketId());
+        dispatch(event);
+    }
 
-        try {
-            Ticket ticket = ticketRepository.findById(event.ticketId()).orElse(null);
-            if (ticket == null) {
-                log.warn("Ticket not found for event: {}", event.ticketId());
-                return;
-            }
-
-            switch (event.type()) {
-                case CREATED -> handleCreated(ticket);
-                case ASSIGNED -> handleAssigned(ticket);
-                case STATUS_CHANGED -> handleStatusChanged(ticket);
-                default -> log.trace("Ignoring event type {} for Telegram", event.type());
-            }
-
-        } catch (Exception e) {
-            log.error("Error handling ticket event for Telegram: ticketId={}, error={}",
-                    event.ticketId(), e.getMessage(), e);
+    private void dispatch(TicketEvent event) {
+        // Очереди привязаны только к TELEGRAM_EVENTS; прочее может прийти
+        // разве что из DLQ, сохранённой до смены привязок — тикет не грузим
+        if (!RabbitMQConfig.TELEGRAM_EVENTS.contains(event.type())) {
+            log.trace("Ignoring event type {} for Telegram", event.type());
+            return;
+        }
+
+        // Исключения не глотаем: ListenerRetryInterceptor повторит событие
+        // с задержкой, а после исчерпания попыток отправит его в DLQ
+        Ticket ticket = ticketRepository.findById(event.ticketId()).orElse(null);
+        if (ticket == null) {
+            log.warn("Ticket not found for event: {}", event.ticketId());
+            return;
+        }
+
+        switch (event.type()) {
+            case CREATED -> handleCreated(ticket);
+            case ASSIGNED -> handleAssigned(ticket);
+            case STATUS_CHANGED -> handleStatusChanged(ticket);
+            case SLA_BREACH -> handleSlaBreach(ticket);
+            default -> log.trace("Ignoring event type {} for Telegram", event.type());
         }
     }
 
@@ -66,22 +95,14 @@ public class TelegramEventConsumer {
      * Новая заявка — уведомляем канал линии поддержки
      */
     private void handleCreated(Ticket ticket) {
-        if (ticket.getSupportLine() != null && ticket.getSupportLine().getTelegramChatId() != null) {
-            String msg = messageTemplate.buildCreatedMessage(ticket);
-            telegramProducer.sendMessage(ticket.getSupportLine().getTelegramChatId(), msg);
-            log.debug("Sent CREATED notification to support line chat: ticketId={}", ticket.getId());
-        }
+        updateLineChat(ticket, TelegramDigestBuffer.Kind.CREATED);
     }
 
     /**
      * Уведомление что тикет взят в ТГ чат поддержки и автору
      */
     private void handleAssigned(Ticket ticket) {
-        if(ticket.getSupportLine() != null && ticket.getSupportLine().getTelegramChatId() != null) {
-            String msg = messageTemplate.buildAssignmentMessageInSupportLineChat(ticket);
-            telegramProducer.sendMessage(ticket.getSupportLine().getTelegramChatId(), msg);
-            log.debug("Sent ASSIGNED message in support line chat: ticketId={}", ticket.getId());
-        }
+        updateLineChat(ticket, TelegramDigestBuffer.Kind.TAKEN);
         if (ticket.getCreatedBy() != null &&
                 !Objects.equals(ticket.getCreatedBy().getId(),
                         ticket.getAssignedTo() != null ? ticket.getAssignedTo().getId() : null)) {
@@ -91,9 +112,10 @@ public class TelegramEventConsumer {
     }
 
     /**
-     * Смена статуса — уведомляем автора
+     * Смена статуса — уведомляем автора и обновляем карточку в чате линии
      */
     private void handleStatusChanged(Ticket ticket) {
+        updateLineChat(ticket, null);
         if (ticket.getStatus() == TicketStatus.RESOLVED || ticket.getStatus() == TicketStatus.CLOSED) {
             notifyUserIfOffline(ticket.getCreatedBy(), messageTemplate.buildClosedMessage(ticket));
         } else {
@@ -101,8 +123,57 @@ public class TelegramEventConsumer {
         }
     }
 
+    /**
+     * Нарушение SLA — в чат линии сразу, минуя сводку
+     */
+    private void handleSlaBreach(Ticket ticket) {
+        if (ticket.getSupportLine() != null && ticket.getSupportLine().getTelegramChatId() != null) {
+            telegramProducer.sendNotification(ticket.getSupportLine().getTelegramChatId(),
+                    messageTemplate.buildSlaBreachMessage(ticket));
+            log.debug("Sent SLA_BREACH notification to support line chat: ticketId={}", ticket.getId());
+        }
+    }
+
     // === Helper methods ===
 
+    /**
+     * Отразить событие в чате линии: в карточке заявки или через сводку, если она включена.
+     * Карточка, уже отправленная в чат, обновляется всегда — новых сообщений по заявке не будет.
+     *
+     * @param kind вид события для сводки (null — событие в сводку не попадает)
+     */
+    private void updateLineChat(Ticket ticket, TelegramDigestBuffer.Kind kind) {
+        SupportLine line = ticket.getSupportLine();
+        if (line == null || line.getTelegramChatId() == null) {
+            return;
+        }
+
+        Integer window = line.getTelegramDigestSeconds();
+        boolean digest = window != null && window > 0 && ticket.getPriority() != TicketPriority.URGENT;
+        if (!digest || statusMessages.hasCard(ticket)) {
+            statusMessages.publish(ticket, line.getTelegramChatId(), messageTemplate.buildTicketCardMessage(ticket));
+            log.debug("Updated Telegram card in support line chat: ticketId={}, status={}",
+                    ticket.getId(), ticket.getStatus());
+            return;
+        }
+        if (kind == null) {
+            return;
+        }
+
+        String message = kind == TelegramDigestBuffer.Kind.TAKEN
+                ? messageTemplate.buildAssignmentMessageInSupportLineChat(ticket)
+                : messageTemplate.buildCreatedMessage(ticket);
+
+        TelegramDigestItem item = new TelegramDigestItem(
+                ticket.getId(),
+                ticket.getTitle(),
+                ticket.getPriority(),
+                kind == TelegramDigestBuffer.Kind.TAKEN && ticket.getAssignedTo() != null
+                        ? messageTemplate.displayName(ticket.getAssignedTo())
+                        : null);
+        digestBuffer.add(line.getTelegramChatId(), line.getName(), window, kind, item, message);
+    }
+
     /**
      * Отправить уведомление пользователю если он НЕ активен в приложении.
      * Логика: если пользователь OFFLINE или UNAVAILABLE — отправляем в Telegram.
@@ -113,7 +184,7 @@ public class TelegramEventConsumer {
         }
 
         if (shouldNotifyViaTelegram(user)) {
-            telegramProducer.sendMessage(user.getTelegramId(), message);
+            telegramProducer.sendNotification(user.getTelegramId(), message);
             log.debug("Sent Telegram notification to user {}", user.getId());
         } else {
             log.trace("User {} is online, skipping Telegram notification", user.getId());
@@ -125,14 +196,8 @@ public class TelegramEventConsumer {
      * Отправляем когда пользователь НЕ активен в приложении.
      */
     private boolean shouldNotifyViaTelegram(User user) {
-        Optional<UserActivityStatusEntity> statusOpt = userActivityStatusRepository.findByUserId(user.getId());
-
-        if (statusOpt.isEmpty()) {
-            // Нет статуса — считаем что оффлайн, уведомляем
-            return true;
-        }
-
-        UserActivityStatus status = statusOpt.get().getStatus();
+        // Нет статуса — OFFLINE, уведомляем
+        UserActivityStatus status = userActivityStatusService.getStatus(user.getId());
 
         // Уведомляем когда пользователь НЕ в приложении
         return status == UserActivityStatus.OFFLINE ||
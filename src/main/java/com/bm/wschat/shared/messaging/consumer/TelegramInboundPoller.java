@@ -0,0 +1,400 @@
+package com.bm.wschat.shared.messaging.consumer;
+
+import com.bm.wschat.feature.message.dto.request.TicketMessageDraft;
+import com.bm.wschat.feature.message.dto.response.MessageResponse;
+import com.bm.wschat.feature.message.service.MessageService;
+import com.bm.wschat.feature.ticket.repository.TicketRepository;
+import com.bm.wschat.feature.user.repository.UserRepository;
+import com.bm.wschat.shared.messaging.config.TelegramProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.client.RestClient;
+import tools.jackson.databind.JsonNode;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Приём ответов пользователей из Telegram в чаты заявок.
+ *
+ * Long polling getUpdates на виртуальном потоке. Offset хранится в Redis
+ * (telegram:inbound:offset) и сдвигается после записи пачки. Если пачка
+ * не записалась, обновления пишутся по одному: недоступность БД оставляет
+ * offset на первом незаписанном обновлении (Bot API отдаст его повторно),
+ * а обновление, которое не записывается само по себе, откладывается —
+ * в лог и метрику result=parked — и не блокирует следующие.
+ * Сообщение сопоставляется с заявкой:
+ * 1. по message_thread_id ветки чата линии (idx_ticket_telegram_thread)
+ * 2. по ответу (reply) на карточку заявки — telegramLastBotMessageId
+ * 3. по ответу на другое сообщение бота, где упомянута ровно одна заявка "#id"
+ *
+ * Отправитель — пользователь с привязанным telegramId. Пачка пишется через
+ * MessageService.sendMessages: права, уведомления и WebSocket-события как у
+ * обычного сообщения. Адрес Bot API берётся из telegram.api-url — для тестов
+ * его можно направить на локальный stub.
+ */
+@Slf4j
+@Component
+public class TelegramInboundPoller {
+
+    private static final String TELEGRAM_API_PATH = "/bot{token}/getUpdates";
+    private static final String OFFSET_KEY = "telegram:inbound:offset";
+    private static final Pattern TICKET_REFERENCE = Pattern.compile("#(\\d+)");
+
+    private final TelegramProperties properties;
+    private final TelegramProperties.Inbound inboundProperties;
+    private final MessageService messageService;
+    private final TicketRepository ticketRepository;
+    private final UserRepository userRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RestClient restClient;
+    private final Thread poller = Thread.ofVirtual().name("telegram-inbound").unstarted(this::pollLoop);
+
+    private final Counter acceptedCounter;
+    private final Counter unmatchedCounter;
+    private final Counter rejectedCounter;
+    private final Counter parkedCounter;
+
+    private volatile boolean running;
+    private long offset;
+
+    public TelegramInboundPoller(TelegramProperties properties,
+                                 MessageService messageService,
+                                 TicketRepository ticketRepository,
+                                 UserRepository userRepository,
+                                 StringRedisTemplate redisTemplate,
+                                 MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.inboundProperties = properties.getInbound();
+        this.messageService = messageService;
+        this.ticketRepository = ticketRepository;
+        this.userRepository = userRepository;
+        this.redisTemplate = redisTemplate;
+        this.restClient = RestClient.builder()
+                .requestFactory(requestFactory(inboundProperties))
+                .build();
+
+        this.acceptedCounter = result(meterRegistry, "accepted");
+        this.unmatchedCounter = result(meterRegistry, "unmatched");
+        this.rejectedCounter = result(meterRegistry, "rejected");
+        this.parkedCounter = result(meterRegistry, "parked");
+    }
+
+    @PostConstruct
+    void start() {
+        if (!properties.isEnabled() || !inboundProperties.isEnabled()) {
+            log.debug("Telegram inbound polling is disabled");
+            return;
+        }
+        offset = loadOffset();
+        running = true;
+        poller.start();
+        log.info("Telegram inbound polling started from offset {}", offset);
+    }
+
+    private void pollLoop() {
+        while (running) {
+            try {
+                JsonNode updates = getUpdates();
+                if (updates == null || updates.isEmpty()) {
+                    continue;
+                }
+
+                long nextOffset = offset;
+                List<InboundMessage> messages = new ArrayList<>();
+                for (JsonNode update : updates) {
+                    long updateId = update.path("update_id").asLong();
+                    nextOffset = Math.max(nextOffset, updateId + 1);
+                    try {
+                        InboundMessage message = InboundMessage.from(updateId, update.path("message"));
+                        if (message != null) {
+                            messages.add(message);
+                        }
+                    } catch (RuntimeException e) {
+                        park(updateId, e);
+                    }
+                }
+
+                try {
+                    process(messages);
+                } catch (RuntimeException e) {
+                    if (isTransient(e)) {
+                        throw e;
+                    }
+                    log.warn("Telegram batch of {} updates failed, storing one by one: {}",
+                            messages.size(), e.getMessage());
+                    processOneByOne(messages);
+                }
+                advance(nextOffset);
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                log.warn("Telegram inbound polling failed: {}", e.getMessage());
+                backoff();
+            }
+        }
+    }
+
+    /**
+     * Запись пачки по одному сообщению: offset сдвигается после каждого.
+     * Временный сбой БД прерывает проход — следующие обновления придут повторно
+     */
+    private void processOneByOne(List<InboundMessage> messages) {
+        for (InboundMessage message : messages) {
+            try {
+                process(List.of(message));
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    advance(message.updateId());
+                    throw e;
+                }
+                park(message.updateId(), e);
+            }
+            advance(message.updateId() + 1);
+        }
+    }
+
+    /**
+     * Отложить обновление, которое не записывается: offset уходит дальше,
+     * текст остаётся в логе для ручного разбора
+     */
+    private void park(long updateId, Exception e) {
+        parkedCounter.increment();
+        log.error("Telegram update {} parked: {}", updateId, e.getMessage(), e);
+    }
+
+    private static boolean isTransient(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof RecoverableDataAccessException
+                    || cause instanceof CannotCreateTransactionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void advance(long nextOffset) {
+        if (nextOffset <= offset) {
+            return;
+        }
+        offset = nextOffset;
+        try {
+            redisTemplate.opsForValue().set(OFFSET_KEY, Long.toString(nextOffset));
+        } catch (RuntimeException e) {
+            // Без сохранённого offset после рестарта придут только неподтверждённые обновления
+            log.warn("Failed to store Telegram inbound offset {}: {}", nextOffset, e.getMessage());
+        }
+    }
+
+    private long loadOffset() {
+        try {
+            String stored = redisTemplate.opsForValue().get(OFFSET_KEY);
+            return stored != null ? Long.parseLong(stored) : 0;
+        } catch (RuntimeException e) {
+            log.warn("Failed to load Telegram inbound offset: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    private JsonNode getUpdates() {
+        String url = properties.getApiUrl() + TELEGRAM_API_PATH.replace("{token}", properties.getToken());
+        JsonNode body = restClient.post()
+                .uri(url)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of(
+                        "offset", offset,
+                        "timeout", inboundProperties.getPollTimeoutSeconds(),
+                        "limit", inboundProperties.getLimit(),
+                        "allowed_updates", List.of("message")))
+                .exchange((request, response) -> response.bodyTo(JsonNode.class));
+
+        if (body == null || !body.path("ok").asBoolean(false)) {
+            // 409 — опрашивает другой инстанс или у бота установлен webhook
+            throw new IllegalStateException("getUpdates failed: "
+                    + (body != null ? body.path("description").asString("") : "empty response"));
+        }
+        return body.path("result");
+    }
+
+    /**
+     * Сопоставить пачку сообщений с заявками и пользователями и записать одной транзакцией
+     */
+    private void process(List<InboundMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Long> userIds = new HashMap<>();
+        for (Object[] row : userRepository.findIdsByTelegramIds(
+                messages.stream().map(InboundMessage::fromId).toList())) {
+            userIds.put((Long) row[0], (Long) row[1]);
+        }
+
+        List<Long> threadIds = messages.stream().map(InboundMessage::threadId).filter(Objects::nonNull).toList();
+        List<Long> replyIds = messages.stream().map(InboundMessage::replyToMessageId).filter(Objects::nonNull).toList();
+        Map<ChatKey, Long> ticketsByThread = threadIds.isEmpty()
+                ? Map.of() : bindings(ticketRepository.findTelegramThreadBindings(threadIds));
+        Map<ChatKey, Long> ticketsByCard = replyIds.isEmpty()
+                ? Map.of() : bindings(ticketRepository.findTelegramCardBindings(replyIds));
+
+        List<TicketMessageDraft> drafts = new ArrayList<>(messages.size());
+        for (InboundMessage message : messages) {
+            Long senderId = userIds.get(message.fromId());
+            Long ticketId = resolveTicket(message, ticketsByThread, ticketsByCard);
+            if (senderId == null || ticketId == null) {
+                unmatchedCounter.increment();
+                log.debug("Unmatched Telegram message {} in chat {} from {}",
+                        message.messageId(), message.chatId(), message.fromId());
+                continue;
+            }
+            drafts.add(new TicketMessageDraft(ticketId, senderId, message.text()));
+        }
+
+        if (drafts.isEmpty()) {
+            return;
+        }
+        List<MessageResponse> saved = messageService.sendMessages(drafts);
+        acceptedCounter.increment(saved.size());
+        rejectedCounter.increment(drafts.size() - saved.size());
+        log.debug("Stored {} of {} Telegram replies", saved.size(), drafts.size());
+    }
+
+    private Long resolveTicket(InboundMessage message,
+                               Map<ChatKey, Long> ticketsByThread,
+                               Map<ChatKey, Long> ticketsByCard) {
+        if (message.threadId() != null) {
+            Long ticketId = ticketsByThread.get(new ChatKey(message.chatId(), message.threadId()));
+            if (ticketId != null) {
+                return ticketId;
+            }
+        }
+        if (message.replyToMessageId() != null) {
+            Long ticketId = ticketsByCard.get(new ChatKey(message.chatId(), message.replyToMessageId()));
+            if (ticketId != null) {
+                return ticketId;
+            }
+        }
+        return message.replyToBotText() != null ? singleTicketReference(message.replyToBotText()) : null;
+    }
+
+    /**
+     * Номер заявки из текста уведомления бота; в сводках их несколько — такой ответ не сопоставляем
+     */
+    private static Long singleTicketReference(String text) {
+        Matcher matcher = TICKET_REFERENCE.matcher(text);
+        Long found = null;
+        while (matcher.find()) {
+            long ticketId = Long.parseLong(matcher.group(1));
+            if (found != null && found != ticketId) {
+                return null;
+            }
+            found = ticketId;
+        }
+        return found;
+    }
+
+    private static Map<ChatKey, Long> bindings(List<Object[]> rows) {
+        Map<ChatKey, Long> result = new HashMap<>();
+        for (Object[] row : rows) {
+            if (row[2] != null) {
+                result.put(new ChatKey((Long) row[2], (Long) row[1]), (Long) row[0]);
+            }
+        }
+        return result;
+    }
+
+    private void backoff() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(inboundProperties.getErrorBackoffMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        poller.interrupt();
+        poller.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private static JdkClientHttpRequestFactory requestFactory(TelegramProperties.Inbound inboundProperties) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        // Long poll: ответ приходит не позже pollTimeoutSeconds, плюс запас на сеть
+        factory.setReadTimeout(Duration.ofSeconds(inboundProperties.getPollTimeoutSeconds() + 10L));
+        return factory;
+    }
+
+    private static Counter result(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("servicedesk.telegram.inbound")
+                .description("Входящие сообщения Telegram по результату")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record ChatKey(Long chatId, Long id) {
+    }
+
+    /**
+     * Текстовое сообщение пользователя из update.message
+     */
+    private record InboundMessage(
+            long updateId,
+            Long messageId,
+            Long chatId,
+            Long fromId,
+            Long threadId,
+            Long replyToMessageId,
+            String replyToBotText,
+            String text) {
+
+        static InboundMessage from(long updateId, JsonNode message) {
+            if (message.isMissingNode() || message.path("from").path("is_bot").asBoolean(false)) {
+                return null;
+            }
+            String text = message.path("text").asString(message.path("caption").asString(""));
+            if (text.isBlank() || text.startsWith("/")) {
+                // Вложения без подписи и команды боту в чат заявки не пишем
+                return null;
+            }
+
+            JsonNode reply = message.path("reply_to_message");
+            boolean replyToBot = reply.path("from").path("is_bot").asBoolean(false);
+            return new InboundMessage(
+                    updateId,
+                    message.path("message_id").asLong(),
+                    message.path("chat").path("id").asLong(),
+                    message.path("from").path("id").asLong(),
+                    message.path("is_topic_message").asBoolean(false)
+                            ? message.path("message_thread_id").asLong() : null,
+                    replyToBot ? reply.path("message_id").asLong() : null,
+                    replyToBot ? reply.path("text").asString(null) : null,
+                    text.strip());
+        }
+    }
+}
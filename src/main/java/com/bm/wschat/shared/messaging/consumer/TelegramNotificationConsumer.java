@@ -0,0 +1,42 @@
+package com.bm.wschat.shared.messaging.consumer;
+
+import com.bm.wschat.shared.messaging.config.RabbitMQConfig;
+import com.bm.wschat.shared.messaging.event.TelegramNotification;
+import com.bm.wschat.shared.messaging.producer.TelegramNotSentException;
+import com.bm.wschat.shared.messaging.producer.TelegramProducer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletionException;
+
+/**
+ * Повторная отправка уведомлений Telegram, отложенных TelegramProducer.
+ * 
+ * Сообщение подтверждается только после ответа Bot API. Если уведомление
+ * точно не отправлено (TelegramNotSentException) — ListenerRetryInterceptor
+ * повторит его с задержкой, затем DLQ. Отказ Bot API (4xx) и обрыв уже
+ * отправленного запроса — сразу в DLQ: повтор не поможет или даст дубль.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TelegramNotificationConsumer {
+
+    private final TelegramProducer telegramProducer;
+
+    @RabbitListener(queues = RabbitMQConfig.TELEGRAM_OUTGOING_QUEUE, concurrency = "1")
+    public void resend(TelegramNotification notification) {
+        try {
+            telegramProducer.sendMessage(notification.chatId(), notification.text()).join();
+            log.debug("Resent parked Telegram notification to {}", notification.chatId());
+        } catch (CompletionException e) {
+            if (TelegramNotSentException.isCause(e)) {
+                throw e;
+            }
+            throw new AmqpRejectAndDontRequeueException(e.getCause() != null ? e.getCause() : e);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.bm.wschat.shared.messaging.consumer;
+
+import com.bm.wschat.feature.ticket.model.Ticket;
+import com.bm.wschat.feature.ticket.repository.TicketRepository;
+import com.bm.wschat.shared.messaging.producer.TelegramApiException;
+import com.bm.wschat.shared.messaging.producer.TelegramProducer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Карточка тикета в чате линии поддержки — одно сообщение, которое
+ * редактируется (editMessageText) при взятии в работу и смене статуса,
+ * вместо новой простыни на каждое событие.
+ *
+ * - message_id карточки хранится в Ticket.telegramLastBotMessageId
+ * - операции по одному тикету выстраиваются в цепочку: edit, пришедший
+ * раньше, чем Telegram вернул id первой отправки, дождётся его
+ * - тот же текст повторно не отправляется; "message is not modified"
+ * считается успехом
+ * - если карточку удалили из чата — отправляется новая и id перезаписывается
+ * - перед новой карточкой id перечитывается из БД, а записывается условным
+ * UPDATE (карточка всё ещё та, что заменяем): если другой консьюмер успел
+ * отправить свою, наша удаляется из чата и правится его карточка
+ */
+@Slf4j
+@Component
+public class TelegramStatusMessageUpdater {
+
+    private static final int MAX_TRACKED_TICKETS = 10_000;
+
+    private final TelegramProducer telegramProducer;
+    private final TicketRepository ticketRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    /** Последняя незавершённая операция с карточкой тикета */
+    private final Map<Long, CompletableFuture<Long>> pending = new ConcurrentHashMap<>();
+
+    /** Последний отправленный текст карточки (LRU) */
+    private final Map<Long, String> lastText = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                    return size() > MAX_TRACKED_TICKETS;
+                }
+            });
+
+    public TelegramStatusMessageUpdater(TelegramProducer telegramProducer,
+                                        TicketRepository ticketRepository,
+                                        PlatformTransactionManager transactionManager) {
+        this.telegramProducer = telegramProducer;
+        this.ticketRepository = ticketRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Есть ли у тикета карточка в чате (сохранённая или ещё отправляемая)
+     */
+    public boolean hasCard(Ticket ticket) {
+        return ticket.getTelegramLastBotMessageId() != null || pending.containsKey(ticket.getId());
+    }
+
+    /**
+     * Показать текст в карточке тикета: отредактировать существующую или отправить новую
+     */
+    public void publish(Ticket ticket, Long chatId, String text) {
+        Long ticketId = ticket.getId();
+        Long storedMessageId = ticket.getTelegramLastBotMessageId();
+
+        if (text.equals(lastText.put(ticketId, text))) {
+            log.trace("Telegram card for ticket {} is unchanged, skipping", ticketId);
+            return;
+        }
+
+        CompletableFuture<Long> next = pending.compute(ticketId, (id, previous) -> {
+            CompletableFuture<Long> base = previous != null
+                    ? previous.exceptionally(ex -> storedMessageId)
+                    : CompletableFuture.completedFuture(storedMessageId);
+            return base.thenCompose(messageId -> update(ticketId, chatId, messageId, text));
+        });
+
+        next.whenComplete((messageId, ex) -> {
+            pending.remove(ticketId, next);
+            if (ex != null) {
+                // Текст не показан — следующая попытка с ним же не должна отсекаться
+                lastText.remove(ticketId, text);
+                log.warn("Failed to update Telegram card for ticket {}: {}", ticketId, ex.getMessage());
+            }
+        });
+    }
+
+    private CompletableFuture<Long> update(Long ticketId, Long chatId, Long messageId, String text) {
+        if (messageId == null) {
+            return send(ticketId, chatId, null, text);
+        }
+        return telegramProducer.editMessageText(chatId, messageId, text)
+                .exceptionallyCompose(ex -> {
+                    TelegramApiException apiError = TelegramApiException.from(ex);
+                    if (apiError != null && apiError.isMessageGone()) {
+                        log.debug("Telegram card {} for ticket {} is gone, sending a new one", messageId, ticketId);
+                        return send(ticketId, chatId, messageId, text);
+                    }
+                    return CompletableFuture.failedFuture(ex);
+                });
+    }
+
+    private CompletableFuture<Long> send(Long ticketId, Long chatId, Long previousMessageId, String text) {
+        // Тикет консьюмера мог быть загружен до того, как предыдущая отправка
+        // записала карточку, — перед новой карточкой сверяемся с БД
+        Long current = currentCardId(ticketId);
+        if (current != null && !current.equals(previousMessageId)) {
+            return update(ticketId, chatId, current, text);
+        }
+
+        return telegramProducer.sendMessage(chatId, text).thenCompose(messageId -> {
+            if (messageId == null) {
+                // Telegram выключен — старый id остаётся в силе
+                return CompletableFuture.completedFuture(previousMessageId);
+            }
+            if (claim(ticketId, previousMessageId, messageId)) {
+                return CompletableFuture.completedFuture(messageId);
+            }
+
+            // Карточку успел записать другой консьюмер — убираем свою и правим его
+            Long winner = currentCardId(ticketId);
+            if (winner == null) {
+                return CompletableFuture.completedFuture(messageId);
+            }
+            log.debug("Telegram card for ticket {} already exists ({}), removing duplicate {}",
+                    ticketId, winner, messageId);
+            telegramProducer.deleteMessage(chatId, messageId).exceptionally(ex -> {
+                log.warn("Failed to delete duplicate Telegram card {} for ticket {}: {}",
+                        messageId, ticketId, ex.getMessage());
+                return false;
+            });
+            return telegramProducer.editMessageText(chatId, winner, text);
+        });
+    }
+
+    private Long currentCardId(Long ticketId) {
+        return transactionTemplate.execute(status -> ticketRepository.findTelegramLastBotMessageId(ticketId));
+    }
+
+    /**
+     * Записать карточку, только если в БД всё ещё previousMessageId (или карточки нет)
+     */
+    private boolean claim(Long ticketId, Long previousMessageId, Long messageId) {
+        Integer updated = transactionTemplate.execute(status ->
+                ticketRepository.replaceTelegramLastBotMessageId(ticketId, previousMessageId, messageId));
+        return updated != null && updated > 0;
+    }
+}
@@ -1,10 +1,13 @@
 package com.bm.wschat.shared.messaging.consumer;
 
+import com.bm.wschat.shared.messaging.TicketEventType;
 import com.bm.wschat.shared.messaging.event.TicketEvent;
+import com.bm.wschat.shared.messaging.config.MessagingProperties;
 import com.bm.wschat.shared.messaging.config.RabbitMQConfig;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Component;
 
@@ -14,6 +17,25 @@ import java.util.Map;
 /**
  * Консьюмер событий тикетов из RabbitMQ.
  * Обрабатывает события и отправляет WebSocket push на фронт.
+ * Обновления тикета (UPDATED, STATUS_CHANGED, ASSIGNED, RATED) проходят через
+ * TicketEventDebouncer — подписчики получают только последнее состояние.
+ * 
+ * Очередь servicedesk.ticket.events общая для всех инстансов: каждое событие
+ * обрабатывается один раз. При нескольких инстансах backend должен работать
+ * в режиме app.websocket.broker.mode=RELAY — тогда рассылка идёт через
+ * RabbitMQ STOMP и доходит до клиентов, подключённых к любому инстансу.
+ * 
+ * Debounce, версии патчей и seq догрузки хранятся в памяти инстанса, поэтому
+ * все события тикетов должен обрабатывать один консьюмер: он подписан на
+ * очередь эксклюзивно, остальные инстансы ждут в резерве и переподключаются,
+ * когда активный консьюмер пропадает (новая epoch — клиенты перезагружают
+ * состояние, см. TopicReplayBuffer).
+ * 
+ * Кадры /topic/ticket.** несут заголовки seq и seq-epoch и сохраняются в
+ * TopicReplayBuffer для догрузки после переподключения.
+ * 
+ * Компактные события (без payload) восстанавливает TicketEventHydrator:
+ * обновления тикета — пачкой при рассылке из debouncer, остальные — сразу.
  */
 @Slf4j
 @Component
@@ -21,11 +43,52 @@ import java.util.Map;
 public class TicketEventConsumer {
 
     private final SimpMessagingTemplate messagingTemplate;
-
-    @RabbitListener(queues = RabbitMQConfig.TICKET_QUEUE)
-    public void handleTicketEvent(TicketEvent event) {
+    private final TicketEventDebouncer debouncer;
+    private final TicketPatchTracker patchTracker;
+    private final MessagingProperties messagingProperties;
+    private final TopicReplayBuffer replayBuffer;
+    private final TicketEventHydrator hydrator;
+    private final ListenerRetryInterceptor retryInterceptor;
+
+    // Один консьюмер на кластер: иначе события одного тикета делятся между инстансами
+    // и их debounce, патчи и seq расходятся
+    @RabbitListener(queues = RabbitMQConfig.TICKET_QUEUE, exclusive = true, concurrency = "1")
+    public void handleTicketEvent(TicketEvent event,
+                                  @Header(name = ListenerRetryInterceptor.ATTEMPT_HEADER, required = false) Integer attempt) {
         log.debug("Received ticket event: type={}, ticketId={}", event.type(), event.ticketId());
+        dispatch(event, RabbitMQConfig.TICKET_QUEUE, attempt);
+    }
+
+    /**
+     * Приоритетная полоса (SLA, назначения): порядок с обновлениями тикета не важен
+     */
+    @RabbitListener(queues = RabbitMQConfig.TICKET_PRIORITY_QUEUE,
+            concurrency = "${messaging.listeners.ticket-priority-concurrency:1}")
+    public void handlePriorityEvent(TicketEvent event,
+                                    @Header(name = ListenerRetryInterceptor.ATTEMPT_HEADER, required = false) Integer attempt) {
+        log.debug("Received priority ticket event: type={}, ticketId={}", event.type(), event.ticketId());
+        dispatch(event, RabbitMQConfig.TICKET_PRIORITY_QUEUE, attempt);
+    }
+
+    private void dispatch(TicketEvent event, String queue, Integer attempt) {
+        if (event.type() == TicketEventType.UPDATED || event.type() == TicketEventType.STATUS_CHANGED
+                || event.type() == TicketEventType.ASSIGNED || event.type() == TicketEventType.RATED) {
+            // payload восстанавливается при рассылке — вытесненные в окне события не грузятся
+            // Сообщение к моменту рассылки уже подтверждено — ошибка уходит на повтор отдельно
+            debouncer.submit(event, this::handleUpdate,
+                    ex -> retryInterceptor.redeliver(queue, event, attempt, ex));
+            return;
+        }
+
+        TicketEvent hydrated = hydrator.hydrate(event);
+        if (hydrated == null) {
+            log.debug("Skipping event without payload: type={}, ticketId={}", event.type(), event.ticketId());
+            return;
+        }
+        route(hydrated);
+    }
 
+    private void route(TicketEvent event) {
         switch (event.type()) {
             case CREATED -> handleCreated(event);
             case UPDATED, STATUS_CHANGED, ASSIGNED, RATED -> handleUpdate(event);
@@ -36,33 +99,50 @@ public class TicketEventConsumer {
             case SLA_BREACH -> handleSlaBreach(event);
             case USER_STATUS_CHANGED -> handleUserStatusChanged(event);
             case ASSIGNMENT_CREATED -> handleAssignmentCreated(event);
+            case LINE_ASSIGNMENT_CREATED -> handleLineAssignmentCreated(event);
             case ASSIGNMENT_REJECTED -> handleAssignmentRejected(event);
         }
     }
 
     private void handleCreated(TicketEvent event) {
+        // Запоминаем состояние, чтобы следующие обновления ушли патчами
+        patchTracker.toPatch(event);
+
         // Broadcast new ticket to all subscribers
-        sendToTopic("/topic/ticket/new", event.payload());
+        sendToTopic("/topic/ticket.new", event.payload());
         log.info("Broadcasted new ticket: id={}", event.ticketId());
     }
 
-    private void handleUpdate(TicketEvent event) {
+    private void handleUpdate(TicketEvent received) {
+        // Без debounce (окно 0) событие приходит сюда ещё не восстановленным
+        TicketEvent event = hydrator.hydrate(received);
+        if (event == null) {
+            return;
+        }
+
         // Broadcast update to ticket subscribers
-        String destination = "/topic/ticket/" + event.ticketId();
-        sendToTopic(destination, event.payload());
+        String destination = "/topic/ticket." + event.ticketId();
+        sendToTopic(destination + ".patch", patchTracker.toPatch(event));
+        if (messagingProperties.getConsumer().isFullTicketUpdates()) {
+            sendToTopic(destination, event.payload());
+        }
         log.info("Broadcasted ticket update: id={}, type={}", event.ticketId(), event.type());
     }
 
     private void handleMessage(TicketEvent event) {
         // Broadcast message to ticket chat subscribers
-        String destination = "/topic/ticket/" + event.ticketId() + "/messages";
+        String destination = "/topic/ticket." + event.ticketId() + ".messages";
         sendToTopic(destination, event.payload());
         log.info("Broadcasted message to ticket: id={}", event.ticketId());
     }
 
     private void handleDeleted(TicketEvent event) {
+        // Отложенное обновление удалённого тикета больше не актуально
+        debouncer.discard(event.ticketId());
+        patchTracker.forget(event.ticketId());
+
         // Notify about ticket deletion
-        String destination = "/topic/ticket/" + event.ticketId() + "/deleted";
+        String destination = "/topic/ticket." + event.ticketId() + ".deleted";
         Map<String, Object> payload = new HashMap<>();
         payload.put("id", event.ticketId());
         payload.put("deleted", true);
@@ -72,21 +152,21 @@ public class TicketEventConsumer {
 
     private void handleAttachment(TicketEvent event) {
         // Broadcast attachment added to ticket subscribers
-        String destination = "/topic/ticket/" + event.ticketId() + "/attachments";
+        String destination = "/topic/ticket." + event.ticketId() + ".attachments";
         sendToTopic(destination, event.payload());
         log.info("Broadcasted attachment added: ticketId={}", event.ticketId());
     }
 
     private void handleInternalComment(TicketEvent event) {
         // Broadcast internal comment (only to specialists)
-        String destination = "/topic/ticket/" + event.ticketId() + "/internal";
+        String destination = "/topic/ticket." + event.ticketId() + ".internal";
         sendToTopic(destination, event.payload());
         log.info("Broadcasted internal comment: ticketId={}", event.ticketId());
     }
 
     private void handleSlaBreach(TicketEvent event) {
         // Broadcast SLA breach notification
-        String destination = "/topic/sla/breach";
+        String destination = "/topic/sla.breach";
         sendToTopic(destination, event.payload());
         log.warn("Broadcasted SLA breach: ticketId={}", event.ticketId());
     }
@@ -95,31 +175,45 @@ public class TicketEventConsumer {
         // Broadcast user status change to support line team
         // ticketId is used as lineId in this case, userId is the user who changed
         // status
-        String destination = "/topic/line/" + event.ticketId() + "/status";
+        String destination = "/topic/line." + event.ticketId() + ".status";
         sendToTopic(destination, event.payload());
         log.info("Broadcasted user status change: userId={}, lineId={}", event.userId(), event.ticketId());
     }
 
     private void handleAssignmentCreated(TicketEvent event) {
         // Broadcast assignment created to user via topic
-        String destination = "/topic/user/" + event.userId() + "/assignments";
+        String destination = "/topic/user." + event.userId() + ".assignments";
         sendToTopic(destination, event.payload());
         log.info("Sent assignment notification to user: userId={}, ticketId={}",
                 event.userId(), event.ticketId());
     }
 
+    private void handleLineAssignmentCreated(TicketEvent event) {
+        // Назначение на линию — один кадр в топик линии (userId = lineId)
+        String destination = "/topic/line." + event.userId() + ".assignments";
+        sendToTopic(destination, event.payload());
+        log.info("Sent assignment offer to line: lineId={}, ticketId={}",
+                event.userId(), event.ticketId());
+    }
+
     private void handleAssignmentRejected(TicketEvent event) {
         // Уведомление отправителю назначения об отклонении via topic
-        String destination = "/topic/user/" + event.userId() + "/assignments/rejected";
+        String destination = "/topic/user." + event.userId() + ".assignments.rejected";
         sendToTopic(destination, event.payload());
         log.info("Sent assignment rejection to user: userId={}, ticketId={}",
                 event.userId(), event.ticketId());
     }
 
     /**
-     * Helper to avoid ambiguous method call in SimpMessagingTemplate
+     * Кадры /topic/ticket.** получают seq топика и попадают в буфер догрузки
      */
     private void sendToTopic(String destination, Object payload) {
-        messagingTemplate.convertAndSend(destination, payload, Map.of());
+        if (!replayBuffer.isReplayable(destination)) {
+            messagingTemplate.convertAndSend(destination, payload, Map.of());
+            return;
+        }
+        replayBuffer.appendAndSend(destination, payload, seq -> messagingTemplate.convertAndSend(destination, payload,
+                Map.of(TopicReplayBuffer.SEQ_HEADER, Long.toString(seq),
+                        TopicReplayBuffer.EPOCH_HEADER, replayBuffer.getEpoch())));
     }
 }
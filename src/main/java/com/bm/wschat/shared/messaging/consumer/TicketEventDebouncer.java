@@ -0,0 +1,201 @@
+package com.bm.wschat.shared.messaging.consumer;
+
+import com.bm.wschat.shared.messaging.TicketEventAggregator;
+import com.bm.wschat.shared.messaging.config.MessagingProperties;
+import com.bm.wschat.shared.messaging.event.TicketEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Debounce обновлений тикета между запросами.
+ * 
+ * Проблема: несколько быстрых правок тикета (или автоматическое обновление
+ * многих полей) дают по отдельному UPDATED / STATUS_CHANGED с полным
+ * TicketResponse, и каждый клиент перерисовывает тикет на каждое событие.
+ * 
+ * Решение: события одного тикета копятся в окне debounceWindowMs, новое
+ * событие заменяет предыдущее по правилам TicketEventAggregator.shouldReplace,
+ * и рассылается только последнее состояние. Каждое новое событие продлевает
+ * окно, но не дальше debounceMaxDelayMs от первого события — так задержка
+ * рассылки всегда ограничена.
+ * 
+ * Компактные события (без payload) восстанавливаются только при рассылке,
+ * т.е. вытесненные в окне не грузятся вовсе. Тикеты, чьё окно истекает почти
+ * одновременно (в пределах debounceBatchSlackMs), рассылаются вместе, и
+ * payload для них грузится одним запросом.
+ * 
+ * Сообщение брокера подтверждается при постановке в окно, поэтому ошибка
+ * рассылки передаётся в onFailure — консьюмер отправляет событие на повтор
+ * (ListenerRetryInterceptor.redeliver), а не теряет его.
+ */
+@Slf4j
+@Component
+public class TicketEventDebouncer {
+
+    private final MessagingProperties.Consumer properties;
+    private final TicketEventHydrator hydrator;
+
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("ticket-event-debounce").daemon().factory());
+
+    public TicketEventDebouncer(MessagingProperties messagingProperties, TicketEventHydrator hydrator) {
+        this.properties = messagingProperties.getConsumer();
+        this.hydrator = hydrator;
+    }
+
+    /**
+     * Отложить рассылку события тикета.
+     *
+     * @param event      событие обновления тикета
+     * @param dispatcher рассылка события по истечении окна
+     * @param onFailure  ошибка отложенной рассылки: сообщение брокера уже
+     *                   подтверждено, повтор — забота вызывающего
+     */
+    public void submit(TicketEvent event, Consumer<TicketEvent> dispatcher, Consumer<Exception> onFailure) {
+        long windowMs = properties.getDebounceWindowMs();
+        if (windowMs <= 0 || event.ticketId() == null) {
+            dispatcher.accept(event);
+            return;
+        }
+
+        pending.compute(event.ticketId(), (ticketId, current) -> {
+            long now = System.nanoTime();
+            if (current == null) {
+                Pending created = new Pending(event, dispatcher, onFailure, now);
+                created.deadlineNanos = now + TimeUnit.MILLISECONDS.toNanos(windowMs);
+                created.future = scheduler.schedule(() -> fire(ticketId, created), windowMs, TimeUnit.MILLISECONDS);
+                return created;
+            }
+
+            if (TicketEventAggregator.shouldReplace(current.event, event)) {
+                current.event = event;
+                current.dispatcher = dispatcher;
+                current.onFailure = onFailure;
+            }
+            current.future.cancel(false);
+
+            long deadline = Math.min(
+                    now + TimeUnit.MILLISECONDS.toNanos(windowMs),
+                    current.firstSeenNanos + TimeUnit.MILLISECONDS.toNanos(properties.getDebounceMaxDelayMs()));
+            current.deadlineNanos = deadline;
+            current.future = scheduler.schedule(() -> fire(ticketId, current),
+                    Math.max(0, deadline - now), TimeUnit.NANOSECONDS);
+            log.trace("Ticket update debounced: ticketId={}, type={}", ticketId, event.type());
+            return current;
+        });
+    }
+
+    /**
+     * Отбросить отложенное обновление тикета (например, тикет удалён).
+     */
+    public void discard(Long ticketId) {
+        if (ticketId == null) {
+            return;
+        }
+        Pending removed = pending.remove(ticketId);
+        if (removed != null) {
+            removed.future.cancel(false);
+        }
+    }
+
+    /**
+     * При остановке рассылаем всё, что ещё ждёт окончания окна
+     */
+    @PreDestroy
+    public void shutdown() {
+        List<Pending> all = new ArrayList<>();
+        pending.forEach((ticketId, entry) -> {
+            if (pending.remove(ticketId, entry)) {
+                all.add(entry);
+            }
+        });
+        dispatch(all);
+        scheduler.shutdown();
+    }
+
+    private void fire(Long ticketId, Pending expected) {
+        if (!pending.remove(ticketId, expected)) {
+            return;
+        }
+
+        // Забираем и тех, чьё окно вот-вот истечёт, — одна загрузка payload на всех
+        List<Pending> batch = new ArrayList<>();
+        batch.add(expected);
+        long horizon = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getDebounceBatchSlackMs());
+        pending.forEach((otherId, other) -> {
+            if (other.deadlineNanos - horizon <= 0 && pending.remove(otherId, other)) {
+                other.future.cancel(false);
+                batch.add(other);
+            }
+        });
+        dispatch(batch);
+    }
+
+    private void dispatch(List<Pending> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<TicketEvent> events;
+        try {
+            events = hydrator.hydrateAll(batch.stream().map(entry -> entry.event).toList());
+        } catch (Exception e) {
+            // Отправляем как есть: консьюмер попробует восстановить каждое событие сам
+            log.warn("Failed to hydrate {} debounced events: {}", batch.size(), e.getMessage());
+            events = batch.stream().map(entry -> entry.event).toList();
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            Pending entry = batch.get(i);
+            TicketEvent event = events.get(i);
+            if (event == null) {
+                continue;
+            }
+            try {
+                entry.dispatcher.accept(event);
+            } catch (Exception e) {
+                log.warn("Failed to dispatch debounced ticket event: ticketId={}, error={}",
+                        event.ticketId(), e.getMessage());
+                fail(entry, e);
+            }
+        }
+    }
+
+    private void fail(Pending entry, Exception cause) {
+        try {
+            entry.onFailure.accept(cause);
+        } catch (Exception e) {
+            log.error("Failed to reschedule debounced ticket event: ticketId={}, error={}",
+                    entry.event.ticketId(), e.getMessage(), e);
+        }
+    }
+
+    private static final class Pending {
+        private TicketEvent event;
+        private Consumer<TicketEvent> dispatcher;
+        private Consumer<Exception> onFailure;
+        private final long firstSeenNanos;
+        private long deadlineNanos;
+        private ScheduledFuture<?> future;
+
+        private Pending(TicketEvent event, Consumer<TicketEvent> dispatcher,
+                        Consumer<Exception> onFailure, long firstSeenNanos) {
+            this.event = event;
+            this.dispatcher = dispatcher;
+            this.onFailure = onFailure;
+            this.firstSeenNanos = firstSeenNanos;
+        }
+    }
+}
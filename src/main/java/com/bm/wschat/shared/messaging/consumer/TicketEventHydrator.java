@@ -0,0 +1,196 @@
+package com.bm.wschat.shared.messaging.consumer;
+
+import com.bm.wschat.feature.message.dto.response.MessageResponse;
+import com.bm.wschat.feature.message.mapper.MessageMapper;
+import com.bm.wschat.feature.message.model.Message;
+import com.bm.wschat.feature.message.repository.MessageRepository;
+import com.bm.wschat.feature.ticket.dto.ticket.response.TicketResponse;
+import com.bm.wschat.feature.ticket.model.Ticket;
+import com.bm.wschat.feature.ticket.repository.TicketRepository;
+import com.bm.wschat.feature.ticket.service.TicketQueryService;
+import com.bm.wschat.shared.messaging.TicketEventNearCache;
+import com.bm.wschat.shared.messaging.TicketEventType;
+import com.bm.wschat.shared.messaging.event.TicketEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * Восстановление payload компактных событий (TicketEvent.SCHEMA_COMPACT).
+ *
+ * Сначала TicketEventNearCache (событие опубликовал этот же инстанс или
+ * тикет недавно загружался), затем один запрос в БД на все промахи пачки.
+ * Состояние тикета из БД может быть новее версии события — тогда событие
+ * получает версию загруженного состояния. У сообщений версии нет, поэтому
+ * MESSAGE_UPDATED всегда читается из БД: в near-cache может лежать текст
+ * до правки, сделанной на другом инстансе.
+ *
+ * Метрики: servicedesk.events.hydration{source=near-cache|db|missing},
+ * servicedesk.events.hydration.load — время загрузки промахов из БД.
+ */
+@Slf4j
+@Component
+public class TicketEventHydrator {
+
+    private final TicketEventNearCache nearCache;
+    private final TicketRepository ticketRepository;
+    private final TicketQueryService ticketQueryService;
+    private final MessageRepository messageRepository;
+    private final MessageMapper messageMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final Counter nearCacheHits;
+    private final Counter databaseLoads;
+    private final Counter missing;
+    private final Timer loadTimer;
+
+    public TicketEventHydrator(TicketEventNearCache nearCache,
+                               TicketRepository ticketRepository,
+                               TicketQueryService ticketQueryService,
+                               MessageRepository messageRepository,
+                               MessageMapper messageMapper,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry) {
+        this.nearCache = nearCache;
+        this.ticketRepository = ticketRepository;
+        this.ticketQueryService = ticketQueryService;
+        this.messageRepository = messageRepository;
+        this.messageMapper = messageMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        this.nearCacheHits = source(meterRegistry, "near-cache");
+        this.databaseLoads = source(meterRegistry, "db");
+        this.missing = source(meterRegistry, "missing");
+        this.loadTimer = Timer.builder("servicedesk.events.hydration.load")
+                .description("Загрузка payload компактных событий из БД")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return событие с payload; null — тикет или сообщение уже удалены
+     */
+    public TicketEvent hydrate(TicketEvent event) {
+        if (!event.needsHydration()) {
+            return event;
+        }
+        return hydrateAll(List.of(event)).getFirst();
+    }
+
+    /**
+     * Восстановить payload пачки событий одним обращением к БД.
+     *
+     * @return события в исходном порядке; null на месте тех, что восстановить не удалось
+     */
+    public List<TicketEvent> hydrateAll(List<TicketEvent> events) {
+        Map<Long, TicketResponse> tickets = new HashMap<>();
+        Map<Long, MessageResponse> messages = new HashMap<>();
+        Set<Long> ticketMisses = new HashSet<>();
+        Set<Long> messageMisses = new HashSet<>();
+
+        for (TicketEvent event : events) {
+            if (!event.needsHydration()) {
+                continue;
+            }
+            if (event.isMessage()) {
+                MessageResponse message = event.type() == TicketEventType.MESSAGE_UPDATED
+                        ? null : nearCache.getMessage(event.refId());
+                if (message != null) {
+                    messages.put(event.refId(), message);
+                } else {
+                    messageMisses.add(event.refId());
+                }
+            } else if (event.isTicketState()) {
+                TicketResponse ticket = nearCache.getTicket(event.ticketId(), event.version());
+                if (ticket != null) {
+                    tickets.put(event.ticketId(), ticket);
+                } else {
+                    ticketMisses.add(event.ticketId());
+                }
+            }
+        }
+
+        if (!ticketMisses.isEmpty() || !messageMisses.isEmpty()) {
+            loadTimer.record(() -> readOnlyTransaction.executeWithoutResult(status -> {
+                load(ticketMisses, tickets);
+                loadMessages(messageMisses, messages);
+            }));
+        }
+
+        List<TicketEvent> result = new ArrayList<>(events.size());
+        for (TicketEvent event : events) {
+            result.add(withPayload(event, tickets, messages, ticketMisses, messageMisses));
+        }
+        return result;
+    }
+
+    private TicketEvent withPayload(TicketEvent event,
+                                    Map<Long, TicketResponse> tickets, Map<Long, MessageResponse> messages,
+                                    Set<Long> ticketMisses, Set<Long> messageMisses) {
+        if (!event.needsHydration()) {
+            return event;
+        }
+
+        Object payload;
+        boolean loaded;
+        Long version = event.version();
+        if (event.isMessage()) {
+            payload = messages.get(event.refId());
+            loaded = messageMisses.contains(event.refId());
+        } else if (event.isTicketState()) {
+            TicketResponse ticket = tickets.get(event.ticketId());
+            payload = ticket;
+            loaded = ticketMisses.contains(event.ticketId());
+            if (ticket != null && ticket.version() != null && (version == null || ticket.version() > version)) {
+                version = ticket.version();
+            }
+        } else {
+            payload = null;
+            loaded = false;
+        }
+
+        if (payload == null) {
+            missing.increment();
+            log.debug("Cannot hydrate event: type={}, ticketId={}, refId={}",
+                    event.type(), event.ticketId(), event.refId());
+            return null;
+        }
+        (loaded ? databaseLoads : nearCacheHits).increment();
+        return event.withPayload(payload, version);
+    }
+
+    private void load(Set<Long> ticketIds, Map<Long, TicketResponse> into) {
+        if (ticketIds.isEmpty()) {
+            return;
+        }
+        for (Ticket ticket : ticketRepository.findAllById(ticketIds)) {
+            TicketResponse response = ticketQueryService.toResponseWithAssignment(ticket);
+            into.put(ticket.getId(), response);
+            nearCache.putTicket(ticket.getId(), response.version(), response);
+        }
+    }
+
+    private void loadMessages(Set<Long> messageIds, Map<Long, MessageResponse> into) {
+        if (messageIds.isEmpty()) {
+            return;
+        }
+        for (Message message : messageRepository.findAllById(messageIds)) {
+            MessageResponse response = messageMapper.toResponse(message);
+            into.put(message.getId(), response);
+            nearCache.putMessage(response);
+        }
+    }
+
+    private static Counter source(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("servicedesk.events.hydration")
+                .description("Восстановление payload компактных событий по источнику")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+}
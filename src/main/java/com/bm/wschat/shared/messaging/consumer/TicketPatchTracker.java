@@ -0,0 +1,92 @@
+package com.bm.wschat.shared.messaging.consumer;
+
+import com.bm.wschat.shared.messaging.config.MessagingProperties;
+import com.bm.wschat.shared.messaging.event.TicketEvent;
+import com.bm.wschat.shared.messaging.event.TicketPatch;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Вычисление патчей тикетов для WebSocket.
+ * 
+ * Хранит последнее разосланное состояние каждого тикета (ограниченный LRU) и
+ * для нового события состояния отдаёт только изменившиеся поля верхнего
+ * уровня TicketResponse. Если базового состояния нет (рестарт, вытеснение,
+ * событие обработал другой инстанс) или версия неизвестна — отдаёт полное
+ * состояние.
+ */
+@Component
+public class TicketPatchTracker {
+
+    private static final TypeReference<LinkedHashMap<String, Object>> STATE_TYPE = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper;
+    private final Map<Long, Snapshot> snapshots;
+
+    public TicketPatchTracker(ObjectMapper objectMapper, MessagingProperties messagingProperties) {
+        this.objectMapper = objectMapper;
+        int maxTickets = messagingProperties.getConsumer().getPatchTrackedTickets();
+        this.snapshots = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Snapshot> eldest) {
+                return size() > maxTickets;
+            }
+        };
+    }
+
+    /**
+     * Построить патч для события состояния тикета и запомнить новое состояние.
+     */
+    public synchronized TicketPatch toPatch(TicketEvent event) {
+        Map<String, Object> state = objectMapper.convertValue(event.payload(), STATE_TYPE);
+        Long version = event.version();
+        if (version != null) {
+            state.put("version", version);
+        }
+
+        Snapshot previous = snapshots.get(event.ticketId());
+        if (version != null) {
+            snapshots.put(event.ticketId(), new Snapshot(version, state));
+        } else {
+            snapshots.remove(event.ticketId());
+        }
+
+        if (previous == null || version == null || previous.version() >= version) {
+            return new TicketPatch(event.ticketId(), event.type(), version, null, true, state);
+        }
+
+        return new TicketPatch(event.ticketId(), event.type(), version, previous.version(), false,
+                diff(previous.state(), state));
+    }
+
+    /**
+     * Забыть состояние тикета (тикет удалён).
+     */
+    public synchronized void forget(Long ticketId) {
+        snapshots.remove(ticketId);
+    }
+
+    private Map<String, Object> diff(Map<String, Object> before, Map<String, Object> after) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        Set<String> keys = new HashSet<>(before.keySet());
+        keys.addAll(after.keySet());
+        for (String key : keys) {
+            Object newValue = after.get(key);
+            if (!Objects.equals(before.get(key), newValue)) {
+                changes.put(key, newValue);
+            }
+        }
+        return changes;
+    }
+
+    private record Snapshot(Long version, Map<String, Object> state) {
+    }
+}
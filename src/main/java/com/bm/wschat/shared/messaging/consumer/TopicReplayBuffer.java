@@ -0,0 +1,190 @@
+package com.bm.wschat.shared.messaging.consumer;
+
+import com.bm.wschat.shared.messaging.config.MessagingProperties;
+import com.bm.wschat.shared.messaging.event.TopicReplay;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * Кольцевой буфер последних кадров по каждому топику /topic/ticket.**.
+ * 
+ * Каждый кадр, разосланный TicketEventConsumer, получает seq, монотонный
+ * внутри топика, и попадает в буфер топика. Клиент после переподключения
+ * запрашивает кадры после последнего увиденного seq.
+ * 
+ * seq выдаётся и кадр отправляется под блокировкой топика (appendAndSend):
+ * рассылают несколько потоков (консьюмеры, debouncer), и без этого кадр
+ * seq N + 1 мог уйти раньше кадра N.
+ * 
+ * Память ограничена: не больше replayBufferSize кадров на топик, кадры
+ * старше replayTtlSeconds вытесняются, всего не больше replayMaxFrames кадров
+ * и replayMaxTopics топиков (вытесняются давно не использованные топики).
+ * 
+ * Буфер живёт в памяти инстанса. epoch меняется при каждом старте, и seq из
+ * другой epoch (рестарт, событие обработал другой инстанс) не сравниваются —
+ * клиент получает complete = false и делает полную перезагрузку.
+ */
+@Component
+public class TopicReplayBuffer {
+
+    public static final String SEQ_HEADER = "seq";
+    public static final String EPOCH_HEADER = "seq-epoch";
+    public static final String REPLAYABLE_PREFIX = "/topic/ticket.";
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final String epoch = UUID.randomUUID().toString().substring(0, 8);
+    private final int bufferSize;
+    private final int maxFrames;
+    private final long ttlNanos;
+    private final Map<String, Ring> rings;
+    private final Object[] destinationLocks = new Object[LOCK_STRIPES];
+
+    /** Всего кадров в этой epoch — стартовый seq для нового/вытесненного топика */
+    private long appended;
+    /** Кадров в буфере по всем топикам */
+    private int storedFrames;
+    private boolean evicted;
+
+    public TopicReplayBuffer(MessagingProperties messagingProperties) {
+        MessagingProperties.Consumer properties = messagingProperties.getConsumer();
+        this.bufferSize = properties.getReplayBufferSize();
+        this.maxFrames = properties.getReplayMaxFrames();
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(properties.getReplayTtlSeconds());
+        int maxTopics = properties.getReplayMaxTopics();
+        this.rings = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Ring> eldest) {
+                if (size() > maxTopics) {
+                    storedFrames -= eldest.getValue().frames.size();
+                    evicted = true;
+                    return true;
+                }
+                return false;
+            }
+        };
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            destinationLocks[i] = new Object();
+        }
+    }
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    public boolean isReplayable(String destination) {
+        return destination.startsWith(REPLAYABLE_PREFIX);
+    }
+
+    /**
+     * Запомнить кадр, выдать ему seq в топике и отправить — атомарно для
+     * топика, поэтому подписчики получают кадры в порядке seq.
+     *
+     * @param send отправка кадра с выданным seq
+     */
+    public void appendAndSend(String destination, Object payload, LongConsumer send) {
+        synchronized (destinationLocks[Math.floorMod(destination.hashCode(), LOCK_STRIPES)]) {
+            send.accept(append(destination, payload));
+        }
+    }
+
+    private synchronized long append(String destination, Object payload) {
+        long now = System.nanoTime();
+        // Вытесненный топик продолжает с seq больше любого выданного ранее,
+        // поэтому клиент со старым seq увидит разрыв, а не чужие кадры
+        Ring ring = rings.computeIfAbsent(destination, key -> new Ring(appended));
+        appended++;
+        long seq = ++ring.lastSeq;
+        expire(ring, now);
+        if (ring.frames.size() == bufferSize) {
+            ring.frames.removeFirst();
+            storedFrames--;
+        }
+        ring.frames.addLast(new StoredFrame(new TopicReplay.Frame(seq, payload), now));
+        storedFrames++;
+        evictOverflow(ring);
+        return seq;
+    }
+
+    /**
+     * Кадры топика после sinceSeq, если буфер их ещё содержит.
+     */
+    public synchronized TopicReplay since(String destination, String clientEpoch, long sinceSeq) {
+        Ring ring = rings.get(destination);
+        long lastSeq = ring != null ? ring.lastSeq : 0;
+
+        if (!epoch.equals(clientEpoch) || ring == null || sinceSeq > lastSeq) {
+            // Клиент видел кадры, о которых этот буфер не знает
+            boolean nothingMissed = epoch.equals(clientEpoch) && ring == null && sinceSeq == 0 && !evicted;
+            return new TopicReplay(destination, epoch, lastSeq, nothingMissed, List.of());
+        }
+
+        expire(ring, System.nanoTime());
+        long oldestSeq = ring.frames.isEmpty() ? lastSeq + 1 : ring.frames.getFirst().frame().seq();
+        if (oldestSeq > sinceSeq + 1) {
+            // Буфер прокрутился или кадры устарели: часть пропущенных кадров уже вытеснена
+            return new TopicReplay(destination, epoch, lastSeq, false, List.of());
+        }
+
+        List<TopicReplay.Frame> missed = ring.frames.stream()
+                .map(StoredFrame::frame)
+                .filter(frame -> frame.seq() > sinceSeq)
+                .toList();
+        return new TopicReplay(destination, epoch, lastSeq, true, missed);
+    }
+
+    /**
+     * Освободить память от устаревших кадров топиков, в которые давно не было рассылок
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public synchronized void expireAll() {
+        long now = System.nanoTime();
+        for (Ring ring : rings.values()) {
+            expire(ring, now);
+        }
+    }
+
+    private void expire(Ring ring, long now) {
+        while (!ring.frames.isEmpty() && now - ring.frames.getFirst().storedAt() > ttlNanos) {
+            ring.frames.removeFirst();
+            storedFrames--;
+        }
+    }
+
+    /**
+     * Сверх общего лимита кадров вытесняются давно не использованные топики
+     */
+    private void evictOverflow(Ring current) {
+        Iterator<Ring> eldest = rings.values().iterator();
+        while (storedFrames > maxFrames && eldest.hasNext()) {
+            Ring ring = eldest.next();
+            if (ring == current) {
+                continue;
+            }
+            storedFrames -= ring.frames.size();
+            eldest.remove();
+            evicted = true;
+        }
+    }
+
+    private record StoredFrame(TopicReplay.Frame frame, long storedAt) {
+    }
+
+    private static final class Ring {
+        private long lastSeq;
+        private final ArrayDeque<StoredFrame> frames = new ArrayDeque<>();
+
+        private Ring(long startSeq) {
+            this.lastSeq = startSeq;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.bm.wschat.shared.messaging.event;
+
+/**
+ * Уведомление Telegram, которое не удалось отправить сразу (исчерпаны
+ * повторы, переполнена очередь отправки, остановка инстанса).
+ * Лежит в очереди servicedesk.telegram.outgoing до повторной отправки.
+ */
+public record TelegramNotification(
+        Long chatId,
+        String text) {
+}
@@ -4,20 +4,81 @@ import com.bm.wschat.shared.messaging.TicketEventType;
 
 import java.io.Serializable;
 import java.time.Instant;
+import java.util.Map;
 
 /**
  * DTO события тикета для RabbitMQ.
  * Содержит тип события, ID тикета и payload (JSON).
+ * version — @Version тикета после коммита (для событий состояния тикета,
+ * проставляется перед записью в outbox), иначе null.
+ * 
+ * schema — формат конверта:
+ * - null / SCHEMA_FULL — payload содержит полный TicketResponse / MessageResponse
+ * - SCHEMA_COMPACT — payload нет, консьюмер восстанавливает его сам
+ * (TicketEventHydrator): refId — id сообщения для событий чата, changes —
+ * изменившиеся поля события (например status для STATUS_CHANGED)
  */
 public record TicketEvent(
         TicketEventType type,
         Long ticketId,
         Long userId,
         Object payload,
-        Instant timestamp) implements Serializable {
+        Instant timestamp,
+        Long version,
+        Integer schema,
+        Long refId,
+        Map<String, Object> changes) implements Serializable {
+
+    public static final int SCHEMA_FULL = 1;
+    public static final int SCHEMA_COMPACT = 2;
 
     public static TicketEvent of(TicketEventType type, Long ticketId, Long userId, Object payload) {
-        return new TicketEvent(type, ticketId, userId, payload, Instant.now());
+        return new TicketEvent(type, ticketId, userId, payload, Instant.now(), null, SCHEMA_FULL, null, null);
+    }
+
+    public TicketEvent withVersion(Long version) {
+        return new TicketEvent(type, ticketId, userId, payload, timestamp, version, schema, refId, changes);
+    }
+
+    /**
+     * Компактный конверт без payload
+     */
+    public TicketEvent compact(Long refId, Map<String, Object> changes) {
+        return new TicketEvent(type, ticketId, userId, null, timestamp, version, SCHEMA_COMPACT, refId, changes);
+    }
+
+    /**
+     * Конверт с восстановленным payload (формат остаётся прежним — по нему видно источник)
+     */
+    public TicketEvent withPayload(Object payload, Long version) {
+        return new TicketEvent(type, ticketId, userId, payload, timestamp, version, schema, refId, changes);
+    }
+
+    /**
+     * payload не передавался и должен быть восстановлен консьюмером
+     */
+    public boolean needsHydration() {
+        return schema != null && schema == SCHEMA_COMPACT && payload == null;
+    }
+
+    /**
+     * Событие чата тикета: payload — MessageResponse
+     */
+    public boolean isMessage() {
+        return switch (type) {
+            case MESSAGE_SENT, MESSAGE_UPDATED, INTERNAL_COMMENT -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Событие несёт полное состояние тикета (TicketResponse)
+     */
+    public boolean isTicketState() {
+        return switch (type) {
+            case CREATED, UPDATED, STATUS_CHANGED, ASSIGNED, RATED -> true;
+            default -> false;
+        };
     }
 
     public static TicketEvent created(Long ticketId, Long userId, Object payload) {
@@ -40,6 +101,14 @@ public record TicketEvent(
         return of(TicketEventType.ASSIGNMENT_CREATED, ticketId, userId, payload);
     }
 
+    /**
+     * Назначение на линию: одно событие на линию вместо события на каждого специалиста.
+     * userId здесь — id линии поддержки.
+     */
+    public static TicketEvent lineAssignmentCreated(Long ticketId, Long lineId, Object payload) {
+        return of(TicketEventType.LINE_ASSIGNMENT_CREATED, ticketId, lineId, payload);
+    }
+
     public static TicketEvent assignmentRejected(Long ticketId, Long userId, Object payload) {
         return of(TicketEventType.ASSIGNMENT_REJECTED, ticketId, userId, payload);
     }
@@ -63,4 +132,8 @@ public record TicketEvent(
     public static TicketEvent messageUpdated(Long ticketId, Long userId, Object payload) {
         return of(TicketEventType.MESSAGE_UPDATED, ticketId, userId, payload);
     }
+
+    public static TicketEvent slaBreach(Long ticketId, Object payload) {
+        return of(TicketEventType.SLA_BREACH, ticketId, null, payload);
+    }
 }
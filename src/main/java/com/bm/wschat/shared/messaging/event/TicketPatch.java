@@ -0,0 +1,26 @@
+package com.bm.wschat.shared.messaging.event;
+
+import com.bm.wschat.shared.messaging.TicketEventType;
+
+import java.util.Map;
+
+/**
+ * Компактное обновление тикета для /topic/ticket.{id}.patch.
+ * 
+ * Протокол:
+ * - full = false: changes содержит только изменившиеся поля TicketResponse;
+ * применять, если версия тикета у клиента равна baseVersion, после чего
+ * версия клиента становится version
+ * - full = true: changes содержит полное состояние тикета (заменить целиком)
+ * - если baseVersion не совпадает с версией клиента — пропущено обновление,
+ * клиент запрашивает полное состояние через /app/ticket.{id}.resync или
+ * GET /api/v1/tickets/{id}
+ */
+public record TicketPatch(
+        Long ticketId,
+        TicketEventType type,
+        Long version,
+        Long baseVersion,
+        boolean full,
+        Map<String, Object> changes) {
+}
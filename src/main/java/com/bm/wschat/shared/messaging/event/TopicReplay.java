@@ -0,0 +1,22 @@
+package com.bm.wschat.shared.messaging.event;
+
+import java.util.List;
+
+/**
+ * Ответ на запрос догрузки топика после переподключения.
+ * 
+ * complete = true: frames содержит все кадры топика после запрошенного seq
+ * (возможно, пустой список). complete = false: буфер уже вытеснил нужные
+ * кадры или epoch не совпал (рестарт, другой инстанс) — клиент делает
+ * полную перезагрузку данных и продолжает с lastSeq/epoch из ответа.
+ */
+public record TopicReplay(
+        String destination,
+        String epoch,
+        long lastSeq,
+        boolean complete,
+        List<Frame> frames) {
+
+    public record Frame(long seq, Object payload) {
+    }
+}
@@ -0,0 +1,69 @@
+package com.bm.wschat.shared.messaging.outbox;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Запись outbox — событие тикета, ожидающее публикации в RabbitMQ.
+ * Пишется в той же транзакции, что и изменение тикета.
+ */
+@Entity
+@Table(name = "ticket_event_outbox")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketEventOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ticket_event_outbox_seq")
+    @SequenceGenerator(name = "ticket_event_outbox_seq", sequenceName = "ticket_event_outbox_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "event_type", nullable = false, length = 40)
+    private String eventType;
+
+    @Column(name = "ticket_id")
+    private Long ticketId;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "routing_key", nullable = false, length = 100)
+    private String routingKey;
+
+    /** Сериализованный TicketEvent */
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Builder.Default
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt = Instant.now();
+
+    /** Время подтверждения брокером (null — ещё не отправлено) */
+    @Column(name = "sent_at")
+    private Instant sentAt;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    /** Порядок публикации — выдаётся БД при вставке (не пулом id инстанса) */
+    @Column(name = "sequence_no", insertable = false, updatable = false)
+    private Long sequenceNo;
+
+    /** Событие занято релеем до этого времени */
+    @Column(name = "lease_until")
+    private Instant leaseUntil;
+
+    /** Следующая попытка публикации не раньше этого времени */
+    @Column(name = "next_attempt_at")
+    private Instant nextAttemptAt;
+
+    /** Публикация прекращена после messaging.outbox.max-attempts неудач */
+    @Column(name = "parked_at")
+    private Instant parkedAt;
+}
@@ -0,0 +1,184 @@
+package com.bm.wschat.shared.messaging.outbox;
+
+import com.bm.wschat.shared.messaging.TicketEventBatchPublisher;
+import com.bm.wschat.shared.messaging.config.MessagingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Релей outbox → RabbitMQ.
+ * 
+ * Логика:
+ * 1. Короткой транзакцией занимаем пачку ожидающих событий (lease_until).
+ * Релеи разных инстансов выбирают пачки по очереди (advisory lock), событие
+ * тикета не берётся, пока более раннее событие того же тикета занято или
+ * ждёт повтора — события одного тикета публикуются строго по sequence_no
+ * 2. Публикуем пачку через TicketEventBatchPublisher вне транзакции (один
+ * канал, publisher confirms)
+ * 3. Помечаем подтверждённые как отправленные (префикс событий каждого тикета)
+ * 4. Неподтверждённые получают паузу перед следующей попыткой (экспоненциально,
+ * до messaging.outbox.retry-max-ms) и задерживают следующие события своего
+ * тикета; после messaging.outbox.max-attempts попыток событие откладывается
+ * (parked_at) и больше не публикуется — servicedesk.events.outbox.parked
+ * 
+ * Проход запускается по расписанию (страховка) и сразу после коммита
+ * транзакции, записавшей события (wakeUp). Проходы не выполняются
+ * параллельно, а повторные пробуждения во время прохода схлопываются.
+ * Если в пачке были неудачи, проход заканчивается, не дожидаясь расписания.
+ * 
+ * Доставка at-least-once: при падении между публикацией и отметкой
+ * событие будет отправлено повторно после истечения аренды (messageId = id записи outbox).
+ */
+@Slf4j
+@Component
+public class TicketEventOutboxRelay {
+
+    /** Ключ pg_advisory_xact_lock для выбора пачки */
+    private static final long CLAIM_LOCK_KEY = 0x6f7574626f78L;
+
+    private final TicketEventOutboxRepository outboxRepository;
+    private final TicketEventBatchPublisher batchPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final MessagingProperties.Outbox properties;
+    private final Counter parkedCounter;
+
+    private final ReentrantLock relayLock = new ReentrantLock();
+    private final AtomicBoolean rerunRequested = new AtomicBoolean();
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+    private final ExecutorService wakeUpExecutor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("outbox-relay").daemon().factory());
+
+    public TicketEventOutboxRelay(TicketEventOutboxRepository outboxRepository,
+                                  TicketEventBatchPublisher batchPublisher,
+                                  PlatformTransactionManager transactionManager,
+                                  MessagingProperties messagingProperties,
+                                  MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.batchPublisher = batchPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = messagingProperties.getOutbox();
+        this.parkedCounter = Counter.builder("servicedesk.events.outbox.parked")
+                .description("События outbox, публикация которых прекращена после всех попыток")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Запросить внеочередной проход релея (например, после коммита транзакции).
+     * Не блокирует вызывающий поток.
+     */
+    public void wakeUp() {
+        if (wakeUpPending.compareAndSet(false, true)) {
+            wakeUpExecutor.execute(() -> {
+                wakeUpPending.set(false);
+                relay();
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${messaging.outbox.poll-interval-ms:200}")
+    public void relay() {
+        if (!relayLock.tryLock()) {
+            // Проход уже идёт — он повторится и заберёт новые события
+            rerunRequested.set(true);
+            return;
+        }
+        try {
+            do {
+                rerunRequested.set(false);
+                BatchResult result;
+                do {
+                    result = relayBatch();
+                } while (result.claimed() == properties.getBatchSize() && result.failed() == 0);
+            } while (rerunRequested.get());
+        } catch (Exception e) {
+            // Брокер или БД недоступны — попробуем в следующем проходе
+            log.warn("Outbox relay failed: {}", e.getMessage());
+        } finally {
+            relayLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        wakeUpExecutor.shutdown();
+    }
+
+    /**
+     * Удаление уже отправленных событий старше retention
+     */
+    @Scheduled(cron = "${messaging.outbox.cleanup-cron:0 0 * * * *}")
+    public void cleanup() {
+        Instant before = Instant.now().minus(Duration.ofHours(properties.getRetentionHours()));
+        Integer deleted = transactionTemplate.execute(status -> outboxRepository.deleteSentBefore(before));
+        log.debug("Outbox cleanup: deleted {} sent events", deleted);
+    }
+
+    BatchResult relayBatch() {
+        List<TicketEventOutbox> batch = transactionTemplate.execute(status -> claim(Instant.now()));
+        if (batch == null || batch.isEmpty()) {
+            return new BatchResult(0, 0);
+        }
+
+        // Ожидание confirms — без транзакции и блокировок строк
+        TicketEventBatchPublisher.Result result = batchPublisher.publish(batch);
+        transactionTemplate.executeWithoutResult(status -> complete(result, Instant.now()));
+
+        log.debug("Outbox relay: published {} events, confirmed {}", batch.size(), result.confirmed().size());
+        return new BatchResult(batch.size(), result.unconfirmed().size());
+    }
+
+    private List<TicketEventOutbox> claim(Instant now) {
+        outboxRepository.lockClaims(CLAIM_LOCK_KEY);
+        List<TicketEventOutbox> batch = outboxRepository.findClaimable(now, properties.getBatchSize());
+        if (!batch.isEmpty()) {
+            outboxRepository.lease(batch.stream().map(TicketEventOutbox::getId).toList(),
+                    now.plusMillis(properties.getLeaseMs()));
+        }
+        return batch;
+    }
+
+    private void complete(TicketEventBatchPublisher.Result result, Instant now) {
+        if (!result.confirmed().isEmpty()) {
+            outboxRepository.markSent(result.confirmed(), now);
+        }
+        for (TicketEventOutbox row : result.unconfirmed()) {
+            int attempts = row.getAttempts() + 1;
+            if (attempts >= properties.getMaxAttempts()) {
+                outboxRepository.markFailed(row.getId(), attempts, null, now);
+                parkedCounter.increment();
+                log.error("Outbox relay: event {} ({}, ticket {}) parked after {} attempts",
+                        row.getId(), row.getEventType(), row.getTicketId(), attempts);
+            } else {
+                outboxRepository.markFailed(row.getId(), attempts, now.plusMillis(backoffMs(attempts)), null);
+            }
+        }
+        if (!result.unconfirmed().isEmpty()) {
+            log.warn("Outbox relay: {} events not confirmed by broker, will retry", result.unconfirmed().size());
+        }
+    }
+
+    /**
+     * Пауза перед попыткой attempts + 1
+     */
+    private long backoffMs(int attempts) {
+        double delay = properties.getRetryInitialMs() * Math.pow(2, attempts - 1);
+        return (long) Math.min(delay, properties.getRetryMaxMs());
+    }
+
+    record BatchResult(int claimed, int failed) {
+    }
+}
@@ -0,0 +1,52 @@
+package com.bm.wschat.shared.messaging.outbox;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TicketEventOutboxRepository extends JpaRepository<TicketEventOutbox, Long> {
+
+    // Выбор пачки релеями разных инстансов идёт по очереди (до конца транзакции),
+    // иначе два релея могли бы занять соседние события одного тикета
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(:key)", nativeQuery = true)
+    Integer lockClaims(@Param("key") long key);
+
+    // Ожидающие события в порядке записи. Событие тикета пропускается, пока более
+    // раннее событие того же тикета занято другим релеем или ждёт повторной попытки
+    @Query(value = "SELECT * FROM ticket_event_outbox o " +
+            "WHERE o.sent_at IS NULL AND o.parked_at IS NULL " +
+            "AND (o.lease_until IS NULL OR o.lease_until < :now) " +
+            "AND (o.next_attempt_at IS NULL OR o.next_attempt_at <= :now) " +
+            "AND (o.ticket_id IS NULL OR NOT EXISTS (" +
+            "  SELECT 1 FROM ticket_event_outbox p " +
+            "  WHERE p.ticket_id = o.ticket_id AND p.sent_at IS NULL AND p.parked_at IS NULL " +
+            "  AND p.sequence_no < o.sequence_no " +
+            "  AND (p.lease_until >= :now OR p.next_attempt_at > :now))) " +
+            "ORDER BY o.sequence_no LIMIT :limit", nativeQuery = true)
+    List<TicketEventOutbox> findClaimable(@Param("now") Instant now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE TicketEventOutbox o SET o.leaseUntil = :leaseUntil WHERE o.id IN :ids")
+    int lease(@Param("ids") Collection<Long> ids, @Param("leaseUntil") Instant leaseUntil);
+
+    @Modifying
+    @Query("UPDATE TicketEventOutbox o SET o.sentAt = :sentAt, o.leaseUntil = null WHERE o.id IN :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("sentAt") Instant sentAt);
+
+    @Modifying
+    @Query("UPDATE TicketEventOutbox o SET o.attempts = :attempts, o.nextAttemptAt = :nextAttemptAt, " +
+            "o.parkedAt = :parkedAt, o.leaseUntil = null WHERE o.id = :id")
+    int markFailed(@Param("id") Long id, @Param("attempts") int attempts,
+                   @Param("nextAttemptAt") Instant nextAttemptAt, @Param("parkedAt") Instant parkedAt);
+
+    @Modifying
+    @Query("DELETE FROM TicketEventOutbox o WHERE o.sentAt < :before")
+    int deleteSentBefore(@Param("before") Instant before);
+}
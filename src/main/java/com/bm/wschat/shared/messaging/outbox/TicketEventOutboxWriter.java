@@ -0,0 +1,146 @@
+package com.bm.wschat.shared.messaging.outbox;
+
+import com.bm.wschat.feature.message.dto.response.MessageResponse;
+import com.bm.wschat.feature.ticket.dto.ticket.response.TicketResponse;
+import com.bm.wschat.shared.messaging.TicketEventNearCache;
+import com.bm.wschat.shared.messaging.config.MessagingProperties;
+import com.bm.wschat.shared.messaging.config.RabbitMQConfig;
+import com.bm.wschat.shared.messaging.event.TicketEvent;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tools.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Запись событий тикетов в outbox.
+ * Присоединяется к текущей транзакции, поэтому событие фиксируется
+ * атомарно вместе с изменением тикета и не зависит от доступности брокера.
+ * 
+ * В формате COMPACT события состояния тикета и чата пишутся без payload
+ * (см. TicketEvent.schema), а полный payload после коммита кладётся в
+ * TicketEventNearCache — консьюмер этого же инстанса восстановит его без БД.
+ * Размер записанных событий — servicedesk.events.payload.bytes{format}.
+ */
+@Slf4j
+@Component
+public class TicketEventOutboxWriter {
+
+    private final TicketEventOutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+    private final TicketEventNearCache nearCache;
+    private final MessagingProperties.Publisher properties;
+    private final DistributionSummary payloadBytes;
+
+    public TicketEventOutboxWriter(TicketEventOutboxRepository outboxRepository,
+                                   ObjectMapper objectMapper,
+                                   TicketEventNearCache nearCache,
+                                   MessagingProperties messagingProperties,
+                                   MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.objectMapper = objectMapper;
+        this.nearCache = nearCache;
+        this.properties = messagingProperties.getPublisher();
+        this.payloadBytes = DistributionSummary.builder("servicedesk.events.payload.bytes")
+                .description("Размер события в брокере")
+                .baseUnit("bytes")
+                .tag("format", properties.getEventFormat().name().toLowerCase())
+                .register(meterRegistry);
+    }
+
+    @Transactional
+    public void write(Collection<TicketEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        List<TicketEventOutbox> rows = events.stream()
+                .map(this::toOutbox)
+                .toList();
+        outboxRepository.saveAll(rows);
+        if (properties.getEventFormat() == MessagingProperties.EventFormat.COMPACT) {
+            rememberAfterCommit(events);
+        }
+
+        log.debug("Wrote {} ticket events to outbox", rows.size());
+    }
+
+    /**
+     * Routing key события в exchange servicedesk.events
+     */
+    public static String routingKey(TicketEvent event) {
+        return RabbitMQConfig.routingKey(event.type());
+    }
+
+    private TicketEventOutbox toOutbox(TicketEvent event) {
+        String payload = objectMapper.writeValueAsString(toWire(event));
+        payloadBytes.record(payload.getBytes(StandardCharsets.UTF_8).length);
+        return TicketEventOutbox.builder()
+                .eventType(event.type().name())
+                .ticketId(event.ticketId())
+                .userId(event.userId())
+                .routingKey(routingKey(event))
+                .payload(payload)
+                .build();
+    }
+
+    /**
+     * Компактный конверт для событий, payload которых консьюмер умеет восстановить;
+     * остальные (назначения, SLA, статусы пользователей) уходят как есть
+     */
+    private TicketEvent toWire(TicketEvent event) {
+        if (properties.getEventFormat() != MessagingProperties.EventFormat.COMPACT) {
+            return event;
+        }
+        if (event.isMessage() && event.payload() instanceof MessageResponse message) {
+            return event.compact(message.id(), null);
+        }
+        if (event.isTicketState() && event.payload() instanceof TicketResponse ticket) {
+            return event.compact(null, changes(event, ticket));
+        }
+        return event;
+    }
+
+    /**
+     * Поля, которые меняет событие данного типа (достаточно консьюмерам без полного состояния)
+     */
+    private static Map<String, Object> changes(TicketEvent event, TicketResponse ticket) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        switch (event.type()) {
+            case STATUS_CHANGED -> changes.put("status", ticket.status());
+            case ASSIGNED -> {
+                changes.put("status", ticket.status());
+                changes.put("assignedTo", ticket.assignedTo());
+            }
+            default -> {
+                return null;
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Откат транзакции не должен оставить в near-cache состояние, которого нет в БД
+     */
+    private void rememberAfterCommit(Collection<TicketEvent> events) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            events.forEach(nearCache::remember);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                events.forEach(nearCache::remember);
+            }
+        });
+    }
+}
@@ -0,0 +1,51 @@
+package com.bm.wschat.shared.messaging.producer;
+
+import lombok.Getter;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Ошибка Bot API, которую бессмысленно повторять (4xx кроме 429).
+ */
+@Getter
+public class TelegramApiException extends RuntimeException {
+
+    private final int errorCode;
+    private final String description;
+
+    public TelegramApiException(int errorCode, String description) {
+        super("Telegram API error " + errorCode + ": " + description);
+        this.errorCode = errorCode;
+        this.description = description != null ? description : "";
+    }
+
+    /**
+     * editMessageText с тем же текстом и разметкой — не ошибка для вызывающего
+     */
+    public boolean isMessageNotModified() {
+        return description.contains("message is not modified");
+    }
+
+    /**
+     * Сообщение удалено из чата или больше не может быть отредактировано ботом
+     */
+    public boolean isMessageGone() {
+        return description.contains("message to edit not found")
+                || description.contains("message can't be edited");
+    }
+
+    /**
+     * Достаёт ошибку Bot API из исключения CompletableFuture
+     *
+     * @return null — причина не в ответе Bot API (сеть, исчерпаны повторы)
+     */
+    public static TelegramApiException from(Throwable throwable) {
+        Throwable cause = throwable;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof TelegramApiException api ? api : null;
+    }
+}
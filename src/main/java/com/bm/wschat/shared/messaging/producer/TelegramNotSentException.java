@@ -0,0 +1,25 @@
+package com.bm.wschat.shared.messaging.producer;
+
+/**
+ * Вызов Bot API точно не выполнен (переполнена очередь отправки, остановка
+ * инстанса, исчерпаны повторы после 429/5xx/ошибки соединения) — его можно
+ * безопасно отправить ещё раз, дубля в чате не будет.
+ */
+public class TelegramNotSentException extends RuntimeException {
+
+    public TelegramNotSentException(String message) {
+        super(message);
+    }
+
+    /**
+     * Есть ли TelegramNotSentException среди причин исключения CompletableFuture
+     */
+    public static boolean isCause(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TelegramNotSentException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,24 +1,111 @@
 package com.bm.wschat.shared.messaging.producer;
 
+import com.bm.wschat.shared.common.TokenBucket;
+import com.bm.wschat.shared.messaging.config.RabbitMQConfig;
 import com.bm.wschat.shared.messaging.config.TelegramProperties;
+import com.bm.wschat.shared.messaging.event.TelegramNotification;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
-import org.springframework.http.MediaType;
+import tools.jackson.databind.JsonNode;
 
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Асинхронная отправка в Telegram Bot API с учётом лимитов.
+ * 
+ * sendMessage не блокирует вызывающий поток (Rabbit listener): сообщение
+ * кладётся в ограниченную очередь и отправляется диспетчером:
+ * - per-chat: вызовы одного чата идут строго по очереди — следующий
+ * отправляется только после завершения предыдущего и не раньше
+ * perChatIntervalMs после него. Повтор держит очередь чата (head-of-line),
+ * поэтому порядок сообщений в чате сохраняется и при ошибках
+ * - per-bot: token bucket globalRatePerSecond на все чаты
+ * - HTTP-вызовы выполняются на виртуальных потоках
+ * - 429: чат откладывается на parameters.retry_after;
+ * 5xx и ошибки соединения — повтор с экспоненциальной задержкой;
+ * прочие 4xx — ошибка без повторов
+ * - send* после обрыва уже отправленного запроса (таймаут чтения и т.п.) не
+ * повторяется: Bot API мог его выполнить, повтор дал бы дубль в чате
+ * 
+ * Уведомления (sendNotification), которые точно не отправлены
+ * (TelegramNotSentException: исчерпаны повторы, переполнена очередь,
+ * остановка инстанса), откладываются в очередь servicedesk.telegram.outgoing —
+ * оттуда их повторяет TelegramNotificationConsumer с общими повторами и DLQ.
+ */
 @Slf4j
 @Service
 public class TelegramProducer {
 
+    private static final String TELEGRAM_API_PATH = "/bot{token}/{method}";
+
     private final TelegramProperties properties;
+    private final TelegramProperties.Sender senderProperties;
+    private final RabbitTemplate rabbitTemplate;
     private final RestClient restClient;
-    private static final String TELEGRAM_API_URL = "https://api.telegram.org/bot{token}/{method}";
+    private final TokenBucket botBucket;
+
+    /** Готовые к отправке вызовы — только первые в очереди своего чата */
+    private final DelayQueue<SendTask> queue = new DelayQueue<>();
+    /** Очереди чатов (guarded by chats) */
+    private final Map<Long, ChatQueue> chats = new HashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ExecutorService httpExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Thread dispatcher = Thread.ofPlatform().name("telegram-sender").daemon()
+            .unstarted(this::dispatchLoop);
+    private volatile boolean stopping;
 
-    public TelegramProducer(TelegramProperties properties) {
+    private final Counter sentCounter;
+    private final Counter droppedCounter;
+    private final Counter failedCounter;
+    private final Counter throttledCounter;
+    private final Counter parkedCounter;
+
+    public TelegramProducer(TelegramProperties properties, RabbitTemplate rabbitTemplate, MeterRegistry meterRegistry) {
         this.properties = properties;
-        this.restClient = RestClient.builder().build();
+        this.senderProperties = properties.getSender();
+        this.rabbitTemplate = rabbitTemplate;
+        this.restClient = RestClient.builder()
+                .requestFactory(requestFactory(senderProperties))
+                .build();
+        this.botBucket = new TokenBucket(senderProperties.getGlobalRatePerSecond(),
+                senderProperties.getGlobalRatePerSecond());
+
+        this.sentCounter = result(meterRegistry, "sent");
+        this.droppedCounter = result(meterRegistry, "dropped");
+        this.failedCounter = result(meterRegistry, "failed");
+        this.throttledCounter = result(meterRegistry, "throttled");
+        this.parkedCounter = result(meterRegistry, "parked");
+        Gauge.builder("servicedesk.telegram.queue.size", queued, AtomicInteger::get)
+                .description("Сообщения в очереди отправки Telegram")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        dispatcher.start();
     }
 
     /**
@@ -26,39 +113,369 @@ public class TelegramProducer {
      *
      * @param chatId ID чата (telegramId пользователя)
      * @param text   Текст сообщения
+     * @return message_id отправленного сообщения (null — Telegram выключен или сообщение не принято)
+     */
+    public CompletableFuture<Long> sendMessage(Long chatId, String text) {
+        if (chatId == null) {
+            log.warn("Cannot send Telegram message: chatId is null");
+            return CompletableFuture.completedFuture(null);
+        }
+        return call(chatId, "sendMessage", Map.of(
+                "chat_id", chatId,
+                "text", text,
+                "parse_mode", "Markdown"))
+                .thenApply(result -> result != null ? result.path("message_id").asLong() : null);
+    }
+
+    /**
+     * Отправляет уведомление, результат которого вызывающему не нужен.
+     * Если уведомление точно не отправлено — оно откладывается в
+     * servicedesk.telegram.outgoing, а не теряется.
+     *
+     * @param chatId ID чата
+     * @param text   Текст сообщения
+     */
+    public void sendNotification(Long chatId, String text) {
+        sendMessage(chatId, text).whenComplete((messageId, ex) -> {
+            // Отказ Bot API (4xx) повтор не исправит, а после обрыва запроса
+            // сообщение могло дойти — повтор дал бы дубль
+            if (ex != null && TelegramNotSentException.isCause(ex)) {
+                park(new TelegramNotification(chatId, text), ex);
+            }
+        });
+    }
+
+    /**
+     * Заменяет текст ранее отправленного ботом сообщения
+     *
+     * @param chatId    ID чата
+     * @param messageId message_id редактируемого сообщения
+     * @param text      Новый текст
+     * @return messageId (null — Telegram выключен или вызов не принят). Ответ
+     * "message is not modified" считается успехом
      */
-    public void sendMessage(Long chatId, String text) {
+    public CompletableFuture<Long> editMessageText(Long chatId, Long messageId, String text) {
+        return call(chatId, "editMessageText", Map.of(
+                "chat_id", chatId,
+                "message_id", messageId,
+                "text", text,
+                "parse_mode", "Markdown"))
+                .handle((result, ex) -> {
+                    if (ex == null) {
+                        return result != null ? messageId : null;
+                    }
+                    TelegramApiException apiError = TelegramApiException.from(ex);
+                    if (apiError != null && apiError.isMessageNotModified()) {
+                        return messageId;
+                    }
+                    throw ex instanceof CompletionException completion ? completion : new CompletionException(ex);
+                });
+    }
+
+    /**
+     * Удаляет сообщение бота из чата
+     *
+     * @return true — удалено (или Telegram выключен — false)
+     */
+    public CompletableFuture<Boolean> deleteMessage(Long chatId, Long messageId) {
+        return call(chatId, "deleteMessage", Map.of(
+                "chat_id", chatId,
+                "message_id", messageId))
+                .thenApply(result -> result != null && result.asBoolean(false));
+    }
+
+    /**
+     * Поставить вызов метода Bot API для чата в очередь отправки.
+     *
+     * @return поле result ответа Bot API (null — Telegram выключен); при
+     * переполненной очереди или остановке — TelegramNotSentException
+     */
+    public CompletableFuture<JsonNode> call(Long chatId, String method, Map<String, Object> body) {
         if (!properties.isEnabled()) {
-            log.debug("Telegram notifications are disabled. Skipping message to {}", chatId);
-            return;
+            log.debug("Telegram notifications are disabled. Skipping {} to {}", method, chatId);
+            return CompletableFuture.completedFuture(null);
         }
 
         if (chatId == null) {
-            log.warn("Cannot send Telegram message: chatId is null");
-            return;
+            log.warn("Cannot call Telegram {}: chatId is null", method);
+            return CompletableFuture.completedFuture(null);
         }
 
-        try {
-            String url = TELEGRAM_API_URL.replace("{token}", properties.getToken())
-                    .replace("{method}", "sendMessage");
+        if (stopping) {
+            return CompletableFuture.failedFuture(new TelegramNotSentException("Telegram sender is stopped"));
+        }
 
-            Map<String, Object> body = Map.of(
-                    "chat_id", chatId,
-                    "text", text,
-                    "parse_mode", "Markdown"
-            );
+        if (queued.incrementAndGet() > senderProperties.getQueueCapacity()) {
+            queued.decrementAndGet();
+            droppedCounter.increment();
+            log.warn("Telegram send queue is full, rejecting {} to {}", method, chatId);
+            return CompletableFuture.failedFuture(new TelegramNotSentException("Telegram send queue is full"));
+        }
 
-            restClient.post()
+        SendTask task = new SendTask(chatId, method, body, sequence.incrementAndGet());
+        synchronized (chats) {
+            ChatQueue chat = chats.computeIfAbsent(chatId, id -> new ChatQueue());
+            chat.tasks.addLast(task);
+            if (chat.tasks.size() == 1) {
+                schedule(task, Math.max(System.nanoTime(), chat.nextSlotNanos));
+            }
+        }
+        return task.future;
+    }
+
+    private void dispatchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                SendTask task = queue.take();
+                long wait = botBucket.reserve();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                httpExecutor.execute(() -> execute(task));
+            } catch (InterruptedException | RejectedExecutionException e) {
+                // Остановка: невыполненные вызовы остаются в очередях чатов и откладываются в shutdown
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void execute(SendTask task) {
+        long sentAt = System.nanoTime();
+        ApiResult result;
+        try {
+            String url = properties.getApiUrl() + TELEGRAM_API_PATH
+                    .replace("{token}", properties.getToken())
+                    .replace("{method}", task.method);
+
+            result = restClient.post()
                     .uri(url)
                     .contentType(MediaType.APPLICATION_JSON)
-                    .body(body)
-                    .retrieve()
-                    .toBodilessEntity();
+                    .body(task.body)
+                    .exchange((request, response) -> new ApiResult(
+                            response.getStatusCode().value(), response.bodyTo(JsonNode.class)));
+        } catch (Exception e) {
+            if (isConnectFailure(e) || !task.method.startsWith("send")) {
+                retryLater(task, backoffMs(task.attempt), "I/O error: " + e.getMessage());
+                return;
+            }
+            // Запрос ушёл, а ответа нет — Bot API мог его выполнить
+            finish(task, sentAt);
+            failedCounter.increment();
+            log.error("Telegram {} to {} failed after the request was sent, not retrying to avoid a duplicate: {}",
+                    task.method, task.chatId, e.getMessage());
+            task.future.completeExceptionally(new IllegalStateException(
+                    "Telegram " + task.method + " delivery is unknown: " + e.getMessage(), e));
+            return;
+        }
 
-            log.debug("Sent Telegram message to {}", chatId);
+        JsonNode body = result.body();
+        if (body != null && body.path("ok").asBoolean(false)) {
+            finish(task, sentAt);
+            sentCounter.increment();
+            task.future.complete(body.path("result"));
+            log.debug("Sent Telegram {} to {}", task.method, task.chatId);
+            return;
+        }
+
+        String description = body != null ? body.path("description").asString("") : "";
+        if (result.status() == 429) {
+            long retryAfterSec = body != null ? body.path("parameters").path("retry_after").asLong(1) : 1;
+            throttledCounter.increment();
+            retryLater(task, TimeUnit.SECONDS.toMillis(retryAfterSec), "429 " + description);
+        } else if (result.status() >= 500) {
+            retryLater(task, backoffMs(task.attempt), result.status() + " " + description);
+        } else {
+            finish(task, sentAt);
+            failedCounter.increment();
+            log.error("Failed to call Telegram {} for {}: {} {}", task.method, task.chatId, result.status(), description);
+            task.future.completeExceptionally(new TelegramApiException(result.status(), description));
+        }
+    }
 
+    private void retryLater(SendTask task, long delayMs, String reason) {
+        task.attempt++;
+        long now = System.nanoTime();
+        if (task.attempt >= senderProperties.getMaxAttempts()) {
+            finish(task, now);
+            failedCounter.increment();
+            log.error("Giving up Telegram {} to {} after {} attempts: {}",
+                    task.method, task.chatId, task.attempt, reason);
+            task.future.completeExceptionally(new TelegramNotSentException(
+                    "Telegram " + task.method + " failed: " + reason));
+            return;
+        }
+
+        // Вызов остаётся первым в очереди чата — следующие ждут его
+        long notBefore = now + TimeUnit.MILLISECONDS.toNanos(delayMs);
+        synchronized (chats) {
+            ChatQueue chat = chats.get(task.chatId);
+            if (chat == null || chat.tasks.peekFirst() != task) {
+                // Очереди чатов уже разобраны при остановке
+                return;
+            }
+            chat.nextSlotNanos = Math.max(chat.nextSlotNanos, notBefore);
+            schedule(task, notBefore);
+        }
+        log.warn("Telegram {} to {} postponed for {} ms (attempt {}): {}",
+                task.method, task.chatId, delayMs, task.attempt, reason);
+    }
+
+    /**
+     * Вызов завершён — очередь чата переходит к следующему не раньше perChatIntervalMs
+     */
+    private void finish(SendTask task, long sentAt) {
+        synchronized (chats) {
+            ChatQueue chat = chats.get(task.chatId);
+            if (chat == null || chat.tasks.peekFirst() != task) {
+                // Уже снят с очереди при остановке
+                return;
+            }
+            chat.tasks.pollFirst();
+            release();
+            chat.nextSlotNanos = Math.max(chat.nextSlotNanos, sentAt + chatIntervalNanos());
+            SendTask next = chat.tasks.peekFirst();
+            if (next != null) {
+                schedule(next, Math.max(System.nanoTime(), chat.nextSlotNanos));
+            }
+        }
+    }
+
+    private void schedule(SendTask task, long readyAtNanos) {
+        task.readyAtNanos = readyAtNanos;
+        queue.put(task);
+    }
+
+    private void park(TelegramNotification notification, Throwable cause) {
+        try {
+            rabbitTemplate.convertAndSend("", RabbitMQConfig.TELEGRAM_OUTGOING_QUEUE, notification);
+            parkedCounter.increment();
+            log.warn("Telegram notification to {} parked for a later retry: {}",
+                    notification.chatId(), cause.getMessage());
         } catch (Exception e) {
-            log.error("Failed to send Telegram message to {}: {}", chatId, e.getMessage());
+            log.error("Failed to park Telegram notification to {}, it is lost: {}",
+                    notification.chatId(), e.getMessage(), e);
+        }
+    }
+
+    private long chatIntervalNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(senderProperties.getPerChatIntervalMs());
+    }
+
+    private long backoffMs(int attempt) {
+        return senderProperties.getRetryInitialMs() << Math.min(attempt, 6);
+    }
+
+    private void release() {
+        queued.decrementAndGet();
+    }
+
+    /**
+     * Удаляем очереди чатов, в которые давно ничего не отправлялось
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdleChats() {
+        long now = System.nanoTime();
+        synchronized (chats) {
+            chats.values().removeIf(chat -> chat.tasks.isEmpty() && chat.nextSlotNanos - now < 0);
+        }
+    }
+
+    /**
+     * Ждём текущие HTTP-вызовы; всё, что ещё не отправлено, завершается
+     * TelegramNotSentException — уведомления при этом откладываются в
+     * servicedesk.telegram.outgoing и отправляются после перезапуска
+     */
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        stopping = true;
+        dispatcher.interrupt();
+        dispatcher.join(TimeUnit.SECONDS.toMillis(1));
+        httpExecutor.shutdown();
+        if (!httpExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+            httpExecutor.shutdownNow();
+        }
+
+        List<SendTask> unsent = new ArrayList<>();
+        synchronized (chats) {
+            chats.values().forEach(chat -> unsent.addAll(chat.tasks));
+            chats.clear();
+        }
+        queue.clear();
+        for (SendTask task : unsent) {
+            release();
+            task.future.completeExceptionally(new TelegramNotSentException("Telegram sender is stopped"));
+        }
+        if (!unsent.isEmpty()) {
+            log.warn("Telegram sender stopped with {} unsent calls", unsent.size());
+        }
+    }
+
+    /**
+     * Соединение не установлено — запрос до Bot API точно не дошёл
+     */
+    private static boolean isConnectFailure(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException
+                    || cause instanceof HttpConnectTimeoutException
+                    || cause instanceof UnknownHostException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static JdkClientHttpRequestFactory requestFactory(TelegramProperties.Sender senderProperties) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(Duration.ofMillis(senderProperties.getRequestTimeoutMs()));
+        return factory;
+    }
+
+    private static Counter result(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("servicedesk.telegram.messages")
+                .description("Вызовы Telegram Bot API по результату")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record ApiResult(int status, JsonNode body) {
+    }
+
+    private static final class ChatQueue {
+        private final ArrayDeque<SendTask> tasks = new ArrayDeque<>();
+        /** Не раньше этого момента можно отправлять следующий вызов чата */
+        private long nextSlotNanos = System.nanoTime();
+    }
+
+    private static final class SendTask implements Delayed {
+        private final Long chatId;
+        private final String method;
+        private final Map<String, Object> body;
+        private final long sequence;
+        private final CompletableFuture<JsonNode> future = new CompletableFuture<>();
+        private volatile long readyAtNanos;
+        private int attempt;
+
+        private SendTask(Long chatId, String method, Map<String, Object> body, long sequence) {
+            this.chatId = chatId;
+            this.method = method;
+            this.body = body;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(readyAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            SendTask that = (SendTask) other;
+            int byTime = Long.compare(readyAtNanos - that.readyAtNanos, 0);
+            return byTime != 0 ? byTime : Long.compare(sequence, that.sequence);
         }
     }
 }
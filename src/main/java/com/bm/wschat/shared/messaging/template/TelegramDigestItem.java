@@ -0,0 +1,13 @@
+package com.bm.wschat.shared.messaging.template;
+
+import com.bm.wschat.feature.ticket.model.TicketPriority;
+
+/**
+ * Строка сводки Telegram (снимок данных тикета на момент события)
+ */
+public record TelegramDigestItem(
+        Long ticketId,
+        String title,
+        TicketPriority priority,
+        String assigneeName) {
+}
@@ -2,10 +2,14 @@ package com.bm.wschat.shared.messaging.template;
 
 import com.bm.wschat.feature.ticket.model.Ticket;
 import com.bm.wschat.feature.ticket.model.TicketPriority;
+import com.bm.wschat.feature.ticket.model.TicketStatus;
 import com.bm.wschat.feature.user.model.User;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.function.Function;
+
 /**
  * Шаблоны сообщений для Telegram уведомлений.
  * Использует Markdown для форматирования.
@@ -16,6 +20,7 @@ public class TelegramMessageTemplate {
     private static final String PRIORITY_HIGH = "🔴";
     private static final String PRIORITY_MEDIUM = "🟡";
     private static final String PRIORITY_LOW = "🟢";
+    private static final int DIGEST_MAX_LINES = 10;
 
     @Value("${app.frontend-url:http://localhost:3000}")
     private String frontendUrl;
@@ -156,15 +161,7 @@ public class TelegramMessageTemplate {
      * Статус изменился — для автора
      */
     public String buildStatusChangedMessage(Ticket ticket) {
-        String statusEmoji = switch (ticket.getStatus()) {
-            case NEW -> "🆕";
-            case OPEN, REOPENED -> "📂";
-            case PENDING, PENDING_CLOSURE -> "⏳";
-            case ESCALATED -> "⬆️";
-            case RESOLVED -> "✅";
-            case CLOSED -> "🔒";
-            case REJECTED, CANCELLED -> "❌";
-        };
+        String statusEmoji = getStatusEmoji(ticket.getStatus());
 
         return String.format("""
                 %s *Статус заявки #%d изменён*
@@ -179,6 +176,37 @@ public class TelegramMessageTemplate {
                 buildTicketUrl(ticket.getId()));
     }
 
+    /**
+     * Карточка заявки — для канала линии поддержки.
+     * Одно сообщение на заявку, редактируется при взятии в работу и смене статуса.
+     */
+    public String buildTicketCardMessage(Ticket ticket) {
+        return String.format("""
+                %s *Заявка #%d* — %s
+
+                📋 *Тема:* %s
+                📍 *Линия:* %s
+                👤 *Автор:* %s
+                👨‍💻 *Исполнитель:* %s
+                %s *Приоритет:* %s
+
+                📝 _%s_
+
+                🔗 [Открыть заявку](%s)
+                """,
+                getStatusEmoji(ticket.getStatus()),
+                ticket.getId(),
+                ticket.getStatus(),
+                escapeMarkdown(ticket.getTitle()),
+                ticket.getSupportLine() != null ? ticket.getSupportLine().getName() : "Не назначена",
+                getUserName(ticket.getCreatedBy()),
+                ticket.getAssignedTo() != null ? getUserName(ticket.getAssignedTo()) : "Не назначен",
+                getPriorityEmoji(ticket.getPriority()),
+                ticket.getPriority(),
+                truncate(escapeMarkdown(ticket.getDescription()), 200),
+                buildTicketUrl(ticket.getId()));
+    }
+
     /**
      * Новое сообщение от поддержки — для автора
      */
@@ -231,8 +259,82 @@ public class TelegramMessageTemplate {
                 buildTicketUrl(ticket.getId()));
     }
 
+    /**
+     * Нарушен SLA — для канала линии поддержки (всегда сразу, без сводки)
+     */
+    public String buildSlaBreachMessage(Ticket ticket) {
+        return String.format("""
+                🚨 *Нарушен SLA по заявке #%d*
+
+                📋 *Тема:* %s
+                📍 *Линия:* %s
+                👨‍💻 *Исполнитель:* %s
+                %s *Приоритет:* %s
+
+                🔗 [Открыть заявку](%s)
+                """,
+                ticket.getId(),
+                escapeMarkdown(ticket.getTitle()),
+                ticket.getSupportLine() != null ? ticket.getSupportLine().getName() : "Не назначена",
+                ticket.getAssignedTo() != null ? getUserName(ticket.getAssignedTo()) : "Не назначен",
+                getPriorityEmoji(ticket.getPriority()),
+                ticket.getPriority(),
+                buildTicketUrl(ticket.getId()));
+    }
+
+    /**
+     * Сводка событий линии за окно — для канала линии поддержки
+     */
+    public String buildDigestMessage(String lineName, long windowSeconds,
+                                     List<TelegramDigestItem> created, List<TelegramDigestItem> taken) {
+        StringBuilder message = new StringBuilder()
+                .append("📊 *Сводка по линии ").append(escapeMarkdown(lineName))
+                .append(" за ").append(formatWindow(windowSeconds)).append("*\n\n")
+                .append("🆕 Новых заявок: *").append(created.size()).append("*\n")
+                .append("👷 Взято в работу: *").append(taken.size()).append("*\n");
+
+        if (!created.isEmpty()) {
+            message.append("\n*Новые:*\n");
+            appendDigestLines(message, created, item -> getPriorityEmoji(item.priority()) + " ");
+        }
+        if (!taken.isEmpty()) {
+            message.append("\n*Взяты в работу:*\n");
+            appendDigestLines(message, taken, item -> "");
+        }
+
+        message.append("\n🔗 [Открыть заявки](").append(frontendUrl).append("/tickets)\n");
+        return message.toString();
+    }
+
     // === Helper methods ===
 
+    private void appendDigestLines(StringBuilder message, List<TelegramDigestItem> items,
+                                   Function<TelegramDigestItem, String> prefix) {
+        items.stream().limit(DIGEST_MAX_LINES).forEach(item -> {
+            message.append(prefix.apply(item))
+                    .append("[#").append(item.ticketId()).append("](").append(buildTicketUrl(item.ticketId())).append(") ")
+                    .append(truncate(escapeMarkdown(item.title()), 60));
+            if (item.assigneeName() != null) {
+                message.append(" — ").append(escapeMarkdown(item.assigneeName()));
+            }
+            message.append("\n");
+        });
+        if (items.size() > DIGEST_MAX_LINES) {
+            message.append("_…и ещё ").append(items.size() - DIGEST_MAX_LINES).append("_\n");
+        }
+    }
+
+    private String formatWindow(long seconds) {
+        return seconds % 60 == 0 ? seconds / 60 + " мин" : seconds + " сек";
+    }
+
+    /**
+     * Имя пользователя для подписи (ФИО или логин)
+     */
+    public String displayName(User user) {
+        return getUserName(user);
+    }
+
     private String buildTicketUrl(Long ticketId) {
         return frontendUrl + "/tickets/" + ticketId;
     }
@@ -263,6 +365,20 @@ public class TelegramMessageTemplate {
         };
     }
 
+    private String getStatusEmoji(TicketStatus status) {
+        if (status == null)
+            return "🆕";
+        return switch (status) {
+            case NEW -> "🆕";
+            case OPEN, REOPENED -> "📂";
+            case PENDING, PENDING_CLOSURE -> "⏳";
+            case ESCALATED -> "⬆️";
+            case RESOLVED -> "✅";
+            case CLOSED -> "🔒";
+            case REJECTED, CANCELLED -> "❌";
+        };
+    }
+
     /**
      * Экранирует специальные символы Markdown чтобы избежать ошибок форматирования.
      */
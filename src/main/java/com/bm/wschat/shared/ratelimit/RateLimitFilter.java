@@ -0,0 +1,187 @@
+package com.bm.wschat.shared.ratelimit;
+
+import com.bm.wschat.feature.user.model.User;
+import com.bm.wschat.shared.config.RateLimitProperties;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Ограничение частоты REST-запросов. Стоит после JwtAuthFilter: ключ —
+ * id пользователя, для анонимных запросов (refresh) — адрес клиента
+ * (за прокси — из X-Forwarded-For, server.forward-headers-strategy).
+ * Группа с key-by: username (логин) считается по полю username JSON-тела;
+ * тело читается один раз и передаётся дальше. Превышение — 429 с
+ * заголовком Retry-After (секунды).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    public static final String ERROR_RATE_LIMITED = "RATE_LIMITED";
+
+    /** Тело логина больше этого не разбирается — ключом остаётся адрес клиента */
+    private static final int MAX_USERNAME_BODY_BYTES = 8192;
+
+    private final RateLimiter rateLimiter;
+    private final RateLimitProperties properties;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !rateLimiter.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        RateLimitProperties.Group group = rateLimiter.match(properties.getHttp(), path);
+        if (group == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        HttpServletRequest chained = request;
+        String key = null;
+        if (group.getKeyBy() == RateLimitProperties.KeyBy.USERNAME) {
+            CachedBodyRequest cached = CachedBodyRequest.read(request, MAX_USERNAME_BODY_BYTES);
+            if (cached != null) {
+                chained = cached;
+                key = usernameKey(cached.body);
+            }
+        }
+        if (key == null) {
+            key = clientKey(request);
+        }
+
+        long waitMillis = rateLimiter.tryAcquire("http", group, key);
+        if (waitMillis == 0) {
+            filterChain.doFilter(chained, response);
+            return;
+        }
+
+        long retryAfterSeconds = Math.max(1, (waitMillis + 999) / 1000);
+        log.debug("Rate limit exceeded: group={}, path={}, retryAfter={}s", group.getName(), path, retryAfterSeconds);
+        sendTooManyRequests(retryAfterSeconds, response);
+    }
+
+    private static String clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User user) {
+            return "user:" + user.getId();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private String usernameKey(byte[] body) {
+        try {
+            String username = objectMapper.readTree(body).path("username").asString("").strip();
+            return username.isEmpty() ? null : "username:" + username.toLowerCase(Locale.ROOT);
+        } catch (RuntimeException e) {
+            // Некорректное тело отклонит контроллер; лимит — по адресу клиента
+            return null;
+        }
+    }
+
+    private void sendTooManyRequests(long retryAfterSeconds, HttpServletResponse response) throws IOException {
+        var errorResponse = Map.of(
+                "success", false,
+                "errorCode", ERROR_RATE_LIMITED,
+                "message", "Слишком много запросов. Повторите через " + retryAfterSeconds + " с.");
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+
+        objectMapper.writeValue(response.getWriter(), errorResponse);
+    }
+
+    /**
+     * Запрос с прочитанным телом: контроллер получает те же байты
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        /**
+         * @return null — длина тела неизвестна или больше maxBytes, тело не читалось
+         */
+        static CachedBodyRequest read(HttpServletRequest request, int maxBytes) throws IOException {
+            long length = request.getContentLengthLong();
+            if (length < 0 || length > maxBytes) {
+                return null;
+            }
+            return new CachedBodyRequest(request, request.getInputStream().readNBytes((int) length));
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return input.read(buffer, offset, length);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException("Asynchronous read is not supported");
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            Charset charset = getCharacterEncoding() != null
+                    ? Charset.forName(getCharacterEncoding()) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+    }
+}
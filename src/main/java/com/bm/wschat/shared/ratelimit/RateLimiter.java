@@ -0,0 +1,174 @@
+package com.bm.wschat.shared.ratelimit;
+
+import com.bm.wschat.shared.config.RateLimitProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket на пару (группа эндпоинтов, ключ клиента).
+ *
+ * Основная проверка — корзина в памяти инстанса: без сетевых вызовов на
+ * каждый запрос. При app.rate-limit.redis-enabled запрос, прошедший
+ * локальную корзину, дополнительно списывает токен из общей корзины в Redis
+ * (Lua-скрипт, время — TIME сервера Redis), чтобы лимит действовал на весь
+ * кластер, а не на каждый инстанс. Ошибка Redis лимит не ужесточает —
+ * остаётся только локальная проверка.
+ *
+ * Метрика servicedesk.ratelimit.rejected{channel=http|stomp, group}.
+ */
+@Slf4j
+@Component
+public class RateLimiter {
+
+    private static final String KEY_PREFIX = "ratelimit:";
+
+    // KEYS[1] — корзина; ARGV: ёмкость, пополнение в токенах за мс. Возвращает ожидание в мс (0 — разрешено)
+    private static final RedisScript<Long> TOKEN_BUCKET = new DefaultRedisScript<>("""
+            local capacity = tonumber(ARGV[1])
+            local refill = tonumber(ARGV[2])
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+            local tokens = tonumber(state[1]) or capacity
+            local ts = tonumber(state[2]) or now
+            tokens = math.min(capacity, tokens + math.max(0, now - ts) * refill)
+            local wait = 0
+            if tokens >= 1 then
+              tokens = tokens - 1
+            else
+              wait = math.ceil((1 - tokens) / refill)
+            end
+            redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now))
+            redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / refill) + 1000)
+            return wait
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final RateLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private final Map<BucketKey, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    public RateLimiter(StringRedisTemplate redisTemplate,
+                       RateLimitProperties properties,
+                       MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Первая группа, шаблон которой подходит под путь; null — путь не ограничивается
+     */
+    public RateLimitProperties.Group match(List<RateLimitProperties.Group> groups, String path) {
+        for (RateLimitProperties.Group group : groups) {
+            for (String pattern : group.getPatterns()) {
+                if (pathMatcher.match(pattern, path)) {
+                    return group;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Списать токен из корзины клиента.
+     *
+     * @param channel http или stomp — для метрики
+     * @return 0 — запрос разрешён, иначе через сколько мс появится токен
+     */
+    public long tryAcquire(String channel, RateLimitProperties.Group group, String key) {
+        TokenBucket bucket = buckets.computeIfAbsent(new BucketKey(group.getName(), key),
+                k -> new TokenBucket(group.getCapacity(), group.getRefillPerSecond()));
+        long waitMillis = bucket.tryConsume(System.nanoTime());
+
+        if (waitMillis == 0 && properties.isRedisEnabled()) {
+            waitMillis = tryAcquireShared(group, key);
+        }
+        if (waitMillis > 0) {
+            Counter.builder("servicedesk.ratelimit.rejected")
+                    .description("Запросы, отклонённые ограничением частоты")
+                    .tag("channel", channel)
+                    .tag("group", group.getName())
+                    .register(meterRegistry)
+                    .increment();
+        }
+        return waitMillis;
+    }
+
+    private long tryAcquireShared(RateLimitProperties.Group group, String key) {
+        try {
+            Long wait = redisTemplate.execute(TOKEN_BUCKET,
+                    List.of(KEY_PREFIX + group.getName() + ":" + key),
+                    String.valueOf(group.getCapacity()),
+                    String.valueOf(group.getRefillPerSecond() / 1000.0));
+            return wait != null ? wait : 0;
+        } catch (Exception e) {
+            log.debug("Rate limit: Redis unavailable, using local limit only: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Убрать корзины, которые успели наполниться: они ничем не отличаются от новых
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdle() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    private record BucketKey(String group, String key) {
+    }
+
+    private static final class TokenBucket {
+
+        private final double capacity;
+        private final double refillPerNano;
+        private double tokens;
+        private long updatedAt;
+
+        TokenBucket(long capacity, double refillPerSecond) {
+            this.capacity = capacity;
+            this.refillPerNano = refillPerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.tokens = capacity;
+            this.updatedAt = System.nanoTime();
+        }
+
+        synchronized long tryConsume(long now) {
+            refill(now);
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return Math.max(1, TimeUnit.NANOSECONDS.toMillis((long) Math.ceil((1 - tokens) / refillPerNano)));
+        }
+
+        synchronized boolean isFull(long now) {
+            refill(now);
+            return tokens >= capacity;
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(capacity, tokens + (now - updatedAt) * refillPerNano);
+            updatedAt = now;
+        }
+    }
+}
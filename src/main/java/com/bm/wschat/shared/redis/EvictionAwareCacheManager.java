@@ -0,0 +1,114 @@
+package com.bm.wschat.shared.redis;
+
+import org.jspecify.annotations.Nullable;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * CacheManager-обёртка: при evict/clear указанных кешей дополнительно
+ * вызывает слушателя. Нужна локальным копиям данных (например,
+ * UserPrincipalCache), которые должны сбрасываться вместе с Redis-кешем
+ * по тем же @CacheEvict, без правок в сервисах.
+ */
+public class EvictionAwareCacheManager implements CacheManager {
+
+    private final CacheManager delegate;
+    private final Map<String, Runnable> listeners;
+
+    public EvictionAwareCacheManager(CacheManager delegate, Map<String, Runnable> listeners) {
+        this.delegate = delegate;
+        this.listeners = Map.copyOf(listeners);
+    }
+
+    @Override
+    public @Nullable Cache getCache(String name) {
+        Cache cache = delegate.getCache(name);
+        Runnable listener = listeners.get(name);
+        return cache != null && listener != null ? new ListeningCache(cache, listener) : cache;
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+
+    private record ListeningCache(Cache delegate, Runnable onEvict) implements Cache {
+
+        @Override
+        public String getName() {
+            return delegate.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return delegate.getNativeCache();
+        }
+
+        @Override
+        public @Nullable ValueWrapper get(Object key) {
+            return delegate.get(key);
+        }
+
+        @Override
+        public <T> @Nullable T get(Object key, @Nullable Class<T> type) {
+            return delegate.get(key, type);
+        }
+
+        @Override
+        public <T> @Nullable T get(Object key, Callable<T> valueLoader) {
+            return delegate.get(key, valueLoader);
+        }
+
+        @Override
+        public @Nullable CompletableFuture<?> retrieve(Object key) {
+            return delegate.retrieve(key);
+        }
+
+        @Override
+        public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+            return delegate.retrieve(key, valueLoader);
+        }
+
+        @Override
+        public void put(Object key, @Nullable Object value) {
+            delegate.put(key, value);
+        }
+
+        @Override
+        public @Nullable ValueWrapper putIfAbsent(Object key, @Nullable Object value) {
+            return delegate.putIfAbsent(key, value);
+        }
+
+        @Override
+        public void evict(Object key) {
+            delegate.evict(key);
+            onEvict.run();
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            boolean evicted = delegate.evictIfPresent(key);
+            onEvict.run();
+            return evicted;
+        }
+
+        @Override
+        public void clear() {
+            delegate.clear();
+            onEvict.run();
+        }
+
+        @Override
+        public boolean invalidate() {
+            boolean invalidated = delegate.invalidate();
+            onEvict.run();
+            return invalidated;
+        }
+    }
+}
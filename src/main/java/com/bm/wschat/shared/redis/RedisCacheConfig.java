@@ -1,7 +1,10 @@
 package com.bm.wschat.shared.redis;
 
+import com.bm.wschat.feature.auth.service.UserPrincipalCache;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
@@ -53,4 +56,14 @@ public class RedisCacheConfig {
                 .withInitialCacheConfigurations(configs)
                 .build();
     }
+
+    /**
+     * Основной CacheManager: evict кеша "users" сбрасывает и локальные
+     * снимки principal, используемые JWT-аутентификацией
+     */
+    @Bean
+    @Primary
+    public CacheManager cacheManager(RedisCacheManager redisCacheManager, UserPrincipalCache userPrincipalCache) {
+        return new EvictionAwareCacheManager(redisCacheManager, Map.of("users", userPrincipalCache::invalidateAll));
+    }
 }
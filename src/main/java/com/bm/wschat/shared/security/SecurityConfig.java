@@ -1,5 +1,6 @@
 package com.bm.wschat.shared.security;
 
+import com.bm.wschat.shared.ratelimit.RateLimitFilter;
 import com.bm.wschat.shared.security.jwt.JwtAuthFilter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
@@ -31,6 +32,7 @@ import java.util.List;
 public class SecurityConfig {
 
         private final JwtAuthFilter jwtAuthFilter;
+        private final RateLimitFilter rateLimitFilter;
 
         @Bean
         public SecurityFilterChain securityFilterChain(HttpSecurity http) {
@@ -65,7 +67,9 @@ public class SecurityConfig {
                                 .sessionManagement(session -> session
                                                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                                 .requestCache(cache -> cache.requestCache(new NullRequestCache()))
-                                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+                                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+                                // Лимит считается на пользователя, поэтому после аутентификации
+                                .addFilterAfter(rateLimitFilter, JwtAuthFilter.class);
 
                 return http.build();
         }
@@ -1,7 +1,8 @@
 package com.bm.wschat.shared.security.jwt;
 
-import com.bm.wschat.feature.auth.service.CustomUserDetailsService;
+import com.bm.wschat.feature.auth.service.UserPrincipalCache;
 import com.bm.wschat.feature.user.model.User;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.security.SignatureException;
@@ -31,11 +32,13 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final ObjectMapper objectMapper;
-    private final CustomUserDetailsService customUserDetailsService;
+    private final UserPrincipalCache userPrincipalCache;
+    private final TokenRevocationService tokenRevocationService;
 
     // Error codes for frontend to distinguish error types
     public static final String ERROR_TOKEN_EXPIRED = "TOKEN_EXPIRED";
     public static final String ERROR_TOKEN_INVALID = "TOKEN_INVALID";
+    public static final String ERROR_TOKEN_REVOKED = "TOKEN_REVOKED";
     public static final String ERROR_USER_NOT_FOUND = "USER_NOT_FOUND";
     public static final String ERROR_AUTH_FAILED = "AUTH_FAILED";
 
@@ -52,13 +55,21 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         String jwt = authHeader.substring(7);
 
         try {
-            String username = jwtService.extractUsername(jwt);
+            // Единственный разбор токена: подпись и срок действия проверяются здесь
+            Claims claims = jwtService.parseClaims(jwt);
+            String username = claims.getSubject();
 
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-                User user = (User) customUserDetailsService.loadUserByUsername(username);
+                User user = userPrincipalCache.load(username);
 
-                if (jwtService.isTokenValid(jwt, user)) {
+                if (tokenRevocationService.isRevoked(claims, user.getId())) {
+                    log.debug("Revoked JWT token for request: {}", request.getRequestURI());
+                    sendUnauthorized(ERROR_TOKEN_REVOKED, "JWT токен отозван. Войдите снова.", response);
+                    return;
+                }
+
+                if (jwtService.isTokenValid(claims, user)) {
 
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             user,
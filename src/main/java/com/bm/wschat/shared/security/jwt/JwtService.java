@@ -1,6 +1,7 @@
 package com.bm.wschat.shared.security.jwt;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
@@ -10,40 +11,49 @@ import org.springframework.stereotype.Service;
 import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Service
 public class JwtService {
 
-    @Value("${jwt.secret}")
-    private String SECRET_KEY;
+    private final long JWT_EXPIRATION;
 
-    @Value("${jwt.expiration}")
-    private long JWT_EXPIRATION;
+    // Ключ и парсер неизменяемы и потокобезопасны — строятся один раз, а не на каждый разбор токена
+    private final SecretKey signInKey;
+    private final JwtParser parser;
+
+    public JwtService(@Value("${jwt.secret}") String secretKey,
+                      @Value("${jwt.expiration}") long jwtExpiration) {
+        this.JWT_EXPIRATION = jwtExpiration;
+        // Use a proper key length for security (at least 256 bits for HS512)
+        this.signInKey = Keys.hmacShaKeyFor(secretKey.getBytes());
+        this.parser = Jwts.parser()
+                .verifyWith(signInKey)
+                .build();
+    }
 
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = parseClaims(token);
         return claimsResolver.apply(claims);
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parser()
-                .verifyWith(getSignInKey())
-                .build()
+    /**
+     * Проверить подпись и срок действия токена и вернуть его claims — один разбор на запрос.
+     *
+     * @throws io.jsonwebtoken.ExpiredJwtException токен просрочен
+     * @throws io.jsonwebtoken.JwtException        подпись или формат неверны
+     */
+    public Claims parseClaims(String token) {
+        return parser
                 .parseSignedClaims(token)
                 .getPayload();
     }
 
-    private SecretKey getSignInKey() {
-        // Use a proper key length for security (at least 256 bits for HS512)
-        return Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
-    }
-
     public String generateToken(UserDetails userDetails) {
         return generateToken(
                 Map.of(
@@ -58,26 +68,28 @@ public class JwtService {
                 .builder()
                 .claims(extraClaims)
                 .subject(userDetails.getUsername())
+                // jti — ключ для отзыва отдельного токена (TokenRevocationService)
+                .id(UUID.randomUUID().toString())
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + JWT_EXPIRATION * 1000))
-                .signWith(getSignInKey())
+                .signWith(signInKey)
                 .compact();
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return isTokenValid(parseClaims(token), userDetails);
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    /**
+     * Проверка уже разобранного токена: срок действия проверен парсером, остаётся владелец
+     */
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return claims.getSubject() != null
+                && claims.getSubject().equals(userDetails.getUsername())
+                && !claims.getExpiration().before(new Date());
     }
 
     public long getJwtExpiration() {
         return JWT_EXPIRATION;
     }
-}
\ No newline at end of file
+}
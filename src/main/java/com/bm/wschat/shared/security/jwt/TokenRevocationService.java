@@ -0,0 +1,219 @@
+package com.bm.wschat.shared.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Отзыв access-токенов до истечения срока действия.
+ *
+ * В Redis хранятся:
+ * - auth:revoked:jti:{jti} — отозванный токен, TTL до его exp (выход из системы)
+ * - auth:revoked:user:{userId} — "отозваны все токены, выданные не позже" в
+ * epoch seconds, TTL = jwt.expiration (деактивация и удаление пользователя)
+ *
+ * Проверка на каждом запросе — только память инстанса: watermark'и
+ * пользователей в ConcurrentHashMap, jti в Bloom-фильтре. В Redis идём лишь
+ * при срабатывании фильтра (отозванный токен или ложное срабатывание,
+ * jwt.revocation.false-positive-rate). Другие инстансы узнают об отзыве через
+ * канал auth:revocations; фильтр периодически пересобирается из Redis, чтобы
+ * истёкшие jti не занимали место.
+ *
+ * Токены без jti (выпущенные до появления claim) проверяются только по watermark.
+ */
+@Slf4j
+@Service
+public class TokenRevocationService {
+
+    private static final String JTI_KEY_PREFIX = "auth:revoked:jti:";
+    private static final String USER_KEY_PREFIX = "auth:revoked:user:";
+    private static final String CHANNEL = "auth:revocations";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final JwtService jwtService;
+    private final int expectedTokens;
+    private final double falsePositiveRate;
+
+    private volatile BloomFilter revokedTokens;
+    /** Фильтр, который сейчас собирается из Redis: новые отзывы попадают и в него */
+    private volatile BloomFilter rebuilding;
+    private volatile Map<Long, Long> issuedBefore = new ConcurrentHashMap<>();
+
+    public TokenRevocationService(StringRedisTemplate redisTemplate,
+                                  RedisMessageListenerContainer listenerContainer,
+                                  JwtService jwtService,
+                                  @Value("${jwt.revocation.expected-tokens:100000}") int expectedTokens,
+                                  @Value("${jwt.revocation.false-positive-rate:0.001}") double falsePositiveRate) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.jwtService = jwtService;
+        this.expectedTokens = expectedTokens;
+        this.falsePositiveRate = falsePositiveRate;
+        this.revokedTokens = new BloomFilter(expectedTokens, falsePositiveRate);
+    }
+
+    @PostConstruct
+    void init() {
+        listenerContainer.addMessageListener(this::onMessage, new ChannelTopic(CHANNEL));
+        reload();
+    }
+
+    /**
+     * Отозван ли токен. Разобранные claims — из JwtService.parseClaims
+     */
+    public boolean isRevoked(Claims claims, Long userId) {
+        Long watermark = userId != null ? issuedBefore.get(userId) : null;
+        if (watermark != null && claims.getIssuedAt() != null
+                && claims.getIssuedAt().toInstant().getEpochSecond() <= watermark) {
+            return true;
+        }
+
+        String jti = claims.getId();
+        if (jti == null || !revokedTokens.mightContain(jti)) {
+            return false;
+        }
+        try {
+            return Boolean.TRUE.equals(redisTemplate.hasKey(JTI_KEY_PREFIX + jti));
+        } catch (Exception e) {
+            // Фильтр сработал, а подтвердить нельзя — скорее всего токен действительно отозван
+            log.warn("Cannot confirm token revocation in Redis, rejecting token: {}", e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * Отозвать один access-токен (выход из системы)
+     */
+    public void revoke(String token) {
+        Claims claims = jwtService.parseClaims(token);
+        if (claims.getId() == null) {
+            // Токен старого формата: отдельно отозвать нельзя, истечёт сам
+            return;
+        }
+        Duration ttl = Duration.between(Instant.now(), claims.getExpiration().toInstant());
+        if (ttl.isNegative() || ttl.isZero()) {
+            return;
+        }
+
+        redisTemplate.opsForValue().set(JTI_KEY_PREFIX + claims.getId(), "1", ttl);
+        rememberToken(claims.getId());
+        redisTemplate.convertAndSend(CHANNEL, "jti:" + claims.getId());
+        log.debug("Access token {} revoked", claims.getId());
+    }
+
+    /**
+     * Отозвать все access-токены пользователя, выданные до текущего момента
+     */
+    public void revokeAll(Long userId) {
+        long watermark = Instant.now().getEpochSecond();
+        redisTemplate.opsForValue().set(USER_KEY_PREFIX + userId, Long.toString(watermark),
+                Duration.ofSeconds(jwtService.getJwtExpiration()));
+        rememberWatermark(userId, watermark);
+        redisTemplate.convertAndSend(CHANNEL, "user:" + userId + ":" + watermark);
+        log.info("All access tokens of user {} revoked", userId);
+    }
+
+    private void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split(":");
+        try {
+            if (parts.length == 2 && parts[0].equals("jti")) {
+                rememberToken(parts[1]);
+            } else if (parts.length == 3 && parts[0].equals("user")) {
+                rememberWatermark(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+            } else {
+                log.warn("Unknown revocation message: {}", body);
+            }
+        } catch (NumberFormatException e) {
+            log.warn("Malformed revocation message: {}", body);
+        }
+    }
+
+    private void rememberToken(String jti) {
+        revokedTokens.put(jti);
+        BloomFilter next = rebuilding;
+        if (next != null) {
+            next.put(jti);
+        }
+    }
+
+    private void rememberWatermark(Long userId, long watermark) {
+        issuedBefore.merge(userId, watermark, Math::max);
+    }
+
+    /**
+     * Пересобрать фильтр и watermark'и из Redis: истёкшие отзывы уходят,
+     * пропущенные сообщения канала (переподключение) подтягиваются
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.rebuild-interval-ms:600000}",
+            initialDelayString = "${jwt.revocation.rebuild-interval-ms:600000}")
+    void reload() {
+        BloomFilter next = new BloomFilter(expectedTokens, falsePositiveRate);
+        rebuilding = next;
+        try {
+            int tokens = 0;
+            try (Cursor<String> keys = scan(JTI_KEY_PREFIX)) {
+                while (keys.hasNext()) {
+                    next.put(keys.next().substring(JTI_KEY_PREFIX.length()));
+                    tokens++;
+                }
+            }
+
+            List<String> userKeys = new ArrayList<>();
+            try (Cursor<String> keys = scan(USER_KEY_PREFIX)) {
+                keys.forEachRemaining(userKeys::add);
+            }
+            Map<Long, Long> watermarks = new ConcurrentHashMap<>();
+            if (!userKeys.isEmpty()) {
+                List<String> values = redisTemplate.opsForValue().multiGet(userKeys);
+                for (int i = 0; i < userKeys.size(); i++) {
+                    String value = values != null ? values.get(i) : null;
+                    if (value != null) {
+                        watermarks.put(Long.parseLong(userKeys.get(i).substring(USER_KEY_PREFIX.length())),
+                                Long.parseLong(value));
+                    }
+                }
+            }
+            Map<Long, Long> previous = issuedBefore;
+            revokedTokens = next;
+            issuedBefore = watermarks;
+            // Отзывы, пришедшие по каналу во время сборки, не теряются; watermark
+            // старше срока жизни токена уже ничего не отсекает
+            long cutoff = Instant.now().getEpochSecond() - jwtService.getJwtExpiration();
+            previous.forEach((userId, watermark) -> {
+                if (watermark >= cutoff) {
+                    rememberWatermark(userId, watermark);
+                }
+            });
+            if (tokens > expectedTokens) {
+                log.warn("Revoked tokens ({}) exceed jwt.revocation.expected-tokens ({}), "
+                        + "false positive rate is higher than configured", tokens, expectedTokens);
+            }
+            log.debug("Token revocation state reloaded: tokens={}, users={}", tokens, watermarks.size());
+        } catch (Exception e) {
+            log.warn("Failed to reload token revocation state from Redis: {}", e.getMessage());
+        } finally {
+            rebuilding = null;
+        }
+    }
+
+    private Cursor<String> scan(String prefix) {
+        return redisTemplate.scan(ScanOptions.scanOptions().match(prefix + "*").count(1000).build());
+    }
+}
@@ -0,0 +1,110 @@
+package com.bm.wschat.shared.service;
+
+import com.bm.wschat.shared.config.WebSocketProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Серверное состояние индикаторов печати.
+ * 
+ * Клиент шлёт кадр typing почти на каждое нажатие клавиши. Вместо ретрансляции
+ * каждого кадра храним состояние по паре (чат, пользователь) и рассылаем:
+ * - переход "не печатает" → "печатает"
+ * - keep-alive "печатает" не чаще раза в keepAliveSeconds
+ * - переход "печатает" → "не печатает" (явный или по таймауту expireSeconds)
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TypingIndicatorService {
+
+    private final WebSocketProperties properties;
+
+    private final Map<TypingKey, TypingState> states = new ConcurrentHashMap<>();
+
+    /**
+     * Обработать кадр индикатора печати от клиента.
+     *
+     * @param conversation идентификатор чата: "ticket:15" или "dm:7" (личный чат с получателем 7;
+     *                     вместе с userId отправителя однозначно задаёт пару собеседников)
+     * @param userId       кто печатает
+     * @param typing       значение из кадра клиента
+     * @param broadcaster  рассылка состояния подписчикам (true — печатает)
+     */
+    public void onTypingFrame(String conversation, Long userId, boolean typing, Consumer<Boolean> broadcaster) {
+        TypingKey key = new TypingKey(conversation, userId);
+        long now = System.nanoTime();
+
+        if (!typing) {
+            TypingState removed = states.remove(key);
+            if (removed != null) {
+                broadcaster.accept(false);
+            }
+            return;
+        }
+
+        long keepAliveNanos = TimeUnit.SECONDS.toNanos(properties.getTyping().getKeepAliveSeconds());
+        boolean[] shouldBroadcast = { false };
+
+        states.compute(key, (k, state) -> {
+            if (state == null) {
+                shouldBroadcast[0] = true;
+                return new TypingState(broadcaster, now, now);
+            }
+            state.lastFrameNanos = now;
+            state.broadcaster = broadcaster;
+            if (now - state.lastBroadcastNanos >= keepAliveNanos) {
+                state.lastBroadcastNanos = now;
+                shouldBroadcast[0] = true;
+            }
+            return state;
+        });
+
+        if (shouldBroadcast[0]) {
+            broadcaster.accept(true);
+        }
+    }
+
+    /**
+     * Автоматически завершаем "печатает" для клиентов, которые перестали слать кадры
+     * (закрыли вкладку, потеряли соединение, не прислали typing=false)
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void expireStale() {
+        long expireNanos = TimeUnit.SECONDS.toNanos(properties.getTyping().getExpireSeconds());
+        long now = System.nanoTime();
+
+        states.forEach((key, state) -> {
+            if (now - state.lastFrameNanos >= expireNanos && states.remove(key, state)) {
+                try {
+                    state.broadcaster.accept(false);
+                } catch (Exception e) {
+                    log.warn("Failed to broadcast typing expiry: conversation={}, userId={}, error={}",
+                            key.conversation(), key.userId(), e.getMessage());
+                }
+            }
+        });
+    }
+
+    private record TypingKey(String conversation, Long userId) {
+    }
+
+    private static final class TypingState {
+        private volatile Consumer<Boolean> broadcaster;
+        private volatile long lastBroadcastNanos;
+        private volatile long lastFrameNanos;
+
+        private TypingState(Consumer<Boolean> broadcaster, long lastBroadcastNanos, long lastFrameNanos) {
+            this.broadcaster = broadcaster;
+            this.lastBroadcastNanos = lastBroadcastNanos;
+            this.lastFrameNanos = lastFrameNanos;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.bm.wschat.shared.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Рассылка одного payload в несколько STOMP destination.
+ * 
+ * convertAndSend сериализует payload заново на каждый вызов. Здесь payload
+ * конвертируется в кадр один раз, а в каждый destination уходит тот же
+ * массив байт — меняется только заголовок destination.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WebSocketFanoutService {
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    /**
+     * Отправить payload во все destinations, сериализовав его один раз
+     */
+    public void send(Collection<String> destinations, Object payload) {
+        if (destinations.isEmpty()) {
+            return;
+        }
+        if (destinations.size() == 1) {
+            messagingTemplate.convertAndSend(destinations.iterator().next(), payload);
+            return;
+        }
+
+        Message<?> encoded = encode(payload);
+        for (String destination : destinations) {
+            messagingTemplate.send(destination, encoded);
+        }
+        log.debug("Fan-out {} to {} destinations", payload.getClass().getSimpleName(), destinations.size());
+    }
+
+    /**
+     * Отправить payload во все destinations с собственными STOMP-заголовками
+     * для каждого (например, seq получателя). Тело кадра общее.
+     */
+    public void send(Map<String, Map<String, String>> nativeHeadersByDestination, Object payload) {
+        if (nativeHeadersByDestination.isEmpty()) {
+            return;
+        }
+
+        Message<?> encoded = encode(payload);
+        nativeHeadersByDestination.forEach((destination, nativeHeaders) -> {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.copyHeadersIfAbsent(encoded.getHeaders());
+            nativeHeaders.forEach(accessor::setNativeHeader);
+            messagingTemplate.send(destination,
+                    MessageBuilder.createMessage(encoded.getPayload(), accessor.getMessageHeaders()));
+        });
+    }
+
+    private Message<?> encode(Object payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        Message<?> message = messagingTemplate.getMessageConverter()
+                .toMessage(payload, accessor.getMessageHeaders());
+        if (message == null) {
+            throw new MessageConversionException("Unable to convert payload of type "
+                    + payload.getClass().getName() + " for fan-out");
+        }
+        return message;
+    }
+}
@@ -0,0 +1,33 @@
+-- V18: Transactional outbox для событий тикетов
+-- События пишутся в той же транзакции, что и изменение тикета,
+-- а релей публикует их в RabbitMQ с publisher confirms.
+
+-- Шаг 50 совпадает с allocationSize сущности, чтобы вставки шли батчами
+CREATE SEQUENCE IF NOT EXISTS ticket_event_outbox_id_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE ticket_event_outbox
+(
+    id          BIGINT PRIMARY KEY DEFAULT nextval('ticket_event_outbox_id_seq'),
+
+    event_type  VARCHAR(40)              NOT NULL,
+    ticket_id   BIGINT,
+    user_id     BIGINT,
+    routing_key VARCHAR(100)             NOT NULL,
+
+    -- Сериализованный TicketEvent (JSON)
+    payload     TEXT                     NOT NULL,
+
+    created_at  TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    sent_at     TIMESTAMP WITH TIME ZONE,
+    attempts    INTEGER                  NOT NULL DEFAULT 0
+);
+
+-- Релей выбирает только неотправленные события в порядке id
+CREATE INDEX idx_outbox_unsent ON ticket_event_outbox (id) WHERE sent_at IS NULL;
+
+-- Для очистки отправленных событий
+CREATE INDEX idx_outbox_sent_at ON ticket_event_outbox (sent_at) WHERE sent_at IS NOT NULL;
+
+COMMENT ON TABLE ticket_event_outbox IS 'Outbox событий тикетов для гарантированной публикации в RabbitMQ';
+COMMENT ON COLUMN ticket_event_outbox.sent_at IS 'Время подтверждения публикации брокером (NULL — ещё не отправлено)';
+COMMENT ON COLUMN ticket_event_outbox.attempts IS 'Количество неудачных попыток публикации';
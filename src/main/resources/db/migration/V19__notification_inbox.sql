@@ -0,0 +1,54 @@
+-- V19: Персистентный inbox уведомлений
+-- У каждого пользователя своя монотонная последовательность seq.
+-- Непрочитанные = last_seq - read_seq (без COUNT по inbox).
+
+CREATE TABLE notification_inbox_state
+(
+    user_id  BIGINT PRIMARY KEY,
+
+    -- Последний выданный seq
+    last_seq BIGINT NOT NULL DEFAULT 0,
+
+    -- Водяной знак прочтения: всё с seq <= read_seq прочитано
+    read_seq BIGINT NOT NULL DEFAULT 0,
+
+    CONSTRAINT fk_notification_inbox_state_user
+        FOREIGN KEY (user_id)
+            REFERENCES users (id)
+            ON DELETE CASCADE
+);
+
+-- Шаг 50 совпадает с allocationSize сущности, чтобы вставки шли батчами
+CREATE SEQUENCE IF NOT EXISTS notification_inbox_id_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE notification_inbox
+(
+    id           BIGINT PRIMARY KEY DEFAULT nextval('notification_inbox_id_seq'),
+
+    user_id      BIGINT                   NOT NULL,
+    seq          BIGINT                   NOT NULL,
+
+    type         VARCHAR(30)              NOT NULL,
+    ticket_id    BIGINT,
+    ticket_title VARCHAR(255),
+    title        VARCHAR(255),
+    body         TEXT,
+    sender_id    BIGINT,
+    sender_name  VARCHAR(255),
+
+    created_at   TIMESTAMP WITH TIME ZONE NOT NULL,
+
+    CONSTRAINT fk_notification_inbox_user
+        FOREIGN KEY (user_id)
+            REFERENCES users (id)
+            ON DELETE CASCADE
+);
+
+-- Выборка "с seq" — range scan по индексу
+CREATE UNIQUE INDEX uq_notification_inbox_user_seq ON notification_inbox (user_id, seq);
+
+-- Для очистки старых уведомлений
+CREATE INDEX idx_notification_inbox_created_at ON notification_inbox (created_at);
+
+COMMENT ON TABLE notification_inbox IS 'Уведомления пользователей с per-user последовательностью seq';
+COMMENT ON COLUMN notification_inbox_state.read_seq IS 'Водяной знак прочтения (seq <= read_seq прочитаны)';
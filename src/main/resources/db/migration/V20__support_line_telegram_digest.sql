@@ -0,0 +1,9 @@
+ALTER TABLE support_lines
+    ADD COLUMN telegram_digest_seconds INTEGER;
+
+COMMENT ON COLUMN support_lines.telegram_digest_seconds IS 'Окно сводки Telegram (сек): события линии копятся и отправляются одним сообщением. NULL/0 — по одному сообщению на событие';
+
+ALTER TABLE support_lines_aud
+    ADD COLUMN telegram_digest_seconds INTEGER;
+
+COMMENT ON COLUMN support_lines_aud.telegram_digest_seconds IS 'Окно сводки Telegram (сек): события линии копятся и отправляются одним сообщением. NULL/0 — по одному сообщению на событие';
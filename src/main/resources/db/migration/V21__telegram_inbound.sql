@@ -0,0 +1,7 @@
+-- Ответ в Telegram на карточку заявки ищется по message_id карточки
+CREATE INDEX IF NOT EXISTS idx_ticket_telegram_last_bot_message
+    ON tickets (telegram_last_bot_message_id)
+    WHERE telegram_last_bot_message_id IS NOT NULL;
+
+-- Пакетная вставка сообщений (ответы из Telegram): id выделяются пулом по 50
+ALTER SEQUENCE messages_id_seq INCREMENT BY 50;
@@ -0,0 +1,2 @@
+-- Пакетная запись журнала активности (UserActivityLogWriter): id выделяются пулом по 50
+ALTER SEQUENCE user_activity_log_id_seq INCREMENT BY 50;
@@ -0,0 +1,31 @@
+-- V23: порядок, аренда и повторы публикации outbox
+
+-- id выделяются инстансам пулами по 50 и не монотонны между узлами.
+-- sequence_no выдаёт сама БД по одному при вставке: изменения одного тикета
+-- сериализованы блокировкой его строки, поэтому порядок событий тикета совпадает с порядком коммитов
+CREATE SEQUENCE IF NOT EXISTS ticket_event_outbox_sequence_no_seq;
+
+ALTER TABLE ticket_event_outbox
+    ADD COLUMN sequence_no     BIGINT,
+    ADD COLUMN lease_until     TIMESTAMP WITH TIME ZONE,
+    ADD COLUMN next_attempt_at TIMESTAMP WITH TIME ZONE,
+    ADD COLUMN parked_at       TIMESTAMP WITH TIME ZONE;
+
+UPDATE ticket_event_outbox SET sequence_no = id;
+SELECT setval('ticket_event_outbox_sequence_no_seq', COALESCE((SELECT MAX(id) FROM ticket_event_outbox), 0) + 1, false);
+
+ALTER TABLE ticket_event_outbox
+    ALTER COLUMN sequence_no SET DEFAULT nextval('ticket_event_outbox_sequence_no_seq'),
+    ALTER COLUMN sequence_no SET NOT NULL;
+ALTER SEQUENCE ticket_event_outbox_sequence_no_seq OWNED BY ticket_event_outbox.sequence_no;
+
+-- Релей выбирает ожидающие события в порядке sequence_no и проверяет, нет ли у тикета более ранних
+DROP INDEX IF EXISTS idx_outbox_unsent;
+CREATE INDEX idx_outbox_unsent ON ticket_event_outbox (sequence_no) WHERE sent_at IS NULL AND parked_at IS NULL;
+CREATE INDEX idx_outbox_unsent_ticket ON ticket_event_outbox (ticket_id, sequence_no)
+    WHERE sent_at IS NULL AND parked_at IS NULL;
+
+COMMENT ON COLUMN ticket_event_outbox.sequence_no IS 'Порядок публикации (выдаётся БД при вставке)';
+COMMENT ON COLUMN ticket_event_outbox.lease_until IS 'Событие публикуется релеем до этого времени';
+COMMENT ON COLUMN ticket_event_outbox.next_attempt_at IS 'Не публиковать повторно раньше этого времени';
+COMMENT ON COLUMN ticket_event_outbox.parked_at IS 'Публикация прекращена после messaging.outbox.max-attempts попыток';
@@ -0,0 +1,12 @@
+-- V24: отметка о нарушении SLA — событие SLA_BREACH публикуется по тикету один раз
+
+ALTER TABLE tickets ADD COLUMN IF NOT EXISTS sla_breached_at TIMESTAMP WITH TIME ZONE;
+
+-- Тикеты, просроченные до выкатки, не должны разом прислать уведомления
+UPDATE tickets SET sla_breached_at = now() WHERE sla_deadline < now();
+
+CREATE INDEX IF NOT EXISTS idx_ticket_sla_pending
+    ON tickets (sla_deadline)
+    WHERE sla_breached_at IS NULL AND sla_deadline IS NOT NULL AND deleted_at IS NULL;
+
+COMMENT ON COLUMN tickets.sla_breached_at IS 'Когда опубликовано нарушение SLA (SLA_BREACH)';
@@ -0,0 +1,62 @@
+package com.bm.wschat.feature.ticket.service;
+
+import com.bm.wschat.feature.ticket.dto.ticket.response.TicketResponse;
+import com.bm.wschat.feature.ticket.mapper.TicketMapper;
+import com.bm.wschat.feature.ticket.model.Ticket;
+import com.bm.wschat.feature.ticket.repository.TicketRepository;
+import com.bm.wschat.shared.config.SlaProperties;
+import com.bm.wschat.shared.messaging.TicketEventPublisher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TicketSlaMonitorTest {
+
+    private final TicketRepository ticketRepository = mock(TicketRepository.class);
+    private final TicketMapper ticketMapper = mock(TicketMapper.class);
+    private final TicketEventPublisher eventPublisher = mock(TicketEventPublisher.class);
+    private final TicketSlaMonitor monitor = new TicketSlaMonitor(ticketRepository, ticketMapper, eventPublisher,
+            new SlaProperties(), mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+
+    @Test
+    void publishesBreachOnlyForTicketsThisInstanceMarked() {
+        Ticket ticket = Ticket.builder().id(1L).build();
+        TicketResponse response = mock(TicketResponse.class);
+        when(ticketRepository.findSlaBreachCandidates(any(), any(), any())).thenReturn(List.of(1L, 2L));
+        when(ticketRepository.markSlaBreached(eq(1L), any())).thenReturn(1);
+        when(ticketRepository.markSlaBreached(eq(2L), any())).thenReturn(0);
+        when(ticketRepository.findById(1L)).thenReturn(Optional.of(ticket));
+        when(ticketMapper.toResponse(ticket)).thenReturn(response);
+
+        monitor.checkDeadlines();
+
+        verify(eventPublisher).publishSlaBreach(1L, response);
+        verify(eventPublisher, never()).publishSlaBreach(eq(2L), any());
+        verify(ticketRepository, never()).findById(2L);
+    }
+
+    @Test
+    void failureOfOneTicketDoesNotStopTheRest() {
+        Ticket ticket = Ticket.builder().id(2L).build();
+        when(ticketRepository.findSlaBreachCandidates(any(), any(), any())).thenReturn(List.of(1L, 2L));
+        when(ticketRepository.markSlaBreached(eq(1L), any())).thenThrow(new IllegalStateException("db"));
+        when(ticketRepository.markSlaBreached(eq(2L), any())).thenReturn(1);
+        when(ticketRepository.findById(2L)).thenReturn(Optional.of(ticket));
+
+        monitor.checkDeadlines();
+
+        verify(eventPublisher).publishSlaBreach(eq(2L), any());
+        verify(eventPublisher, never()).publishSlaBreach(eq(1L), any());
+        verify(ticketRepository, never()).findById(1L);
+    }
+}
@@ -0,0 +1,66 @@
+package com.bm.wschat.feature.user.service;
+
+import com.bm.wschat.feature.user.model.User;
+import com.bm.wschat.feature.user.repository.UserRepository;
+import com.bm.wschat.shared.security.jwt.TokenRevocationService;
+import com.bm.wschat.shared.validation.PasswordValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Отзыв токенов при деактивации и удалении — только после коммита
+ */
+class UserManagementServiceTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final TokenRevocationService tokenRevocationService = mock(TokenRevocationService.class);
+    private final UserManagementService service = new UserManagementService(userRepository,
+            mock(PasswordEncoder.class), mock(PasswordValidator.class), tokenRevocationService);
+
+    @BeforeEach
+    void setUp() {
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void tokensAreRevokedOnlyAfterDeactivationCommits() {
+        User user = new User();
+        user.setId(7L);
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+        when(userRepository.save(any(User.class))).thenReturn(user);
+
+        service.setActive(7L, false);
+        verify(tokenRevocationService, never()).revokeAll(7L);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(tokenRevocationService).revokeAll(7L);
+    }
+
+    @Test
+    void rolledBackDeletionKeepsTokens() {
+        when(userRepository.existsById(7L)).thenReturn(true);
+
+        service.deleteUser(7L);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        verify(tokenRevocationService, never()).revokeAll(7L);
+    }
+}
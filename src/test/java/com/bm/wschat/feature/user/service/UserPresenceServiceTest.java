@@ -0,0 +1,110 @@
+package com.bm.wschat.feature.user.service;
+
+import com.bm.wschat.feature.user.model.UserActivityStatus;
+import com.bm.wschat.feature.user.repository.UserActivityStatusRepository;
+import com.bm.wschat.feature.user.repository.UserRepository;
+import com.bm.wschat.shared.config.PresenceProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * UserPresenceService на хешах Redis в памяти
+ */
+class UserPresenceServiceTest {
+
+    private final Map<String, Map<String, String>> hashes = new HashMap<>();
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final HashOperations<String, String, String> hashOperations = mock(HashOperations.class);
+    @SuppressWarnings("unchecked")
+    private final ZSetOperations<String, String> zSetOperations = mock(ZSetOperations.class);
+    private UserPresenceService presenceService;
+
+    @BeforeEach
+    void setUp() {
+        when(redisTemplate.<String, String>opsForHash()).thenReturn(hashOperations);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(hashOperations.get(anyString(), anyString())).thenAnswer(invocation ->
+                hashes.getOrDefault(invocation.<String>getArgument(0), Map.of()).get(invocation.<String>getArgument(1)));
+        doAnswer(invocation -> hashes.computeIfAbsent(invocation.getArgument(0), key -> new HashMap<>())
+                .put(invocation.getArgument(1), invocation.getArgument(2)))
+                .when(hashOperations).put(anyString(), anyString(), anyString());
+        doAnswer(invocation -> {
+            Map<String, String> hash = hashes.get(invocation.<String>getArgument(0));
+            if (hash != null) {
+                hash.remove(invocation.<String>getArgument(1));
+            }
+            return 1L;
+        }).when(hashOperations).delete(anyString(), any());
+        when(hashOperations.values(anyString())).thenAnswer(invocation ->
+                List.copyOf(hashes.getOrDefault(invocation.<String>getArgument(0), Map.of()).values()));
+        // Живых инстансов, кроме текущего, нет
+        when(zSetOperations.rangeByScore(anyString(), anyDouble(), anyDouble())).thenReturn(Set.of());
+
+        presenceService = new UserPresenceService(redisTemplate, mock(UserActivityStatusRepository.class),
+                mock(UserRepository.class), mock(PlatformTransactionManager.class), new PresenceProperties());
+    }
+
+    @Test
+    void connectionsOfACrashedInstanceAreNotCounted() {
+        hashes.put("presence:connections:crashed", new HashMap<>(Map.of("a", "7", "b", "7")));
+
+        assertThat(presenceService.connected(7L, "s1")).isEqualTo(1);
+        assertThat(presenceService.disconnected(7L, "s1")).isZero();
+        assertThat(presenceService.connections(7L)).isZero();
+    }
+
+    @Test
+    void repeatedDisconnectOfTheSameSessionIsIgnored() {
+        presenceService.connected(7L, "s1");
+        presenceService.connected(7L, "s2");
+
+        assertThat(presenceService.disconnected(7L, "s1")).isEqualTo(1);
+        assertThat(presenceService.disconnected(7L, "s1")).isEqualTo(1);
+        assertThat(presenceService.connections(7L)).isEqualTo(1);
+    }
+
+    @Test
+    void sessionsOnAnotherLiveInstanceKeepUserOnline() {
+        hashes.put("presence:connections:other", new HashMap<>(Map.of("a", "7", "b", "8")));
+        when(zSetOperations.rangeByScore(anyString(), anyDouble(), anyDouble()))
+                .thenReturn(Set.of("presence:connections:other"));
+
+        presenceService.connected(7L, "s1");
+
+        assertThat(presenceService.disconnected(7L, "s1")).isEqualTo(1);
+    }
+
+    @Test
+    void statusBeforeAutomaticOfflineIsReturnedOnce() {
+        presenceService.setOffline(7L, UserActivityStatus.BUSY);
+
+        assertThat(presenceService.takeStatusBeforeOffline(7L)).isEqualTo(UserActivityStatus.BUSY);
+        assertThat(presenceService.takeStatusBeforeOffline(7L)).isNull();
+    }
+
+    @Test
+    void manualStatusForgetsStatusBeforeOffline() {
+        presenceService.setOffline(7L, UserActivityStatus.BUSY);
+        presenceService.set(7L, UserActivityStatus.OFFLINE);
+
+        assertThat(presenceService.takeStatusBeforeOffline(7L)).isNull();
+    }
+}
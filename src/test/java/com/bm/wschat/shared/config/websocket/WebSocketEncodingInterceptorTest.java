@@ -0,0 +1,71 @@
+package com.bm.wschat.shared.config.websocket;
+
+import com.bm.wschat.shared.config.WebSocketProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WebSocketEncodingInterceptorTest {
+
+    private static final byte[] JSON = "{\"id\":15,\"status\":\"OPEN\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+    private final WebSocketEncodingInterceptor interceptor = new WebSocketEncodingInterceptor(
+            new WebSocketProperties(), objectMapper, new SimpleMeterRegistry());
+
+    @Test
+    void rawSessionGetsBinaryCborFrames() {
+        connect("raw", true);
+
+        Message<?> sent = interceptor.preSend(message("raw"), null);
+
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(sent);
+        // Только octet-stream StompSubProtocolHandler отправляет бинарным кадром
+        assertThat(accessor.getContentType()).isEqualTo(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        assertThat(accessor.getFirstNativeHeader(WebSocketEncodingInterceptor.ENCODING_HEADER)).isEqualTo("cbor");
+        assertThat(interceptor.getCborMapper().readTree((byte[]) sent.getPayload()))
+                .isEqualTo(objectMapper.readTree(JSON));
+    }
+
+    @Test
+    void sockJsSessionKeepsJsonEvenWhenCborRequested() {
+        connect("sockjs", false);
+
+        Message<?> sent = interceptor.preSend(message("sockjs"), null);
+
+        assertThat(sent.getPayload()).isSameAs(JSON);
+        assertThat(StompHeaderAccessor.wrap(sent).getContentType()).isEqualTo(MimeTypeUtils.APPLICATION_JSON);
+    }
+
+    private void connect(String sessionId, boolean raw) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId(sessionId);
+        accessor.setNativeHeader(WebSocketEncodingInterceptor.ENCODING_HEADER, "cbor");
+        Map<String, Object> attributes = new HashMap<>();
+        if (raw) {
+            attributes.put(WebSocketEncodingInterceptor.RAW_SESSION_ATTRIBUTE, Boolean.TRUE);
+        }
+        accessor.setSessionAttributes(attributes);
+        interceptor.inbound().preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), null);
+    }
+
+    private static Message<byte[]> message(String sessionId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setDestination("/topic/ticket.15");
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        return MessageBuilder.createMessage(JSON, accessor.getMessageHeaders());
+    }
+}
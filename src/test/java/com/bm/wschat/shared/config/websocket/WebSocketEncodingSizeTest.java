@@ -0,0 +1,32 @@
+package com.bm.wschat.shared.config.websocket;
+
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Размер типичной смеси событий в JSON и CBOR. Замер CPU — в
+ * WebSocketEncodingBenchmark (gradle benchmark)
+ */
+class WebSocketEncodingSizeTest {
+
+    private final ObjectMapper jsonMapper = JsonMapper.builder().build();
+    private final CBORMapper cborMapper = CBORMapper.builder().build();
+
+    @Test
+    void cborIsSmallerThanJsonForTypicalEventMix() {
+        List<byte[]> json = WebSocketEventMix.events().stream().map(jsonMapper::writeValueAsBytes).toList();
+        List<byte[]> cbor = json.stream().map(bytes -> cborMapper.writeValueAsBytes(jsonMapper.readTree(bytes))).toList();
+
+        assertThat(total(cbor)).isLessThan(total(json));
+    }
+
+    private static long total(List<byte[]> frames) {
+        return frames.stream().mapToLong(frame -> frame.length).sum();
+    }
+}
@@ -0,0 +1,57 @@
+package com.bm.wschat.shared.config.websocket;
+
+import com.bm.wschat.feature.attachment.dto.response.AttachmentResponse;
+import com.bm.wschat.feature.attachment.model.AttachmentType;
+import com.bm.wschat.feature.message.dto.response.MessageResponse;
+import com.bm.wschat.feature.ticket.dto.ticket.response.TicketResponse;
+import com.bm.wschat.feature.ticket.model.TicketPriority;
+import com.bm.wschat.feature.ticket.model.TicketStatus;
+import com.bm.wschat.feature.user.model.SenderType;
+import com.bm.wschat.shared.dto.UserShortResponse;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Типичная смесь WebSocket-событий для сравнения JSON и CBOR
+ */
+final class WebSocketEventMix {
+
+    private WebSocketEventMix() {
+    }
+
+    /**
+     * Поток чата: сообщения (часть с вложениями), обновления тикета, патчи и индикаторы печати
+     */
+    static List<Object> events() {
+        Instant now = Instant.parse("2026-01-15T10:15:30Z");
+        UserShortResponse user = new UserShortResponse(7L, "ivanov", "Иванов Иван Иванович", "/api/v1/users/7/avatar");
+        UserShortResponse specialist = new UserShortResponse(3L, "petrov", "Петров Пётр Петрович", null);
+
+        List<Object> mix = new ArrayList<>();
+        for (long i = 0; i < 20; i++) {
+            List<AttachmentResponse> attachments = i % 4 == 0
+                    ? List.of(new AttachmentResponse(100 + i, "screenshot-" + i + ".png",
+                    "/api/v1/attachments/" + (100 + i), 245_000L, "image/png", AttachmentType.SCREENSHOT,
+                    15L, 500 + i, 7L, "ivanov", now))
+                    : List.of();
+            mix.add(new MessageResponse(500 + i, 15L, "Сообщение номер " + i + " по заявке: не проводится документ",
+                    i % 2 == 0 ? user : specialist, i % 2 == 0 ? SenderType.USER : SenderType.SYSADMIN,
+                    false, true, false, false, attachments, now, now));
+        }
+        for (long v = 1; v <= 5; v++) {
+            mix.add(new TicketResponse(15L, "Не проводится документ реализации",
+                    "При проведении документа появляется ошибка блокировки таблицы", null,
+                    TicketStatus.OPEN, TicketPriority.HIGH, user, specialist, null, null, null,
+                    3600L, 20, 5, now, null, null, now, now, null, v));
+            mix.add(Map.of("ticketId", 15L, "type", "STATUS_CHANGED", "version", v, "baseVersion", v - 1,
+                    "full", false, "changes", Map.of("status", "OPEN")));
+        }
+        for (int i = 0; i < 10; i++) {
+            mix.add(Map.of("ticketId", 15L, "userId", 7L, "username", "ivanov", "typing", true));
+        }
+        return mix;
+    }
+}
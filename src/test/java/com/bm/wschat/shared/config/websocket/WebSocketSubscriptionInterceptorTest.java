@@ -0,0 +1,91 @@
+package com.bm.wschat.shared.config.websocket;
+
+import com.bm.wschat.feature.ticket.model.Ticket;
+import com.bm.wschat.feature.ticket.repository.TicketRepository;
+import com.bm.wschat.feature.ticket.service.TicketAccessChecker;
+import com.bm.wschat.feature.user.model.User;
+import com.bm.wschat.shared.config.WebSocketProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WebSocketSubscriptionInterceptorTest {
+
+    private final TicketRepository ticketRepository = mock(TicketRepository.class);
+    private final TicketAccessChecker accessChecker = mock(TicketAccessChecker.class);
+    private final WebSocketSubscriptionInterceptor interceptor = new WebSocketSubscriptionInterceptor(
+            ticketRepository, accessChecker, mock(PlatformTransactionManager.class),
+            new WebSocketProperties(), new SimpleMeterRegistry());
+    private final User user = User.builder().id(7L).username("user").build();
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/topic/ticket.*",
+            "/topic/ticket.5.*",
+            "/topic/ticket.#",
+            "/topic/user.7.{x}",
+            "/topic/ticket.5?",
+            "/topic/simp-user-registry",
+            "/topic/unresolved-user-destination",
+            "/topic/ticket.5.unknown",
+            "/topic/user.7",
+            "/topic/anything",
+            "/queue/private-user-abc",
+            "/topic/ticket/5/messages",
+            "/exchange/amq.topic/ticket.5"})
+    void destinationsOutsideTheAllowListAreRejected(String destination) {
+        allowAllTickets();
+
+        assertThat(interceptor.preSend(subscribe(destination), null)).isNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/topic/ticket.5",
+            "/topic/ticket.5.messages",
+            "/topic/ticket.5.patch",
+            "/topic/user.7.notifications",
+            "/topic/user.7.assignments.rejected",
+            "/user/queue/ticket-replay"})
+    void allowListedDestinationsAreAccepted(String destination) {
+        allowAllTickets();
+
+        assertThat(interceptor.preSend(subscribe(destination), null)).isNotNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/topic/ticket.new", "/topic/sla.breach"})
+    void broadcastTicketTopicsAreForSpecialistsOnly(String destination) {
+        assertThat(interceptor.preSend(subscribe(destination), null)).isNull();
+
+        user.setSpecialist(true);
+        assertThat(interceptor.preSend(subscribe(destination), null)).isNotNull();
+    }
+
+    private void allowAllTickets() {
+        when(ticketRepository.findById(any())).thenReturn(Optional.of(new Ticket()));
+        when(accessChecker.canAccess(any(), any())).thenReturn(true);
+    }
+
+    private Message<byte[]> subscribe(String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSessionId("session");
+        accessor.setDestination(destination);
+        accessor.setUser(new UsernamePasswordAuthenticationToken(user, null, List.of()));
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,108 @@
+package com.bm.wschat.shared.messaging;
+
+import com.bm.wschat.shared.messaging.config.MessagingProperties;
+import com.bm.wschat.shared.messaging.outbox.TicketEventOutbox;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class TicketEventBatchPublisherTest {
+
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final MessagingProperties properties = new MessagingProperties();
+    private final List<List<Long>> published = new ArrayList<>();
+
+    /** Какие события брокер подтверждает на каждой попытке */
+    private final List<Predicate<Long>> ackPerAttempt = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        properties.getPublisher().setConfirmTimeoutMs(100);
+
+        RabbitOperations operations = mock(RabbitOperations.class);
+        doAnswer(invocation -> {
+            Message message = invocation.getArgument(2);
+            CorrelationData correlation = invocation.getArgument(3);
+            Long id = Long.valueOf(message.getMessageProperties().getMessageId());
+            published.getLast().add(id);
+            boolean ack = ackPerAttempt.get(published.size() - 1).test(id);
+            correlation.getFuture().complete(new CorrelationData.Confirm(ack, ack ? null : "nack"));
+            return null;
+        }).when(operations).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+        doAnswer(invocation -> {
+            published.add(new ArrayList<>());
+            RabbitOperations.OperationsCallback<?> callback = invocation.getArgument(0);
+            return callback.doInRabbit(operations);
+        }).when(rabbitTemplate).invoke(any());
+    }
+
+    @Test
+    void laterEventsOfTicketAreNotConfirmedAfterNack() {
+        properties.getPublisher().setMaxAttempts(1);
+        ackPerAttempt.add(id -> id != 1L);
+
+        TicketEventBatchPublisher.Result result = publisher().publish(List.of(
+                row(1L, 10L), row(2L, 10L), row(3L, 20L)));
+
+        assertThat(result.confirmed()).containsExactly(3L);
+        assertThat(result.unconfirmed()).extracting(TicketEventOutbox::getId).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void retryRepublishesTicketSuffixInOrder() {
+        properties.getPublisher().setMaxAttempts(2);
+        ackPerAttempt.add(id -> id != 1L);
+        ackPerAttempt.add(id -> true);
+
+        TicketEventBatchPublisher.Result result = publisher().publish(List.of(
+                row(1L, 10L), row(2L, 10L), row(3L, 20L)));
+
+        // Событие 2 принято брокером, но ушло бы раньше повтора события 1 — публикуется снова после него
+        assertThat(published.get(1)).containsExactly(1L, 2L);
+        assertThat(result.confirmed()).containsExactly(3L, 1L, 2L);
+        assertThat(result.unconfirmed()).isEmpty();
+    }
+
+    @Test
+    void eventsWithoutTicketAreIndependent() {
+        List<Long> confirmed = new ArrayList<>();
+        List<TicketEventOutbox> remaining = TicketEventBatchPublisher.confirmedPrefix(
+                List.of(row(1L, null), row(2L, null), row(3L, 5L), row(4L, 5L)),
+                Set.of(2L, 4L), confirmed);
+
+        assertThat(confirmed).containsExactly(2L);
+        assertThat(remaining).extracting(TicketEventOutbox::getId).containsExactly(1L, 3L, 4L);
+    }
+
+    private TicketEventBatchPublisher publisher() {
+        return new TicketEventBatchPublisher(rabbitTemplate, properties, new SimpleMeterRegistry());
+    }
+
+    private static TicketEventOutbox row(Long id, Long ticketId) {
+        return TicketEventOutbox.builder()
+                .id(id)
+                .ticketId(ticketId)
+                .eventType("TICKET_UPDATED")
+                .routingKey("ticket.updated")
+                .payload("{}")
+                .createdAt(Instant.now())
+                .build();
+    }
+}
@@ -0,0 +1,77 @@
+package com.bm.wschat.shared.messaging.consumer;
+
+import com.bm.wschat.shared.messaging.config.MessagingProperties;
+import com.bm.wschat.shared.messaging.config.RabbitMQConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ListenerRetryInterceptorTest {
+
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final ListenerRetryInterceptor interceptor = new ListenerRetryInterceptor(
+            rabbitTemplate, new MessagingProperties(), new SimpleMeterRegistry());
+
+    @Test
+    void findsMessageArgumentByType() throws Throwable {
+        Message message = message(RabbitMQConfig.TICKET_QUEUE);
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.getArguments()).thenReturn(new Object[]{message, "channel", 42});
+        when(invocation.proceed()).thenThrow(new IllegalStateException("boom"));
+
+        interceptor.invoke(invocation);
+
+        verify(rabbitTemplate).send(RabbitMQConfig.RETRY_EXCHANGE_NAME,
+                RabbitMQConfig.retryQueue(RabbitMQConfig.TICKET_QUEUE, 1), message);
+        assertThat((Integer) message.getMessageProperties().getHeader(ListenerRetryInterceptor.ATTEMPT_HEADER))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void rejectedMessageGoesStraightToDeadLetters() throws Throwable {
+        Message message = message(RabbitMQConfig.TELEGRAM_OUTGOING_QUEUE);
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.getArguments()).thenReturn(new Object[]{"channel", message});
+        when(invocation.proceed()).thenThrow(new AmqpRejectAndDontRequeueException("bad chat"));
+
+        interceptor.invoke(invocation);
+
+        verify(rabbitTemplate).send(RabbitMQConfig.DLX_EXCHANGE_NAME, RabbitMQConfig.TELEGRAM_OUTGOING_QUEUE, message);
+    }
+
+    @Test
+    void redeliverContinuesAttemptCountOfAcknowledgedMessage() {
+        when(rabbitTemplate.getMessageConverter()).thenReturn(new SimpleMessageConverter());
+
+        interceptor.redeliver(RabbitMQConfig.TICKET_QUEUE, "event", 2, new IllegalStateException("boom"));
+
+        ArgumentCaptor<Message> sent = ArgumentCaptor.forClass(Message.class);
+        verify(rabbitTemplate).send(eq(RabbitMQConfig.RETRY_EXCHANGE_NAME),
+                eq(RabbitMQConfig.retryQueue(RabbitMQConfig.TICKET_QUEUE, 3)), sent.capture());
+        assertThat((Integer) sent.getValue().getMessageProperties().getHeader(ListenerRetryInterceptor.ATTEMPT_HEADER))
+                .isEqualTo(3);
+
+        interceptor.redeliver(RabbitMQConfig.TICKET_QUEUE, "event", 3, new IllegalStateException("boom"));
+
+        verify(rabbitTemplate).send(eq(RabbitMQConfig.DLX_EXCHANGE_NAME), eq(RabbitMQConfig.TICKET_QUEUE), any());
+    }
+
+    private static Message message(String queue) {
+        MessageProperties properties = new MessageProperties();
+        properties.setConsumerQueue(queue);
+        return new Message(new byte[0], properties);
+    }
+}
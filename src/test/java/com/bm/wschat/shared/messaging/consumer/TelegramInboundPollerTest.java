@@ -0,0 +1,174 @@
+package com.bm.wschat.shared.messaging.consumer;
+
+import com.bm.wschat.feature.message.dto.request.TicketMessageDraft;
+import com.bm.wschat.feature.message.dto.response.MessageResponse;
+import com.bm.wschat.feature.message.service.MessageService;
+import com.bm.wschat.feature.ticket.repository.TicketRepository;
+import com.bm.wschat.feature.user.repository.UserRepository;
+import com.bm.wschat.shared.messaging.config.TelegramProperties;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * TelegramInboundPoller против локального stub-сервера Bot API
+ */
+class TelegramInboundPollerTest {
+
+    private static final String UPDATES = """
+            {"ok":true,"result":[%s,%s]}"""
+            .formatted(update(100, "boom"), update(101, "fine"));
+    private static final String EMPTY = "{\"ok\":true,\"result\":[]}";
+
+    private final Queue<String> requests = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger updatesLeft = new AtomicInteger(1);
+    private final MessageService messageService = mock(MessageService.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, String> redisValues = mock(ValueOperations.class);
+    private final TelegramProperties properties = new TelegramProperties();
+    private HttpServer server;
+    private TelegramInboundPoller poller;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            requests.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            String body = updatesLeft.getAndDecrement() > 0 ? UPDATES : EMPTY;
+            if (body.equals(EMPTY)) {
+                sleep(20);
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        properties.setEnabled(true);
+        properties.setToken("test");
+        properties.setApiUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        properties.getInbound().setEnabled(true);
+        properties.getInbound().setPollTimeoutSeconds(1);
+        properties.getInbound().setErrorBackoffMs(10);
+
+        when(redisTemplate.opsForValue()).thenReturn(redisValues);
+        when(userRepository.findIdsByTelegramIds(anyCollection()))
+                .thenReturn(Collections.singletonList(new Object[]{7L, 70L}));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (poller != null) {
+            poller.shutdown();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    void poisonUpdateIsParkedAndDoesNotBlockTheNextOne() {
+        when(messageService.sendMessages(anyList())).thenAnswer(invocation -> {
+            List<TicketMessageDraft> drafts = invocation.getArgument(0);
+            if (drafts.stream().anyMatch(draft -> draft.content().equals("boom"))) {
+                throw new IllegalStateException("poison");
+            }
+            return Collections.<MessageResponse>nCopies(drafts.size(), null);
+        });
+
+        start();
+
+        verify(messageService, timeout(5_000)).sendMessages(List.of(new TicketMessageDraft(42L, 70L, "fine")));
+        verify(redisValues, timeout(5_000)).set("telegram:inbound:offset", "102");
+        waitFor(() -> requests.stream().anyMatch(r -> r.contains("\"offset\":102")));
+    }
+
+    @Test
+    void databaseOutageKeepsTheOffset() {
+        AtomicBoolean databaseDown = new AtomicBoolean(true);
+        when(messageService.sendMessages(anyList())).thenAnswer(invocation -> {
+            if (databaseDown.get()) {
+                throw new DataAccessResourceFailureException("connection refused");
+            }
+            List<TicketMessageDraft> drafts = invocation.getArgument(0);
+            return Collections.<MessageResponse>nCopies(drafts.size(), null);
+        });
+        updatesLeft.set(Integer.MAX_VALUE);
+
+        start();
+
+        waitFor(() -> requests.size() >= 2);
+        assertThat(requests).allMatch(r -> r.contains("\"offset\":0"));
+        verify(redisValues, never()).set("telegram:inbound:offset", "102");
+    }
+
+    @Test
+    void offsetIsRestoredFromRedis() {
+        when(redisValues.get("telegram:inbound:offset")).thenReturn("500");
+        updatesLeft.set(0);
+
+        start();
+
+        waitFor(() -> !requests.isEmpty());
+        assertThat(requests.peek()).contains("\"offset\":500");
+    }
+
+    private void start() {
+        poller = new TelegramInboundPoller(properties, messageService, mock(TicketRepository.class),
+                userRepository, redisTemplate, new SimpleMeterRegistry());
+        poller.start();
+    }
+
+    private static String update(long updateId, String text) {
+        return """
+                {"update_id":%d,"message":{"message_id":%d,"chat":{"id":-5},"from":{"id":7,"is_bot":false},\
+                "text":"%s","reply_to_message":{"message_id":9,"from":{"is_bot":true},"text":"Заявка #42"}}}"""
+                .formatted(updateId, updateId, text);
+    }
+
+    private static void waitFor(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in 5s").isLessThan(deadline);
+            sleep(10);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
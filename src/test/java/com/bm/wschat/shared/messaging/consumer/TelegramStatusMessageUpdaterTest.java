@@ -0,0 +1,69 @@
+package com.bm.wschat.shared.messaging.consumer;
+
+import com.bm.wschat.feature.ticket.model.Ticket;
+import com.bm.wschat.feature.ticket.repository.TicketRepository;
+import com.bm.wschat.shared.messaging.producer.TelegramProducer;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TelegramStatusMessageUpdaterTest {
+
+    private static final long CHAT = -100L;
+
+    private final TelegramProducer producer = mock(TelegramProducer.class);
+    private final TicketRepository ticketRepository = mock(TicketRepository.class);
+    private final TelegramStatusMessageUpdater updater = new TelegramStatusMessageUpdater(
+            producer, ticketRepository, mock(PlatformTransactionManager.class));
+
+    @Test
+    void staleTicketWithoutCardEditsTheStoredCard() {
+        // Консьюмер загрузил тикет до того, как первая карточка записана
+        Ticket stale = Ticket.builder().id(1L).build();
+        when(ticketRepository.findTelegramLastBotMessageId(1L)).thenReturn(55L);
+        when(producer.editMessageText(CHAT, 55L, "taken")).thenReturn(CompletableFuture.completedFuture(55L));
+
+        updater.publish(stale, CHAT, "taken");
+
+        verify(producer).editMessageText(CHAT, 55L, "taken");
+        verify(producer, never()).sendMessage(anyLong(), anyString());
+    }
+
+    @Test
+    void cardLostToAnotherConsumerIsDeletedAndWinnerEdited() {
+        Ticket ticket = Ticket.builder().id(1L).build();
+        when(ticketRepository.findTelegramLastBotMessageId(1L)).thenReturn(null, 55L);
+        when(producer.sendMessage(CHAT, "new")).thenReturn(CompletableFuture.completedFuture(77L));
+        when(ticketRepository.replaceTelegramLastBotMessageId(any(), isNull(), any())).thenReturn(0);
+        when(producer.deleteMessage(CHAT, 77L)).thenReturn(CompletableFuture.completedFuture(true));
+        when(producer.editMessageText(CHAT, 55L, "new")).thenReturn(CompletableFuture.completedFuture(55L));
+
+        updater.publish(ticket, CHAT, "new");
+
+        verify(producer).deleteMessage(CHAT, 77L);
+        verify(producer).editMessageText(CHAT, 55L, "new");
+    }
+
+    @Test
+    void firstCardIsStoredConditionally() {
+        Ticket ticket = Ticket.builder().id(1L).build();
+        when(ticketRepository.findTelegramLastBotMessageId(1L)).thenReturn(null);
+        when(producer.sendMessage(CHAT, "new")).thenReturn(CompletableFuture.completedFuture(77L));
+        when(ticketRepository.replaceTelegramLastBotMessageId(1L, null, 77L)).thenReturn(1);
+
+        updater.publish(ticket, CHAT, "new");
+
+        verify(ticketRepository).replaceTelegramLastBotMessageId(1L, null, 77L);
+        verify(producer, never()).deleteMessage(anyLong(), anyLong());
+    }
+}
@@ -0,0 +1,74 @@
+package com.bm.wschat.shared.messaging.consumer;
+
+import com.bm.wschat.feature.message.dto.response.MessageResponse;
+import com.bm.wschat.feature.message.mapper.MessageMapper;
+import com.bm.wschat.feature.message.model.Message;
+import com.bm.wschat.feature.message.repository.MessageRepository;
+import com.bm.wschat.feature.ticket.repository.TicketRepository;
+import com.bm.wschat.feature.ticket.service.TicketQueryService;
+import com.bm.wschat.shared.messaging.TicketEventNearCache;
+import com.bm.wschat.shared.messaging.config.MessagingProperties;
+import com.bm.wschat.shared.messaging.event.TicketEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TicketEventHydratorTest {
+
+    private static final Instant CREATED = Instant.parse("2026-01-01T10:00:00Z");
+    private static final Instant EDITED = CREATED.plusSeconds(60);
+
+    private final TicketEventNearCache nearCache = new TicketEventNearCache(new MessagingProperties());
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final MessageMapper messageMapper = mock(MessageMapper.class);
+    private final TicketEventHydrator hydrator = new TicketEventHydrator(nearCache, mock(TicketRepository.class),
+            mock(TicketQueryService.class), messageRepository, messageMapper,
+            mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+
+    @Test
+    void messageUpdatedIsReadFromDatabaseNotFromNearCache() {
+        nearCache.putMessage(message("before", CREATED));
+        Message entity = mock(Message.class);
+        when(entity.getId()).thenReturn(5L);
+        when(messageRepository.findAllById(any())).thenReturn(List.of(entity));
+        when(messageMapper.toResponse(entity)).thenReturn(message("after", EDITED));
+
+        TicketEvent event = hydrator.hydrate(TicketEvent.messageUpdated(1L, 2L, null).compact(5L, null));
+
+        assertThat(((MessageResponse) event.payload()).content()).isEqualTo("after");
+        assertThat(nearCache.getMessage(5L).content()).isEqualTo("after");
+    }
+
+    @Test
+    void messageSentIsServedFromNearCache() {
+        nearCache.putMessage(message("hello", CREATED));
+
+        TicketEvent event = hydrator.hydrate(TicketEvent.messageSent(1L, 2L, null).compact(5L, null));
+
+        assertThat(((MessageResponse) event.payload()).content()).isEqualTo("hello");
+        verify(messageRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void olderMessageDoesNotReplaceEditedOne() {
+        nearCache.putMessage(message("after", EDITED));
+        nearCache.putMessage(message("before", CREATED));
+
+        assertThat(nearCache.getMessage(5L).content()).isEqualTo("after");
+    }
+
+    private static MessageResponse message(String content, Instant updatedAt) {
+        return new MessageResponse(5L, 1L, content, null, null, false, false, false,
+                !updatedAt.equals(CREATED), List.of(), CREATED, updatedAt);
+    }
+}
@@ -0,0 +1,71 @@
+package com.bm.wschat.shared.messaging.consumer;
+
+import com.bm.wschat.shared.messaging.config.MessagingProperties;
+import com.bm.wschat.shared.messaging.event.TopicReplay;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TopicReplayBufferTest {
+
+    private static final String TOPIC = "/topic/ticket.5";
+
+    @Test
+    void concurrentSendersDeliverFramesInSeqOrder() throws Exception {
+        TopicReplayBuffer buffer = new TopicReplayBuffer(new MessagingProperties());
+        List<Long> delivered = Collections.synchronizedList(new ArrayList<>());
+
+        ExecutorService senders = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 2_000; i++) {
+            senders.execute(() -> buffer.appendAndSend(TOPIC, "frame", delivered::add));
+        }
+        senders.shutdown();
+        assertThat(senders.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(delivered).hasSize(2_000).isSorted();
+    }
+
+    @Test
+    void expiredFramesAreNotReplayed() throws Exception {
+        MessagingProperties properties = new MessagingProperties();
+        properties.getConsumer().setReplayTtlSeconds(0);
+        TopicReplayBuffer buffer = new TopicReplayBuffer(properties);
+
+        List<Long> seqs = new ArrayList<>();
+        buffer.appendAndSend(TOPIC, "first", seqs::add);
+        buffer.appendAndSend(TOPIC, "second", seqs::add);
+        Thread.sleep(5);
+        buffer.expireAll();
+
+        TopicReplay replay = buffer.since(TOPIC, buffer.getEpoch(), seqs.getFirst() - 1);
+        assertThat(replay.complete()).isFalse();
+        assertThat(replay.frames()).isEmpty();
+    }
+
+    @Test
+    void totalFrameLimitEvictsLeastRecentlyUsedTopics() {
+        MessagingProperties properties = new MessagingProperties();
+        properties.getConsumer().setReplayMaxFrames(3);
+        TopicReplayBuffer buffer = new TopicReplayBuffer(properties);
+
+        buffer.appendAndSend("/topic/ticket.1", "a", seq -> { });
+        buffer.appendAndSend("/topic/ticket.1", "b", seq -> { });
+        List<Long> seqs = new ArrayList<>();
+        buffer.appendAndSend("/topic/ticket.2", "c", seqs::add);
+        buffer.appendAndSend("/topic/ticket.2", "d", seqs::add);
+
+        TopicReplay evicted = buffer.since("/topic/ticket.1", buffer.getEpoch(), 0);
+        assertThat(evicted.complete()).isFalse();
+
+        TopicReplay kept = buffer.since("/topic/ticket.2", buffer.getEpoch(), seqs.getFirst() - 1);
+        assertThat(kept.complete()).isTrue();
+        assertThat(kept.frames()).extracting(TopicReplay.Frame::payload).containsExactly("c", "d");
+    }
+}
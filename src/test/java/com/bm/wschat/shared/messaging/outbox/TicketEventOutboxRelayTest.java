@@ -0,0 +1,95 @@
+package com.bm.wschat.shared.messaging.outbox;
+
+import com.bm.wschat.shared.messaging.TicketEventBatchPublisher;
+import com.bm.wschat.shared.messaging.config.MessagingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TicketEventOutboxRelayTest {
+
+    private final TicketEventOutboxRepository repository = mock(TicketEventOutboxRepository.class);
+    private final TicketEventBatchPublisher publisher = mock(TicketEventBatchPublisher.class);
+    private final MessagingProperties properties = new MessagingProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TicketEventOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        properties.getOutbox().setBatchSize(3);
+        properties.getOutbox().setMaxAttempts(3);
+        relay = new TicketEventOutboxRelay(repository, publisher, mock(PlatformTransactionManager.class),
+                properties, meterRegistry);
+    }
+
+    @Test
+    void marksOnlyConfirmedPrefixAndBacksOffTheRest() {
+        TicketEventOutbox first = row(1L, 10L, 0);
+        TicketEventOutbox second = row(2L, 10L, 0);
+        TicketEventOutbox other = row(3L, 20L, 0);
+        List<TicketEventOutbox> batch = List.of(first, second, other);
+        when(repository.findClaimable(any(), anyInt())).thenReturn(batch);
+        when(publisher.publish(batch)).thenReturn(
+                new TicketEventBatchPublisher.Result(List.of(3L), List.of(first, second)));
+
+        relay.relay();
+
+        verify(repository).lease(eq(List.of(1L, 2L, 3L)), any());
+        verify(repository).markSent(eq(List.of(3L)), any());
+        verify(repository).markFailed(eq(1L), eq(1), any(Instant.class), isNull());
+        verify(repository).markFailed(eq(2L), eq(1), any(Instant.class), isNull());
+        // Полная пачка с неудачами не запускает следующую сразу — повтор только после паузы
+        verify(repository, times(1)).findClaimable(any(), anyInt());
+    }
+
+    @Test
+    void parksEventAfterMaxAttempts() {
+        TicketEventOutbox poison = row(1L, 10L, 2);
+        when(repository.findClaimable(any(), anyInt())).thenReturn(List.of(poison));
+        when(publisher.publish(List.of(poison))).thenReturn(
+                new TicketEventBatchPublisher.Result(List.of(), List.of(poison)));
+
+        relay.relay();
+
+        verify(repository).markFailed(eq(1L), eq(3), isNull(), any(Instant.class));
+        verify(repository, never()).markSent(any(), any());
+        assertThat(meterRegistry.counter("servicedesk.events.outbox.parked").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void claimsUnderAdvisoryLock() {
+        when(repository.findClaimable(any(), anyInt())).thenReturn(List.of());
+
+        relay.relay();
+
+        verify(repository).lockClaims(anyLong());
+        verify(publisher, never()).publish(any());
+    }
+
+    private static TicketEventOutbox row(Long id, Long ticketId, int attempts) {
+        return TicketEventOutbox.builder()
+                .id(id)
+                .ticketId(ticketId)
+                .eventType("TICKET_UPDATED")
+                .routingKey("ticket.updated")
+                .payload("{}")
+                .attempts(attempts)
+                .build();
+    }
+}
@@ -0,0 +1,185 @@
+package com.bm.wschat.shared.messaging.producer;
+
+import com.bm.wschat.shared.messaging.config.RabbitMQConfig;
+import com.bm.wschat.shared.messaging.config.TelegramProperties;
+import com.bm.wschat.shared.messaging.event.TelegramNotification;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * TelegramProducer против локального stub-сервера Bot API
+ */
+class TelegramProducerTest {
+
+    private final Queue<String> requests = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final TelegramProperties properties = new TelegramProperties();
+    private volatile Responder responder = TelegramProducerTest::ok;
+    private HttpServer server;
+    private TelegramProducer producer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            requests.add(body);
+            responder.respond(exchange, body);
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        properties.setEnabled(true);
+        properties.setToken("test");
+        properties.setApiUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        properties.getSender().setPerChatIntervalMs(0);
+        properties.getSender().setRetryInitialMs(10);
+        properties.getSender().setRequestTimeoutMs(5_000);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (producer != null) {
+            producer.shutdown();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    void retryBlocksLaterMessagesOfTheSameChat() throws Exception {
+        failuresLeft.set(2);
+        responder = (exchange, body) -> {
+            if (body.contains("\"first\"") && failuresLeft.getAndDecrement() > 0) {
+                respond(exchange, 502, "{\"ok\":false,\"description\":\"Bad Gateway\"}");
+            } else {
+                ok(exchange, body);
+            }
+        };
+        startProducer();
+
+        CompletableFuture<Long> first = producer.sendMessage(1L, "first");
+        CompletableFuture<Long> second = producer.sendMessage(1L, "second");
+        CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+
+        List<String> texts = requests.stream().map(TelegramProducerTest::text).toList();
+        assertThat(texts).containsExactly("first", "first", "first", "second");
+    }
+
+    @Test
+    void sendMessageIsNotRepostedAfterReadTimeout() {
+        properties.getSender().setRequestTimeoutMs(300);
+        responder = (exchange, body) -> {
+            try {
+                Thread.sleep(2_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ok(exchange, body);
+        };
+        startProducer();
+
+        CompletableFuture<Long> sent = producer.sendMessage(1L, "once");
+
+        assertThatThrownBy(() -> sent.get(5, TimeUnit.SECONDS)).hasMessageContaining("delivery is unknown");
+        assertThat(requests).hasSize(1);
+    }
+
+    @Test
+    void ambiguousNotificationIsNotParked() throws Exception {
+        properties.getSender().setRequestTimeoutMs(300);
+        responder = (exchange, body) -> {
+            try {
+                Thread.sleep(2_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ok(exchange, body);
+        };
+        startProducer();
+
+        producer.sendNotification(1L, "once");
+        Thread.sleep(1_000);
+
+        verify(rabbitTemplate, never()).convertAndSend(anyString(), anyString(), any(Object.class));
+    }
+
+    @Test
+    void clientErrorIsNotRetried() {
+        responder = (exchange, body) -> respond(exchange, 400, "{\"ok\":false,\"description\":\"chat not found\"}");
+        startProducer();
+
+        CompletableFuture<Long> sent = producer.sendMessage(1L, "lost");
+
+        assertThatThrownBy(() -> sent.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(TelegramApiException.class);
+        assertThat(requests).hasSize(1);
+    }
+
+    @Test
+    void notificationsQueuedAtShutdownAreParked() throws Exception {
+        properties.getSender().setPerChatIntervalMs(60_000);
+        startProducer();
+
+        producer.sendMessage(1L, "sent").get(5, TimeUnit.SECONDS);
+        producer.sendNotification(1L, "waiting");
+        producer.shutdown();
+        producer = null;
+
+        verify(rabbitTemplate, timeout(1_000)).convertAndSend(eq(""), eq(RabbitMQConfig.TELEGRAM_OUTGOING_QUEUE),
+                eq(new TelegramNotification(1L, "waiting")));
+        assertThat(requests).hasSize(1);
+    }
+
+    private void startProducer() {
+        producer = new TelegramProducer(properties, rabbitTemplate, new SimpleMeterRegistry());
+        producer.start();
+    }
+
+    private static String text(String body) {
+        int start = body.indexOf("\"text\":\"") + 8;
+        return body.substring(start, body.indexOf('"', start));
+    }
+
+    private static void ok(HttpExchange exchange, String body) throws IOException {
+        respond(exchange, 200, "{\"ok\":true,\"result\":{\"message_id\":" + body.length() + "}}");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    @FunctionalInterface
+    private interface Responder {
+        void respond(HttpExchange exchange, String body) throws IOException;
+    }
+}
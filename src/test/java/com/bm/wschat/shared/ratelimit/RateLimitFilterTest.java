@@ -0,0 +1,93 @@
+package com.bm.wschat.shared.ratelimit;
+
+import com.bm.wschat.shared.config.RateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class RateLimitFilterTest {
+
+    private final RateLimitProperties properties = new RateLimitProperties();
+    private final RateLimitFilter filter;
+
+    RateLimitFilterTest() {
+        properties.setHttp(List.of(
+                group("login", "/api/v1/auth/login", RateLimitProperties.KeyBy.USERNAME),
+                group("auth", "/api/v1/auth/refresh", RateLimitProperties.KeyBy.CLIENT)));
+        filter = new RateLimitFilter(
+                new RateLimiter(mock(StringRedisTemplate.class), properties, new SimpleMeterRegistry()),
+                properties, JsonMapper.builder().build());
+    }
+
+    @Test
+    void loginIsLimitedPerUsernameNotPerAddress() throws Exception {
+        assertThat(login("alice").getStatus()).isEqualTo(200);
+        assertThat(login("ALICE ").getStatus()).isEqualTo(429);
+        // Другой пользователь с того же адреса (NAT) не упирается в чужой лимит
+        assertThat(login("bob").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void controllerReceivesTheLoginBodyAfterItWasRead() throws Exception {
+        String[] seen = new String[1];
+        FilterChain chain = (request, response) ->
+                seen[0] = new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+
+        filter.doFilter(loginRequest("alice"), new MockHttpServletResponse(), chain);
+
+        assertThat(seen[0]).isEqualTo(body("alice"));
+    }
+
+    @Test
+    void anonymousRefreshIsLimitedPerAddress() throws Exception {
+        assertThat(refresh("10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(refresh("10.0.0.1").getStatus()).isEqualTo(429);
+        assertThat(refresh("10.0.0.2").getStatus()).isEqualTo(200);
+    }
+
+    private MockHttpServletResponse login(String username) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(loginRequest(username), response, (request, r) -> request.getInputStream().readAllBytes());
+        return response;
+    }
+
+    private MockHttpServletResponse refresh(String address) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/auth/refresh");
+        request.setRemoteAddr(address);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (r, s) -> { });
+        return response;
+    }
+
+    private static MockHttpServletRequest loginRequest(String username) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/auth/login");
+        request.setRemoteAddr("10.0.0.1");
+        request.setContentType("application/json");
+        request.setContent(body(username).getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private static String body(String username) {
+        return "{\"username\":\"" + username + "\",\"password\":\"secret\"}";
+    }
+
+    private static RateLimitProperties.Group group(String name, String pattern, RateLimitProperties.KeyBy keyBy) {
+        RateLimitProperties.Group group = new RateLimitProperties.Group();
+        group.setName(name);
+        group.setPatterns(List.of(pattern));
+        group.setCapacity(1);
+        group.setRefillPerSecond(0.001);
+        group.setKeyBy(keyBy);
+        return group;
+    }
+}